@@ -0,0 +1,191 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Properties;
+
+import org.apache.ibatis.migration.FileMigrationLoader;
+import org.apache.ibatis.migration.MigrationLoader;
+import org.apache.ibatis.migration.hook.FileMigrationHook;
+import org.apache.ibatis.migration.hook.MigrationHook;
+import org.apache.ibatis.migration.hook.scripts.HookScript;
+import org.apache.ibatis.migration.hook.scripts.SqlHookScript;
+
+/**
+ * A synthetic project of generated migrations and SQL hooks, written to a temporary directory.
+ * <p>
+ * The first migration creates the changelog, every 100th one seeds {@value #SEED_ROWS} rows, every 10th one creates
+ * a table and an index, and the others insert and update a few rows.
+ */
+final class Corpus {
+
+  static final int SEED_ROWS = 1000;
+
+  private static final long FIRST_ID = 20180101000000L;
+
+  private static final String CHARSET = "UTF-8";
+
+  private final File baseDir;
+
+  private final File scriptsDir;
+
+  private final File hooksDir;
+
+  private final int migrations;
+
+  private Corpus(File baseDir, int migrations) {
+    this.baseDir = baseDir;
+    this.scriptsDir = new File(baseDir, "scripts");
+    this.hooksDir = new File(baseDir, "hooks");
+    this.migrations = migrations;
+  }
+
+  static Corpus generate(int migrations) throws IOException {
+    File baseDir = File.createTempFile("migrations-corpus", "");
+    if (!baseDir.delete() || !baseDir.mkdir()) {
+      throw new IOException("Could not create " + baseDir);
+    }
+    Corpus corpus = new Corpus(baseDir, migrations);
+    corpus.write();
+    return corpus;
+  }
+
+  File getBaseDir() {
+    return baseDir;
+  }
+
+  /**
+   * @return the ID of the <code>index</code>th migration, starting from 1.
+   */
+  BigDecimal getId(int index) {
+    return BigDecimal.valueOf(FIRST_ID + index);
+  }
+
+  MigrationLoader createLoader() {
+    return new FileMigrationLoader(scriptsDir, CHARSET, variables());
+  }
+
+  MigrationHook createHook(PrintStream printStream) {
+    return new FileMigrationHook(hookScript("before.sql", printStream), hookScript("before_each.sql", printStream),
+        hookScript("after_each.sql", printStream), hookScript("after.sql", printStream));
+  }
+
+  private HookScript hookScript(String name, PrintStream printStream) {
+    return new SqlHookScript(new File(hooksDir, name), CHARSET, new String[0], variables(), printStream);
+  }
+
+  private static Properties variables() {
+    Properties variables = new Properties();
+    variables.setProperty("changelog", "CHANGELOG");
+    variables.setProperty("owner", "benchmark");
+    return variables;
+  }
+
+  void delete() {
+    delete(baseDir);
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  private void write() throws IOException {
+    if (!scriptsDir.mkdir() || !hooksDir.mkdir()) {
+      throw new IOException("Could not create the directories of " + baseDir);
+    }
+    write(new File(scriptsDir, "bootstrap.sql"), "-- // bootstrap\n"
+        + "CREATE TABLE benchmark_data (id BIGINT PRIMARY KEY, migration_id INTEGER NOT NULL, name VARCHAR(100),"
+        + " owner VARCHAR(30));\n"
+        + "CREATE TABLE migration_audit (phase VARCHAR(20) NOT NULL,"
+        + " logged_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP);\n");
+    for (String phase : new String[] { "before", "before_each", "after_each", "after" }) {
+      write(new File(hooksDir, phase + ".sql"), "INSERT INTO migration_audit (phase) VALUES ('" + phase + "');\n");
+    }
+    write(new File(scriptsDir, FIRST_ID + 1 + "_create_changelog.sql"), "-- // Create Changelog\n"
+        + "CREATE TABLE ${changelog} (ID NUMERIC(20,0) NOT NULL, APPLIED_AT VARCHAR(25) NOT NULL,"
+        + " DESCRIPTION VARCHAR(255) NOT NULL);\n"
+        + "ALTER TABLE ${changelog} ADD CONSTRAINT PK_${changelog} PRIMARY KEY (id);\n"
+        + "-- //@UNDO\n"
+        + "DROP TABLE ${changelog};\n");
+    for (int i = 2; i <= migrations; i++) {
+      if (i % 100 == 0) {
+        write(new File(scriptsDir, FIRST_ID + i + "_seed_" + i + ".sql"), seed(i));
+      } else if (i % 10 == 0) {
+        write(new File(scriptsDir, FIRST_ID + i + "_create_table_" + i + ".sql"), ddl(i));
+      } else {
+        write(new File(scriptsDir, FIRST_ID + i + "_update_data_" + i + ".sql"), dml(i));
+      }
+    }
+  }
+
+  private static String seed(int migration) {
+    StringBuilder script = new StringBuilder("-- // seed\n");
+    for (int row = 0; row < SEED_ROWS; row++) {
+      appendInsert(script, migration, row);
+    }
+    return appendDelete(script.append("-- //@UNDO\n"), migration).toString();
+  }
+
+  private static String ddl(int migration) {
+    return "-- // create table\n"
+        + "CREATE TABLE generated_" + migration + " (id INTEGER PRIMARY KEY, name VARCHAR(100), owner VARCHAR(30));\n"
+        + "CREATE INDEX generated_" + migration + "_name ON generated_" + migration + " (name);\n"
+        + "-- //@UNDO\n"
+        + "DROP TABLE generated_" + migration + ";\n";
+  }
+
+  private static String dml(int migration) {
+    StringBuilder script = new StringBuilder("-- // update data\n");
+    for (int row = 0; row < 5; row++) {
+      appendInsert(script, migration, row);
+    }
+    script.append("UPDATE benchmark_data SET name = 'updated' WHERE migration_id = ").append(migration)
+        .append(" AND owner = '${owner}';\n");
+    return appendDelete(script.append("-- //@UNDO\n"), migration).toString();
+  }
+
+  private static void appendInsert(StringBuilder script, int migration, int row) {
+    script.append("INSERT INTO benchmark_data (id, migration_id, name, owner) VALUES (")
+        .append((long) migration * SEED_ROWS + row).append(", ").append(migration).append(", 'row ").append(row)
+        .append("', '${owner}');\n");
+  }
+
+  private static StringBuilder appendDelete(StringBuilder script, int migration) {
+    return script.append("DELETE FROM benchmark_data WHERE migration_id = ").append(migration).append(";\n");
+  }
+
+  private static void write(File file, String content) throws IOException {
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), CHARSET);
+    try {
+      writer.write(content);
+    } finally {
+      writer.close();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.FileMigrationLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lists the migrations of scripts directories holding 100 to 100,000 files.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileMigrationLoaderBenchmark {
+
+  @Param({ "100", "1000", "10000", "100000" })
+  public int files;
+
+  private File scriptsDir;
+
+  private FileMigrationLoader loader;
+
+  @Setup
+  public void setUp() throws IOException {
+    scriptsDir = File.createTempFile("migrations-benchmark", "");
+    if (!scriptsDir.delete() || !scriptsDir.mkdir()) {
+      throw new IOException("Could not create " + scriptsDir);
+    }
+    createFile("bootstrap.sql");
+    createFile("onabort.sql");
+    for (int i = 0; i < files; i++) {
+      createFile(String.format("%014d_generated_migration_%d.sql", 20180101000000L + i, i));
+    }
+    loader = new FileMigrationLoader(scriptsDir, "UTF-8", new Properties());
+  }
+
+  private void createFile(String name) throws IOException {
+    if (!new File(scriptsDir, name).createNewFile()) {
+      throw new IOException("Could not create " + name);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    File[] scripts = scriptsDir.listFiles();
+    if (scripts != null) {
+      for (File script : scripts) {
+        script.delete();
+      }
+    }
+    scriptsDir.delete();
+  }
+
+  @Benchmark
+  public List<Change> getMigrations() {
+    return loader.getMigrations();
+  }
+}
@@ -0,0 +1,240 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.benchmarks;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.migration.JdbcConnectionProvider;
+import org.apache.ibatis.migration.MigrationLoader;
+import org.apache.ibatis.migration.hook.MigrationHook;
+import org.apache.ibatis.migration.metrics.MigrationMetrics;
+import org.apache.ibatis.migration.operations.BootstrapOperation;
+import org.apache.ibatis.migration.operations.DownOperation;
+import org.apache.ibatis.migration.operations.StatusOperation;
+import org.apache.ibatis.migration.operations.UpOperation;
+import org.apache.ibatis.migration.operations.VersionOperation;
+import org.apache.ibatis.migration.options.DatabaseOperationOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the operations end to end against an in-memory and a file-backed HSQLDB database, on a generated
+ * {@link Corpus} of migrations with SQL hooks.
+ * <p>
+ * Each invocation is timed once, after the database has been brought to the state the operation starts from. Run it
+ * with the {@link OperationsProfiler} profiler to also report the allocations of the operation, the peak heap and the
+ * migrations per second. The preparation of the database runs inside the iteration, so the <code>gc</code> profiler
+ * counts its allocations too and its figures are not those of the operation.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MigrationOperationsBenchmark {
+
+  private static final PrintStream NO_OUTPUT = new PrintStream(new OutputStream() {
+    @Override
+    public void write(int b) {
+      // discards the output of the operations
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      // discards the output of the operations
+    }
+  });
+
+  /**
+   * A database and the corpus migrating it, shared by all the invocations of a trial.
+   */
+  public abstract static class Database {
+
+    @Param({ "mem", "file" })
+    public String storage;
+
+    @Param({ "1000", "5000" })
+    public int migrations;
+
+    protected Corpus corpus;
+
+    protected Connection connection;
+
+    protected MigrationLoader loader;
+
+    protected MigrationHook hook;
+
+    protected DatabaseOperationOption option;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+      corpus = Corpus.generate(migrations);
+      String url;
+      if ("file".equals(storage)) {
+        url = "jdbc:hsqldb:file:" + new File(corpus.getBaseDir(), "db").getAbsolutePath();
+      } else {
+        url = "jdbc:hsqldb:mem:benchmark" + System.nanoTime();
+      }
+      connection = new JdbcConnectionProvider("org.hsqldb.jdbcDriver", url, "sa", "").getConnection();
+      loader = corpus.createLoader();
+      hook = corpus.createHook(NO_OUTPUT);
+      option = new DatabaseOperationOption();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+      try {
+        execute("SHUTDOWN");
+        connection.close();
+      } finally {
+        corpus.delete();
+      }
+    }
+
+    protected void reset() throws SQLException {
+      execute("DROP SCHEMA PUBLIC CASCADE");
+    }
+
+    protected void bootstrap() {
+      new BootstrapOperation().operate(connection, loader, option, NO_OUTPUT);
+    }
+
+    protected void migrate() {
+      new UpOperation().operate(connection, loader, option, NO_OUTPUT, hook);
+    }
+
+    /**
+     * Clears the metrics and the peak heap usage recorded while preparing the database, so that only the timed
+     * operation is reported.
+     */
+    protected void ready() {
+      MigrationMetrics.getInstance().reset();
+      OperationsProfiler.resetPeakHeapUsage();
+    }
+
+    private void execute(String sql) throws SQLException {
+      Statement statement = connection.createStatement();
+      try {
+        statement.execute(sql);
+      } finally {
+        statement.close();
+      }
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class EmptyDatabase extends Database {
+    @Setup(Level.Invocation)
+    public void prepare() throws SQLException {
+      reset();
+      ready();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class BootstrappedDatabase extends Database {
+    @Setup(Level.Invocation)
+    public void prepare() throws SQLException {
+      reset();
+      bootstrap();
+      ready();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class MigratedDatabase extends Database {
+    @Setup(Level.Invocation)
+    public void prepare() throws SQLException {
+      reset();
+      bootstrap();
+      migrate();
+      ready();
+    }
+  }
+
+  @Benchmark
+  public BootstrapOperation bootstrap(EmptyDatabase database) {
+    long start = OperationsProfiler.allocatedBytes();
+    try {
+      return new BootstrapOperation().operate(database.connection, database.loader, database.option, NO_OUTPUT);
+    } finally {
+      OperationsProfiler.recordAllocation(start);
+    }
+  }
+
+  @Benchmark
+  public UpOperation up(BootstrappedDatabase database) {
+    long start = OperationsProfiler.allocatedBytes();
+    try {
+      return new UpOperation().operate(database.connection, database.loader, database.option, NO_OUTPUT,
+          database.hook);
+    } finally {
+      OperationsProfiler.recordAllocation(start);
+    }
+  }
+
+  @Benchmark
+  public StatusOperation status(MigratedDatabase database) {
+    long start = OperationsProfiler.allocatedBytes();
+    try {
+      return new StatusOperation().operate(database.connection, database.loader, database.option, NO_OUTPUT);
+    } finally {
+      OperationsProfiler.recordAllocation(start);
+    }
+  }
+
+  @Benchmark
+  public VersionOperation version(MigratedDatabase database) {
+    long start = OperationsProfiler.allocatedBytes();
+    try {
+      return new VersionOperation(database.corpus.getId(database.migrations / 2)).operate(database.connection,
+          database.loader, database.option, NO_OUTPUT, database.hook, database.hook);
+    } finally {
+      OperationsProfiler.recordAllocation(start);
+    }
+  }
+
+  @Benchmark
+  public DownOperation down(MigratedDatabase database) {
+    long start = OperationsProfiler.allocatedBytes();
+    try {
+      return new DownOperation(database.migrations).operate(database.connection, database.loader, database.option,
+          NO_OUTPUT, database.hook);
+    } finally {
+      OperationsProfiler.recordAllocation(start);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.migration.MigrationReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads the forward and the undo part of migration scripts of various sizes and variable densities.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MigrationReaderBenchmark {
+
+  private static final String CHARSET = "UTF-8";
+
+  private static final int VARIABLES = 20;
+
+  @Param({ "10", "1000", "100000" })
+  public int statements;
+
+  @Param({ "0", "1", "10" })
+  public int variablesPerStatement;
+
+  private byte[] script;
+
+  private Properties variables;
+
+  @Setup
+  public void setUp() throws IOException {
+    script = Scripts.migration(statements, variablesPerStatement, VARIABLES).getBytes(CHARSET);
+    variables = new Properties();
+    for (int i = 0; i < VARIABLES; i++) {
+      variables.setProperty("var" + i, "value" + i);
+    }
+  }
+
+  @Benchmark
+  public long forward() throws IOException {
+    return Scripts.drain(new MigrationReader(new ByteArrayInputStream(script), CHARSET, false, variables));
+  }
+
+  @Benchmark
+  public long undo() throws IOException {
+    return Scripts.drain(new MigrationReader(new ByteArrayInputStream(script), CHARSET, true, variables));
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.migration.metrics.MigrationMetrics;
+import org.apache.ibatis.migration.metrics.TimerSnapshot;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * Reports the peak heap usage of each iteration and, for single shot benchmarks, the migrations applied or undone
+ * per second according to {@link MigrationMetrics}.
+ * <p>
+ * Benchmarks whose state is prepared with <code>@Setup(Level.Invocation)</code> run that preparation inside the
+ * iteration, so they call {@link #resetPeakHeapUsage()} once the state is ready and measure the bytes allocated by
+ * the operation itself with {@link #allocatedBytes()} and {@link #recordAllocation(long)}. This is reported as
+ * <code>operation.alloc</code>; the <code>gc.alloc</code> figures of the <code>gc</code> profiler include the
+ * preparation for those benchmarks.
+ * <p>
+ * Enable it with <code>-prof org.apache.ibatis.migration.benchmarks.OperationsProfiler</code>.
+ */
+public class OperationsProfiler implements InternalProfiler {
+
+  private static final double MEGABYTE = 1024 * 1024;
+
+  private static final AtomicLong ALLOCATED_BYTES = new AtomicLong();
+
+  private static final AtomicLong ALLOCATIONS = new AtomicLong();
+
+  @Override
+  public String getDescription() {
+    return "Peak heap usage and migrations per second";
+  }
+
+  @Override
+  public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+    ALLOCATED_BYTES.set(0);
+    ALLOCATIONS.set(0);
+    resetPeakHeapUsage();
+  }
+
+  @Override
+  public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams,
+      IterationParams iterationParams, IterationResult result) {
+    List<Result> results = new ArrayList<Result>();
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    results.add(new ScalarResult("heap.peak", peak / MEGABYTE, "MB", AggregationPolicy.MAX));
+    long operations = ALLOCATIONS.get();
+    if (operations > 0) {
+      results.add(new ScalarResult("operation.alloc", ALLOCATED_BYTES.get() / MEGABYTE / operations, "MB/op",
+          AggregationPolicy.AVG));
+    }
+    long migrations = count("migration.up") + count("migration.down");
+    if (benchmarkParams.getMode() == Mode.SingleShotTime && migrations > 0) {
+      double nanos = result.getPrimaryResult().getScore() * benchmarkParams.getTimeUnit().toNanos(1);
+      results.add(new ScalarResult("migrations.rate", migrations * 1e9 / nanos, "migrations/s",
+          AggregationPolicy.AVG));
+    }
+    return results;
+  }
+
+  /**
+   * Resets the peak usage of the heap pools, so that the reported peak only covers what runs afterwards.
+   */
+  static void resetPeakHeapUsage() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /**
+   * @return The bytes allocated so far by the current thread, or -1 if the JVM does not track them.
+   */
+  static long allocatedBytes() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean allocating = (com.sun.management.ThreadMXBean) threads;
+      if (allocating.isThreadAllocatedMemorySupported() && allocating.isThreadAllocatedMemoryEnabled()) {
+        return allocating.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Records the bytes the current thread allocated since <code>start</code>, as returned by
+   * {@link #allocatedBytes()}.
+   */
+  static void recordAllocation(long start) {
+    if (start >= 0) {
+      ALLOCATED_BYTES.addAndGet(allocatedBytes() - start);
+      ALLOCATIONS.incrementAndGet();
+    }
+  }
+
+  private static long count(String timer) {
+    TimerSnapshot snapshot = MigrationMetrics.getInstance().getTimer(timer);
+    return snapshot == null ? 0 : snapshot.getCount();
+  }
+}
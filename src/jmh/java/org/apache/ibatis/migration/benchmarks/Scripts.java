@@ -0,0 +1,78 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.benchmarks;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Generates the synthetic scripts read by the benchmarks.
+ */
+final class Scripts {
+
+  private Scripts() {
+    super();
+  }
+
+  /**
+   * @return a migration script with <code>statements</code> inserts and as many deletes in its undo section, each
+   *         statement referring to <code>variablesPerStatement</code> variables among <code>variables</code>.
+   */
+  static String migration(int statements, int variablesPerStatement, int variables) {
+    StringBuilder script = new StringBuilder();
+    script.append("-- // generated migration\n");
+    script.append("-- Migration SQL that makes the change goes here.\n\n");
+    for (int i = 0; i < statements; i++) {
+      script.append("INSERT INTO benchmark (id, name, value) VALUES (").append(i).append(", 'row ").append(i)
+          .append("', '");
+      appendVariables(script, i, variablesPerStatement, variables);
+      script.append("');\n");
+    }
+    script.append("\n-- //@UNDO\n");
+    script.append("-- SQL to undo the change goes here.\n\n");
+    for (int i = statements - 1; i >= 0; i--) {
+      script.append("DELETE FROM benchmark WHERE id = ").append(i).append(" AND value = '");
+      appendVariables(script, i, variablesPerStatement, variables);
+      script.append("';\n");
+    }
+    return script.toString();
+  }
+
+  private static void appendVariables(StringBuilder script, int statement, int count, int variables) {
+    for (int j = 0; j < count; j++) {
+      script.append("${var").append((statement * count + j) % variables).append('}');
+    }
+  }
+
+  /**
+   * Reads the reader to the end.
+   *
+   * @return the number of characters read.
+   */
+  static long drain(Reader reader) throws IOException {
+    char[] buffer = new char[8192];
+    long total = 0;
+    try {
+      int n;
+      while ((n = reader.read(buffer)) >= 0) {
+        total += n;
+      }
+    } finally {
+      reader.close();
+    }
+    return total;
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.migration.io.TemplateReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Substitutes the hook bindings in a script of 1,000 statements, with binding maps of various sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateReaderBenchmark {
+
+  private static final int STATEMENTS = 1000;
+
+  @Param({ "10", "1000", "100000" })
+  public int bindings;
+
+  @Param({ "0", "1", "10" })
+  public int variablesPerStatement;
+
+  private String script;
+
+  private Map<String, Object> bindingMap;
+
+  @Setup
+  public void setUp() {
+    script = Scripts.migration(STATEMENTS, variablesPerStatement, bindings);
+    bindingMap = new HashMap<String, Object>();
+    for (int i = 0; i < bindings; i++) {
+      bindingMap.put("var" + i, "value" + i);
+    }
+  }
+
+  @Benchmark
+  public long substitute() throws IOException {
+    return Scripts.drain(new TemplateReader(new StringReader(script), bindingMap));
+  }
+}
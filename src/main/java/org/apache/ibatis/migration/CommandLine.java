@@ -19,21 +19,68 @@ import static org.apache.ibatis.migration.commands.Commands.resolveCommand;
 import static org.apache.ibatis.migration.options.OptionsParser.parse;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.util.Date;
+import org.apache.ibatis.migration.commands.BaseCommand;
 import org.apache.ibatis.migration.commands.Command;
+import org.apache.ibatis.migration.commands.Commands;
+import org.apache.ibatis.migration.commands.ResourceCache;
+import org.apache.ibatis.migration.daemon.DaemonClient;
+import org.apache.ibatis.migration.events.EventSink;
+import org.apache.ibatis.migration.events.JsonLinesEventSink;
+import org.apache.ibatis.migration.events.MigrationEvents;
+import org.apache.ibatis.migration.metrics.MigrationMetrics;
+import org.apache.ibatis.migration.metrics.StatementProfiler;
 import org.apache.ibatis.migration.options.SelectedOptions;
 
 public class CommandLine {
-  private final PrintStream console = System.out;
+  private final PrintStream console;
   private final String[] args;
 
   public CommandLine(String[] args) {
+    this(args, System.out);
+  }
+
+  /**
+   * @param console
+   *          the stream the command and its output are written to.
+   */
+  public CommandLine(String[] args, PrintStream console) {
     this.args = args;
+    this.console = console;
   }
 
   public void execute() {
     final SelectedOptions selectedOptions = parse(args);
+    if (forwardToDaemon(selectedOptions)) {
+      Integer status = new DaemonClient(selectedOptions.getDaemonPort(), console).forward(args);
+      if (status != null) {
+        if (status != 0) {
+          System.exit(status);
+        }
+        return;
+      }
+      console.printf("No migration daemon is listening on port %s, running the command locally.%n",
+          selectedOptions.getDaemonPort());
+    }
+    if (!run(selectedOptions)) {
+      System.exit(1); // Issue 730
+    }
+  }
+
+  /**
+   * Runs the command in this JVM.
+   *
+   * @return <code>false</code> if the command failed. Unlike {@link #execute()}, this method never terminates the JVM.
+   */
+  public boolean run() {
+    return run(parse(args));
+  }
+
+  private boolean run(SelectedOptions selectedOptions) {
     try {
       if (!validOptions(selectedOptions) || selectedOptions.needsHelp()) {
         printUsage();
@@ -50,9 +97,23 @@ public class CommandLine {
       }
 
       if (selectedOptions.isTrace()) {
-        e.printStackTrace();
+        e.printStackTrace(console);
       }
-      System.exit(1); // Issue 730
+      return false;
+    }
+    return true;
+  }
+
+  private boolean forwardToDaemon(SelectedOptions selectedOptions) {
+    if (selectedOptions.getDaemonPort() == null || selectedOptions.getCommand() == null
+        || selectedOptions.needsHelp()) {
+      return false;
+    }
+    try {
+      return Commands.lookup(selectedOptions.getCommand().toUpperCase()) != Commands.DAEMON;
+    } catch (MigrationException e) {
+      // let the daemon report the unknown command
+      return true;
     }
   }
 
@@ -65,9 +126,35 @@ public class CommandLine {
 
     long start = System.currentTimeMillis();
     boolean exceptionCaught = false;
+    final File metricsFile = selectedOptions.getMetricsFile();
+    MigrationMetrics commandMetrics = null;
+    EventSink eventSink = null;
+    StatementProfiler profiler = null;
+    boolean ownResourceCache = false;
 
     try {
-      final Command command = resolveCommand(commandString.toUpperCase(), selectedOptions);
+      if (metricsFile != null) {
+        // a registry of its own, so that the cumulative timers of the daemon are left alone
+        commandMetrics = new MigrationMetrics();
+        MigrationMetrics.setCommandMetrics(commandMetrics);
+      }
+      if (selectedOptions.isProfile()) {
+        profiler = new StatementProfiler();
+        StatementProfiler.setActive(profiler);
+      }
+      eventSink = openEventSink(selectedOptions.getEventsFile());
+      if (eventSink != null) {
+        MigrationEvents.setSink(eventSink);
+      }
+      // share connections and driver class loaders between the command and its hooks
+      if (BaseCommand.getResourceCache() == null) {
+        BaseCommand.setResourceCache(new ResourceCache());
+        ownResourceCache = true;
+      }
+      final Command command = resolveCommand(commandString.toUpperCase(), selectedOptions, console);
+      if (command instanceof BaseCommand && !selectedOptions.isQuiet()) {
+        ((BaseCommand) command).setPrintStream(console);
+      }
       command.execute(selectedOptions.getParams());
     } catch (Throwable t) {
       exceptionCaught = true;
@@ -77,19 +164,82 @@ public class CommandLine {
         throw new MigrationException(t);
       }
     } finally {
+      // each step runs even if a previous one failed, and a failure never replaces the one of the command
+      RuntimeException cleanupFailure = null;
+      if (commandMetrics != null) {
+        MigrationMetrics.setCommandMetrics(null);
+      }
+      if (profiler != null) {
+        StatementProfiler.setActive(null);
+      }
+      if (ownResourceCache) {
+        try {
+          BaseCommand.getResourceCache().close();
+        } catch (RuntimeException e) {
+          cleanupFailure = cleanupFailed("close the connections", e, cleanupFailure);
+        } finally {
+          BaseCommand.setResourceCache(null);
+        }
+      }
+      if (eventSink != null) {
+        MigrationEvents.setSink(null);
+        try {
+          eventSink.close();
+        } catch (RuntimeException e) {
+          cleanupFailure = cleanupFailed("close the events file", e, cleanupFailure);
+        }
+      }
+      if (profiler != null && selectedOptions.getProfileFile() != null) {
+        try {
+          profiler.writeReport(selectedOptions.getProfileFile());
+        } catch (RuntimeException e) {
+          cleanupFailure = cleanupFailed("write the profile", e, cleanupFailure);
+        }
+      }
+      if (commandMetrics != null) {
+        try {
+          commandMetrics.writeSummary(metricsFile);
+        } catch (RuntimeException e) {
+          cleanupFailure = cleanupFailed("write the metrics", e, cleanupFailure);
+        }
+      }
+      boolean failed = exceptionCaught || cleanupFailure != null;
       console.printf("------------------------------------------------------------------------%n");
 
       if (selectedOptions.hasColor()) {
-        console.printf("-- MyBatis Migrations %s%s%s%n", (exceptionCaught) ? ConsoleColors.RED : ConsoleColors.GREEN,
-            (exceptionCaught) ? "FAILURE" : "SUCCESS", ConsoleColors.RESET);
+        console.printf("-- MyBatis Migrations %s%s%s%n", (failed) ? ConsoleColors.RED : ConsoleColors.GREEN,
+            (failed) ? "FAILURE" : "SUCCESS", ConsoleColors.RESET);
       } else {
-        console.printf("-- MyBatis Migrations %s%n", (exceptionCaught) ? "FAILURE" : "SUCCESS");
+        console.printf("-- MyBatis Migrations %s%n", (failed) ? "FAILURE" : "SUCCESS");
       }
 
       console.printf("-- Total time: %ss%n", ((System.currentTimeMillis() - start) / 1000));
       console.printf("-- Finished at: %s%n", new Date());
       printMemoryUsage();
       console.printf("------------------------------------------------------------------------%n");
+      if (profiler != null) {
+        profiler.printReport(new PrintWriter(console));
+        console.printf("------------------------------------------------------------------------%n");
+      }
+      if (cleanupFailure != null && !exceptionCaught) {
+        throw cleanupFailure;
+      }
+    }
+  }
+
+  private RuntimeException cleanupFailed(String step, RuntimeException e, RuntimeException previous) {
+    console.printf("Failed to %s: %s%n", step, e.getMessage());
+    return previous == null ? e : previous;
+  }
+
+  private EventSink openEventSink(File eventsFile) {
+    if (eventsFile == null) {
+      return null;
+    }
+    try {
+      return new JsonLinesEventSink(new FileOutputStream(eventsFile));
+    } catch (FileNotFoundException e) {
+      throw new MigrationException("Failed to open events file " + eventsFile.getAbsolutePath(), e);
     }
   }
 
@@ -103,6 +253,10 @@ public class CommandLine {
   }
 
   private boolean validOptions(SelectedOptions selectedOptions) {
+    if (selectedOptions.getUsageError() != null) {
+      console.printf("%s%n", selectedOptions.getUsageError());
+      return false;
+    }
     if (!selectedOptions.needsHelp() && selectedOptions.getCommand() == null) {
       console.printf("No command specified.%n");
       return false;
@@ -132,6 +286,11 @@ public class CommandLine {
     console.printf("--trace              Shows additional error details (if any).%n");
     console.printf("--quiet              Suppresses output.%n");
     console.printf("--color              Colorize output.%n");
+    console.printf("--daemon[=<port>]    Runs the command in the migration daemon listening on the port, if any.%n");
+    console.printf("                     ${sys.*} and ${env.*} variables are those of the daemon's JVM.%n");
+    console.printf("--metrics=<file>     Writes the timers of the command to the file as JSON.%n");
+    console.printf("--events=<file>      Writes the events of the command to the file as JSON lines.%n");
+    console.printf("--profile[=<file>]   Reports the slowest statements of the command, also to the file if any.%n");
     console.printf("%n");
     console.printf("Commands:%n");
     console.printf("  info               Display build version informations.%n");
@@ -146,6 +305,8 @@ public class CommandLine {
     console.printf("  status             Prints the changelog from the database if the changelog table exists.%n");
     console
         .printf("  script <v1> <v2>   Generates a delta migration script from version v1 to v2 (undo if v1 > v2).%n");
+    console.printf("  daemon [port]      Starts a daemon that keeps drivers, environments and connections warm.%n");
+    console.printf("  batch <commands>   Runs commands separated by ';' (or read from a file) sharing one connection.%n");
     console.printf("%n");
     console.printf("  * Shortcuts are accepted by using the first few (unambiguous) letters of each command..%n");
     console.printf("%n");
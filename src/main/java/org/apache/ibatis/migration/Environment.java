@@ -98,8 +98,13 @@ public class Environment {
 
   private final Properties variables = new Properties();
 
+  private final Properties properties;
+
+  private volatile VariableContext variableContext;
+
   public Environment(String name, Properties prop) {
     this.name = name;
+    this.properties = prop;
     this.timeZone = prop.getProperty(SETTING_KEY.time_zone.name(), "GMT+0:00");
     this.delimiter = prop.getProperty(SETTING_KEY.delimiter.name(), ";");
     this.scriptCharset = prop.getProperty(SETTING_KEY.script_char_set.name(), Charset.defaultCharset().name());
@@ -259,6 +264,20 @@ public class Environment {
     return variables;
   }
 
+  /**
+   * @return The variables of all the properties of the environment file (including the settings) along with the
+   *         system properties and environment variables, prefixed with <code>sys.</code> and <code>env.</code>
+   *         respectively.
+   */
+  public VariableContext getVariableContext() {
+    VariableContext context = variableContext;
+    if (context == null) {
+      context = new VariableContext(properties);
+      variableContext = context;
+    }
+    return context;
+  }
+
   public String getName() {
     return name;
   }
@@ -25,6 +25,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent.Type;
 import org.apache.ibatis.migration.options.SelectedPaths;
 import org.apache.ibatis.migration.utils.Util;
 
@@ -49,6 +51,16 @@ public class FileMigrationLoader implements MigrationLoader {
   @Override
   public List<Change> getMigrations() {
     List<Change> migrations = new ArrayList<Change>();
+    FlightRecorderEvent event = FlightRecorderEvent.begin(Type.LOADER_SCAN).fileName(scriptsDir.getPath());
+    try {
+      scanScriptsDir(migrations);
+    } finally {
+      event.detail(migrations.size() + " migrations").commit();
+    }
+    return migrations;
+  }
+
+  private void scanScriptsDir(List<Change> migrations) {
     if (scriptsDir.isDirectory()) {
       String[] filenames = scriptsDir.list();
       if (filenames == null) {
@@ -62,7 +74,6 @@ public class FileMigrationLoader implements MigrationLoader {
         }
       }
     }
-    return migrations;
   }
 
   protected boolean isSpecialFile(String filename) {
@@ -16,7 +16,12 @@
 package org.apache.ibatis.migration;
 
 import org.apache.ibatis.io.ResolverUtil;
-import org.apache.ibatis.io.ResolverUtil.Test;
+import org.apache.ibatis.migration.io.JdbcScriptReader;
+import org.apache.ibatis.migration.index.MigrationIndex;
+import org.apache.ibatis.migration.index.MigrationIndex.Entry;
+import org.apache.ibatis.migration.index.MigrationIndex.Kind;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent.Type;
 import org.apache.ibatis.migration.scripts.BootstrapScript;
 import org.apache.ibatis.migration.scripts.OnAbortScript;
 
@@ -24,16 +29,34 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Loads migrations from classes implementing {@link MigrationScript} in the given packages.
+ * <p>
+ * Packages declared complete in a {@link MigrationIndex} generated at compile time are not scanned. The ID and
+ * description of their scripts annotated with {@link MigrationInfo} are read from the index, and the scripts are
+ * instantiated only when their SQL is read. Other packages are scanned once per loader.
+ * <p>
+ * Each script class is instantiated at most once per loader and the instance is reused, so scripts should not keep
+ * state between calls. The loader is safe for use by multiple threads.
+ */
 public class JavaMigrationLoader implements MigrationLoader {
 
   private String[] packageNames;
 
   private ClassLoader classLoader;
-  private final ResolverUtil<MigrationScript> resolver = getResolver(MigrationScript.class);
+  private volatile MigrationIndex index;
+  private volatile Map<String, Class<? extends MigrationScript>> scannedClasses;
+  private final ConcurrentMap<String, MigrationScript> scripts = new ConcurrentHashMap<String, MigrationScript>();
 
   public JavaMigrationLoader(String... packageNames) {
     this(null, packageNames);
@@ -48,21 +71,41 @@ public class JavaMigrationLoader implements MigrationLoader {
   @Override
   public List<Change> getMigrations() {
     List<Change> migrations = new ArrayList<Change>();
-    ResolverUtil<MigrationScript> resolver = getResolver(MigrationScript.class);
-    resolver.findImplementations(MigrationScript.class, packageNames);
-    Set<Class<? extends MigrationScript>> classes = resolver.getClasses();
-    for (Class<? extends MigrationScript> clazz : classes) {
-      try {
-        if (!Modifier.isAbstract(clazz.getModifiers())) {
-          MigrationScript script = clazz.newInstance();
-          Change change = parseChangeFromMigrationScript(script);
-          migrations.add(change);
+    FlightRecorderEvent event = FlightRecorderEvent.begin(Type.LOADER_SCAN).fileName(Arrays.toString(packageNames));
+    try {
+      findMigrations(migrations);
+    } finally {
+      event.detail(migrations.size() + " migrations").commit();
+    }
+    return migrations;
+  }
+
+  private void findMigrations(List<Change> migrations) {
+    Set<String> classNames = new HashSet<String>();
+    MigrationIndex index = getIndex();
+    for (String packageName : packageNames) {
+      if (index.isComplete(packageName)) {
+        for (Entry entry : index.getEntries(Kind.MIGRATION, packageName)) {
+          if (classNames.add(entry.getClassName())) {
+            migrations.add(entry.getId() == null ? parseChangeFromMigrationScript(getScript(entry.getClassName()))
+                : parseChangeFromIndexEntry(entry));
+          }
         }
-      } catch (Exception e) {
-        throw new MigrationException("Could not instanciate MigrationScript: " + clazz.getName(), e);
       }
     }
-    return migrations;
+    for (String className : getScannedClasses().keySet()) {
+      if (classNames.add(className)) {
+        migrations.add(parseChangeFromMigrationScript(getScript(className)));
+      }
+    }
+  }
+
+  private Change parseChangeFromIndexEntry(Entry entry) {
+    Change change = new Change();
+    change.setId(entry.getId());
+    change.setDescription(entry.getDescription());
+    change.setFilename(entry.getClassName());
+    return change;
   }
 
   private Change parseChangeFromMigrationScript(MigrationScript script) {
@@ -84,28 +127,90 @@ public class JavaMigrationLoader implements MigrationLoader {
   }
 
   private Reader getReader(Change change, boolean undo) {
-    final String className = change.getFilename();
-    for (String pkg : packageNames) {
-      resolver.find(new Test() {
-        @Override
-        public boolean matches(Class<?> type) {
-          return type != null && MigrationScript.class.isAssignableFrom(type) && type.getName().equals(className);
+    MigrationScript script = getScript(change.getFilename());
+    if (script == null) {
+      return null;
+    }
+    if (script instanceof JdbcMigrationScript) {
+      return new JdbcScriptReader((JdbcMigrationScript) script, undo);
+    }
+    if (script instanceof StreamingMigrationScript) {
+      StreamingMigrationScript streamingScript = (StreamingMigrationScript) script;
+      return undo ? streamingScript.getDownScriptReader() : streamingScript.getUpScriptReader();
+    }
+    return new StringReader(undo ? script.getDownScript() : script.getUpScript());
+  }
+
+  /**
+   * @return the script instance of the class, created on first use and reused afterwards; <code>null</code> if the
+   *         class is not a migration script in the packages of this loader.
+   */
+  private MigrationScript getScript(String className) {
+    if (className == null) {
+      return null;
+    }
+    MigrationScript script = scripts.get(className);
+    if (script == null) {
+      Class<? extends MigrationScript> clazz = getScannedClasses().get(className);
+      if (clazz != null) {
+        try {
+          script = clazz.newInstance();
+        } catch (Exception e) {
+          throw new MigrationException("Could not instanciate MigrationScript: " + clazz.getName(), e);
         }
-      }, pkg);
-    }
-    Reader reader = null;
-    Set<Class<? extends MigrationScript>> classes = resolver.getClasses();
-    for (Class<? extends MigrationScript> clazz : classes) {
-      try {
-        MigrationScript script = clazz.newInstance();
-        reader = new StringReader(undo ? script.getDownScript() : script.getUpScript());
-      } catch (Exception e) {
-        throw new MigrationException("Could not instanciate MigrationScript: " + clazz.getName(), e);
+      } else if (isIndexed(className, Kind.MIGRATION)) {
+        script = newInstance(className, MigrationScript.class);
+      } else {
+        return null;
+      }
+      MigrationScript existing = scripts.putIfAbsent(className, script);
+      if (existing != null) {
+        script = existing;
+      }
+    }
+    return script;
+  }
+
+  /**
+   * Scans the packages that are not in the index, once per loader.
+   *
+   * @return the concrete migration script classes keyed by class name.
+   */
+  private Map<String, Class<? extends MigrationScript>> getScannedClasses() {
+    Map<String, Class<? extends MigrationScript>> result = scannedClasses;
+    if (result == null) {
+      synchronized (this) {
+        result = scannedClasses;
+        if (result == null) {
+          result = scanClasses();
+          scannedClasses = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  private Map<String, Class<? extends MigrationScript>> scanClasses() {
+    List<String> unindexedPackages = new ArrayList<String>();
+    for (String packageName : packageNames) {
+      if (!getIndex().isComplete(packageName)) {
+        unindexedPackages.add(packageName);
+      }
+    }
+    if (unindexedPackages.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    ResolverUtil<MigrationScript> resolver = getResolver(MigrationScript.class);
+    resolver.findImplementations(MigrationScript.class,
+        unindexedPackages.toArray(new String[unindexedPackages.size()]));
+    Map<String, Class<? extends MigrationScript>> classes
+        = new LinkedHashMap<String, Class<? extends MigrationScript>>();
+    for (Class<? extends MigrationScript> clazz : resolver.getClasses()) {
+      if (!Modifier.isAbstract(clazz.getModifiers())) {
+        classes.put(clazz.getName(), clazz);
       }
-      // There should be only one script.
-      break;
     }
-    return reader;
+    return Collections.unmodifiableMap(classes);
   }
 
   @Override
@@ -119,6 +224,21 @@ public class JavaMigrationLoader implements MigrationLoader {
   }
 
   public <T extends SimpleScript> Reader getSoleScriptReader(Class<T> scriptClass) {
+    Kind kind = BootstrapScript.class.equals(scriptClass) ? Kind.BOOTSTRAP
+        : OnAbortScript.class.equals(scriptClass) ? Kind.ONABORT : null;
+    if (kind != null && isIndexed()) {
+      List<Entry> entries = new ArrayList<Entry>();
+      for (String packageName : packageNames) {
+        entries.addAll(getIndex().getEntries(kind, packageName));
+      }
+      if (entries.isEmpty()) {
+        return null;
+      }
+      if (entries.size() > 1) {
+        throw new MigrationException("There can be only one implementation of " + scriptClass.getName());
+      }
+      return new StringReader(newInstance(entries.get(0).getClassName(), scriptClass).getScript());
+    }
     ResolverUtil<T> resolver = getResolver(scriptClass);
     resolver.findImplementations(scriptClass, packageNames);
     Set<Class<? extends T>> classes = resolver.getClasses();
@@ -137,6 +257,56 @@ public class JavaMigrationLoader implements MigrationLoader {
     }
   }
 
+  private MigrationIndex getIndex() {
+    MigrationIndex result = index;
+    if (result == null) {
+      result = MigrationIndex.load(getClassLoader());
+      index = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return <code>true</code> if every package is declared complete in the index.
+   */
+  private boolean isIndexed() {
+    for (String packageName : packageNames) {
+      if (!getIndex().isComplete(packageName)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isIndexed(String className, Kind kind) {
+    Entry entry = getIndex().getEntry(className);
+    if (entry == null || entry.getKind() != kind) {
+      return false;
+    }
+    for (String packageName : packageNames) {
+      if (entry.isInPackage(packageName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ClassLoader getClassLoader() {
+    if (classLoader != null) {
+      return classLoader;
+    }
+    ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+    return contextClassLoader == null ? JavaMigrationLoader.class.getClassLoader() : contextClassLoader;
+  }
+
+  private <T> T newInstance(String className, Class<T> type) {
+    try {
+      return type.cast(Class.forName(className, true, getClassLoader()).newInstance());
+    } catch (Exception e) {
+      throw new MigrationException("Could not instantiate script class: " + className, e);
+    }
+  }
+
   // Well, no wonder changing types didn't give an issue - this parameter is never used!
   private <T> ResolverUtil<T> getResolver(Class<T> type) {
     ResolverUtil<T> resolver = new ResolverUtil<T>();
@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A {@link MigrationScript} that works on the JDBC connection directly, e.g. to load data with batched
+ * <code>PreparedStatement</code>s.
+ * <p>
+ * The migration is executed in place of its SQL script by the up, down, pending and version operations, so it is
+ * recorded in the changelog, surrounded by the hooks and followed by the onabort script on failure like any other
+ * migration. The connection is committed after the method returns unless it is in auto-commit mode, and rolled back
+ * if the method throws. The connection must not be closed.
+ * <p>
+ * {@link #getUpScript()} and {@link #getDownScript()} are only used to show the migration (e.g. by the
+ * <code>script</code> command) and may return a comment describing what the methods do.
+ */
+public interface JdbcMigrationScript extends MigrationScript {
+  void up(Connection connection) throws SQLException;
+
+  void down(Connection connection) throws SQLException;
+}
@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.migration;
 
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent.Type;
 import org.apache.ibatis.migration.options.SelectedPaths;
 import org.apache.ibatis.migration.scripts.Jsr223Script;
 import org.apache.ibatis.migration.scripts.Script;
@@ -22,16 +24,27 @@ import org.apache.ibatis.migration.scripts.Script;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * The result of <code>migration_script</code> is computed once and reused until {@link #invalidate()} is called. If
+ * the <code>cache_scripts</code> variable is <code>true</code>, the outputs of <code>change_script</code> and
+ * <code>rollback_script</code> are also cached by change ID.
+ *
  * @author cbongiorno on 1/3/18.
  */
 public class Jsr233MigrationLoader implements MigrationLoader {
@@ -45,6 +58,10 @@ public class Jsr233MigrationLoader implements MigrationLoader {
   private final Environment env;
   private final SelectedPaths paths;
   private final Map<String, Object> defParams = new HashMap<String, Object>();
+  private final boolean cacheScripts;
+  private final ConcurrentMap<BigDecimal, String> changeScriptCache = new ConcurrentHashMap<BigDecimal, String>();
+  private final ConcurrentMap<BigDecimal, String> rollbackScriptCache = new ConcurrentHashMap<BigDecimal, String>();
+  private volatile List<Change> migrations;
 
   public Jsr233MigrationLoader(SelectedPaths paths, Environment env) {
     this.env = env;
@@ -59,7 +76,7 @@ public class Jsr233MigrationLoader implements MigrationLoader {
     this.bsScript = toScript("bootstrap_script");
     this.rbScript = toScript("rollback_script");
     this.abortScript = toScript("abort_script");
-
+    this.cacheScripts = Boolean.valueOf(env.getVariables().getProperty("cache_scripts"));
   }
 
   <T> Script<T> toScript(String kind) {
@@ -95,18 +112,82 @@ public class Jsr233MigrationLoader implements MigrationLoader {
 
   @Override
   public List<Change> getMigrations() {
-    return migrationScript != null ? migrationScript.execute(defParams) : original.getMigrations();
+    if (migrationScript == null) {
+      return original.getMigrations();
+    }
+    List<Change> result = migrations;
+    if (result == null) {
+      FlightRecorderEvent event = FlightRecorderEvent.begin(Type.LOADER_SCAN)
+          .fileName(env.getVariables().getProperty("migration_script"));
+      try {
+        result = migrationScript.execute(defParams);
+      } finally {
+        event.detail(result == null ? null : result.size() + " migrations").commit();
+      }
+      migrations = result;
+    }
+    // callers sort the list and set the applied timestamp of the changes
+    List<Change> copy = new ArrayList<Change>(result.size());
+    for (Change change : result) {
+      copy.add(change.clone());
+    }
+    return copy;
   }
 
   @Override
   public Reader getScriptReader(Change change) {
-    return chScript != null ? chScript.execute(getChangeMap(change)) : original.getScriptReader(change);
-
+    if (chScript == null) {
+      return original.getScriptReader(change);
+    }
+    return cacheScripts ? getCachedReader(chScript, changeScriptCache, change) : chScript.execute(getChangeMap(change));
   }
 
   @Override
   public Reader getRollbackReader(Change change) {
-    return rbScript != null ? rbScript.execute(getChangeMap(change)) : original.getRollbackReader(change);
+    if (rbScript == null) {
+      return original.getRollbackReader(change);
+    }
+    return cacheScripts ? getCachedReader(rbScript, rollbackScriptCache, change)
+        : rbScript.execute(getChangeMap(change));
+  }
+
+  private Reader getCachedReader(Script<Reader> script, ConcurrentMap<BigDecimal, String> cache, Change change) {
+    String content = cache.get(change.getId());
+    if (content == null) {
+      Reader reader = script.execute(getChangeMap(change));
+      if (reader == null) {
+        return null;
+      }
+      content = readFully(reader);
+      cache.put(change.getId(), content);
+    }
+    return new StringReader(content);
+  }
+
+  private String readFully(Reader reader) {
+    StringWriter writer = new StringWriter();
+    char[] buffer = new char[8192];
+    try {
+      try {
+        for (int read = reader.read(buffer); read > -1; read = reader.read(buffer)) {
+          writer.write(buffer, 0, read);
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      throw new MigrationException("Error reading JSR-223 script output.  Cause: " + e, e);
+    }
+    return writer.toString();
+  }
+
+  /**
+   * Discards the memoized migrations and script outputs, so that the scripts are executed again on next use.
+   */
+  public void invalidate() {
+    migrations = null;
+    changeScriptCache.clear();
+    rollbackScriptCache.clear();
   }
 
   @Override
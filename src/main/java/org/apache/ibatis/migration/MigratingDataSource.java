@@ -0,0 +1,204 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.migration.lock.MigrationLock;
+import org.apache.ibatis.migration.operations.UpOperation;
+import org.apache.ibatis.migration.options.DatabaseOperationOption;
+
+/**
+ * A {@link DataSource} that applies the pending migrations in a background thread as soon as it is created, and
+ * holds back the connections requested by the application until the migrations are applied.
+ * <p>
+ * This lets an application do the rest of its initialization while the schema is migrated:
+ *
+ * <pre>
+ * DataSource dataSource = new MigratingDataSource(pooledDataSource, new JavaMigrationLoader("mycompany.migration"));
+ * </pre>
+ *
+ * If the migrations fail, {@link #getConnection()} throws an exception or returns connections anyway depending on
+ * the {@link FailurePolicy}. If they take longer than the {@link #setTimeout(long) timeout}, it throws a
+ * {@link SQLTimeoutException} (and can be called again later).
+ */
+public class MigratingDataSource implements DataSource {
+
+  public enum FailurePolicy {
+    /**
+     * {@link DataSource#getConnection()} throws an exception caused by the migration failure.
+     */
+    FAIL,
+    /**
+     * The migration failure is ignored and connections are returned.
+     */
+    PROCEED
+  }
+
+  private final DataSource dataSource;
+
+  private final CountDownLatch migrated = new CountDownLatch(1);
+
+  private volatile Throwable failure;
+
+  private volatile long timeout;
+
+  private volatile FailurePolicy failurePolicy = FailurePolicy.FAIL;
+
+  public MigratingDataSource(DataSource dataSource, MigrationLoader migrationLoader) {
+    this(dataSource, migrationLoader, null, null);
+  }
+
+  /**
+   * @param lock
+   *          when not <code>null</code>, the migrations are applied while holding this lock (see
+   *          {@link UpOperation#operate(ConnectionProvider, MigrationLoader, DatabaseOperationOption,
+   *          java.io.PrintStream, org.apache.ibatis.migration.hook.MigrationHook, MigrationLock)}).
+   */
+  public MigratingDataSource(DataSource dataSource, final MigrationLoader migrationLoader,
+      final DatabaseOperationOption option, final MigrationLock lock) {
+    super();
+    this.dataSource = dataSource;
+    final ConnectionProvider connectionProvider = new DataSourceConnectionProvider(dataSource);
+    Thread thread = new Thread("mybatis-migrations") {
+      @Override
+      public void run() {
+        try {
+          if (lock != null) {
+            new UpOperation().operate(connectionProvider, migrationLoader, option, null, null, lock);
+          } else {
+            Connection connection = connectionProvider.getConnection();
+            try {
+              new UpOperation().operate(connection, migrationLoader, option, null);
+            } finally {
+              connection.close();
+            }
+          }
+        } catch (Throwable t) {
+          failure = t;
+        } finally {
+          migrated.countDown();
+        }
+      }
+    };
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * @param timeout
+   *          maximum number of milliseconds {@link #getConnection()} waits for the migrations, <code>0</code> (the
+   *          default) to wait as long as necessary.
+   */
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  public void setFailurePolicy(FailurePolicy failurePolicy) {
+    this.failurePolicy = failurePolicy;
+  }
+
+  /**
+   * @return <code>true</code> once the migrations are applied (or failed).
+   */
+  public boolean isMigrated() {
+    return migrated.getCount() == 0;
+  }
+
+  /**
+   * @return The exception that made the migrations fail, or <code>null</code>.
+   */
+  public Throwable getFailure() {
+    return failure;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    awaitMigration();
+    return dataSource.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    awaitMigration();
+    return dataSource.getConnection(username, password);
+  }
+
+  private void awaitMigration() throws SQLException {
+    if (migrated.getCount() > 0) {
+      try {
+        if (timeout > 0) {
+          if (!migrated.await(timeout, TimeUnit.MILLISECONDS)) {
+            throw new SQLTimeoutException("Timed out after " + timeout + " ms waiting for the migrations.");
+          }
+        } else {
+          migrated.await();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted while waiting for the migrations.", e);
+      }
+    }
+    if (failure != null && failurePolicy == FailurePolicy.FAIL) {
+      throw new SQLException("Migrations failed.  Cause: " + failure, failure);
+    }
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return dataSource.getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    dataSource.setLogWriter(out);
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    dataSource.setLoginTimeout(seconds);
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return dataSource.getLoginTimeout();
+  }
+
+  public Logger getParentLogger() {
+    return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    return dataSource.unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+  }
+}
@@ -0,0 +1,168 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Summarizes a set of migrations as the number of migrations, the highest ID and a hash of their IDs, descriptions
+ * and scripts.
+ * <p>
+ * The fingerprint of the migrations of a loader can be computed once (e.g. at build time, storing its
+ * {@link #toString() string form} in a resource) and compared with the fingerprint stored in the database by
+ * {@link org.apache.ibatis.migration.operations.FingerprintOperation} to know whether the schema is current without
+ * reading the changelog.
+ */
+public final class MigrationFingerprint {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final int count;
+  private final BigDecimal maxId;
+  private final String hash;
+
+  public MigrationFingerprint(int count, BigDecimal maxId, String hash) {
+    this.count = count;
+    this.maxId = maxId;
+    this.hash = hash;
+  }
+
+  /**
+   * Computes the fingerprint of the migrations of the loader. This reads every migration script.
+   */
+  public static MigrationFingerprint compute(MigrationLoader migrationLoader) {
+    List<Change> migrations = migrationLoader.getMigrations();
+    Collections.sort(migrations);
+    MessageDigest sha256;
+    try {
+      sha256 = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new MigrationException(e);
+    }
+    char[] buffer = new char[8192];
+    for (Change change : migrations) {
+      sha256.update((change.getId() + " " + change.getDescription() + "\n").getBytes(UTF_8));
+      Reader reader = migrationLoader.getScriptReader(change);
+      try {
+        try {
+          for (int read = reader.read(buffer); read > -1; read = reader.read(buffer)) {
+            sha256.update(new String(buffer, 0, read).getBytes(UTF_8));
+          }
+        } finally {
+          reader.close();
+        }
+      } catch (IOException e) {
+        throw new MigrationException("Error reading migration " + change.getFilename() + ".  Cause: " + e, e);
+      }
+    }
+    Formatter formatter = new Formatter();
+    for (byte b : sha256.digest()) {
+      formatter.format("%02x", b);
+    }
+    BigDecimal maxId = migrations.isEmpty() ? null : migrations.get(migrations.size() - 1).getId();
+    return new MigrationFingerprint(migrations.size(), maxId, formatter.toString());
+  }
+
+  /**
+   * Parses the {@link #toString() string form} of a fingerprint.
+   */
+  public static MigrationFingerprint valueOf(String fingerprint) {
+    String[] parts = fingerprint.trim().split(":", -1);
+    if (parts.length != 3) {
+      throw new MigrationException("Invalid migration fingerprint: " + fingerprint);
+    }
+    try {
+      return new MigrationFingerprint(Integer.parseInt(parts[0]),
+          parts[1].length() == 0 ? null : new BigDecimal(parts[1]), parts[2]);
+    } catch (NumberFormatException e) {
+      throw new MigrationException("Invalid migration fingerprint: " + fingerprint, e);
+    }
+  }
+
+  /**
+   * Reads a fingerprint stored in a class path resource, typically generated at build time.
+   *
+   * @return the fingerprint, or <code>null</code> if the resource does not exist.
+   */
+  public static MigrationFingerprint fromResource(ClassLoader classLoader, String resource) {
+    InputStream in = classLoader.getResourceAsStream(resource);
+    if (in == null) {
+      return null;
+    }
+    try {
+      try {
+        StringBuilder builder = new StringBuilder();
+        Reader reader = new InputStreamReader(in, UTF_8);
+        char[] buffer = new char[256];
+        for (int read = reader.read(buffer); read > -1; read = reader.read(buffer)) {
+          builder.append(buffer, 0, read);
+        }
+        return valueOf(builder.toString());
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      throw new MigrationException("Error reading migration fingerprint " + resource + ".  Cause: " + e, e);
+    }
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public BigDecimal getMaxId() {
+    return maxId;
+  }
+
+  public String getHash() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    MigrationFingerprint other = (MigrationFingerprint) o;
+    return count == other.count && hash.equals(other.hash)
+        && (maxId == null ? other.maxId == null : other.maxId != null && maxId.compareTo(other.maxId) == 0);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash.hashCode();
+  }
+
+  /**
+   * @return <code>count:maxId:hash</code>
+   */
+  @Override
+  public String toString() {
+    return count + ":" + (maxId == null ? "" : maxId.toPlainString()) + ":" + hash;
+  }
+}
@@ -0,0 +1,47 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the ID and description of a {@link MigrationScript} so that they can be recorded in the migration index at
+ * compile time.
+ * <p>
+ * In a package declared complete in the index, {@link JavaMigrationLoader} takes the ID and description of an
+ * annotated script from the index and instantiates the script only when its SQL is read. The values must match
+ * {@link MigrationScript#getId()} and {@link MigrationScript#getDescription()}.
+ *
+ * @see org.apache.ibatis.migration.index.MigrationIndexProcessor
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface MigrationInfo {
+  /**
+   * @return ID of the migration script.
+   */
+  String id();
+
+  /**
+   * @return Short description of the migration script.
+   */
+  String description() default "";
+}
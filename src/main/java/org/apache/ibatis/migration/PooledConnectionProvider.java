@@ -0,0 +1,175 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+
+import org.apache.ibatis.datasource.pooled.PoolState;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+
+/**
+ * A {@link ConnectionProvider} keeping a small pool of open connections, so that operations, commands and hooks
+ * executed in the same process reuse warm connections instead of connecting to the database each time.
+ * <p>
+ * Connections are validated when they are borrowed from the pool (using the validation query if one is set or
+ * {@link Connection#isValid(int)} otherwise) and replaced if the database dropped them. When all the connections are
+ * in use, {@link #getConnection()} waits for one to be returned and fails after the wait timeout. Call
+ * {@link #close()} to close the pooled connections once the provider is no longer needed.
+ */
+public class PooledConnectionProvider implements ConnectionProvider {
+
+  private static final int DEFAULT_MAXIMUM_ACTIVE_CONNECTIONS = 4;
+  private static final int DEFAULT_MAXIMUM_IDLE_CONNECTIONS = 2;
+  private static final int DEFAULT_VALIDATION_TIMEOUT = 5;
+  private static final int DEFAULT_WAIT_TIMEOUT = 60;
+  private static final long WAIT_INTERVAL = 100L;
+
+  private final PooledDataSource dataSource;
+
+  private String validationQuery;
+
+  private int validationTimeout = DEFAULT_VALIDATION_TIMEOUT;
+
+  private int maximumIdleConnections = DEFAULT_MAXIMUM_IDLE_CONNECTIONS;
+
+  private int waitTimeout = DEFAULT_WAIT_TIMEOUT;
+
+  public PooledConnectionProvider(String driver, String url, String username, String password) {
+    this(null, driver, url, username, password, null);
+  }
+
+  public PooledConnectionProvider(ClassLoader driverClassLoader, String driver, String url, String username,
+      String password, Properties driverProperties) {
+    super();
+    dataSource = new PooledDataSource(driverClassLoader, driver, url, username, password);
+    if (driverProperties != null) {
+      dataSource.setDriverProperties(driverProperties);
+    }
+    dataSource.setPoolMaximumActiveConnections(DEFAULT_MAXIMUM_ACTIVE_CONNECTIONS);
+    dataSource.setPoolMaximumIdleConnections(DEFAULT_MAXIMUM_IDLE_CONNECTIONS);
+    // Migrations can run for a long time, never reclaim a connection that is still in use. As the pool would then
+    // wait forever for a connection, getConnection() gives up after the wait timeout instead.
+    dataSource.setPoolMaximumCheckoutTime(Integer.MAX_VALUE);
+  }
+
+  public void setMaximumActiveConnections(int maximumActiveConnections) {
+    dataSource.setPoolMaximumActiveConnections(maximumActiveConnections);
+  }
+
+  public void setMaximumIdleConnections(int maximumIdleConnections) {
+    this.maximumIdleConnections = maximumIdleConnections;
+    dataSource.setPoolMaximumIdleConnections(maximumIdleConnections);
+  }
+
+  /**
+   * @param validationQuery
+   *          a query executed on each connection before it is borrowed from the pool (e.g. <code>SELECT 1</code>),
+   *          or <code>null</code> to rely on {@link Connection#isValid(int)}.
+   */
+  public void setValidationQuery(String validationQuery) {
+    this.validationQuery = validationQuery;
+    dataSource.setPoolPingEnabled(validationQuery != null);
+    dataSource.setPoolPingQuery(validationQuery);
+    dataSource.setPoolPingConnectionsNotUsedFor(0);
+  }
+
+  /**
+   * @param validationTimeout
+   *          the number of seconds to wait for {@link Connection#isValid(int)}.
+   */
+  public void setValidationTimeout(int validationTimeout) {
+    this.validationTimeout = validationTimeout;
+  }
+
+  /**
+   * @param waitTimeout
+   *          the number of seconds {@link #getConnection()} waits for a connection when they are all in use.
+   */
+  public void setWaitTimeout(int waitTimeout) {
+    this.waitTimeout = waitTimeout;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    Connection connection = borrow();
+    // The pool executes the validation query itself, otherwise ask the driver.
+    // Once all the idle connections are discarded, the pool opens a new one.
+    for (int i = 0; validationQuery == null && i <= maximumIdleConnections && !isValid(connection); i++) {
+      discard(connection);
+      connection = borrow();
+    }
+    return connection;
+  }
+
+  /**
+   * Closes the pooled connections. Connections borrowed afterwards are opened again.
+   */
+  public void close() {
+    dataSource.forceCloseAll();
+  }
+
+  private Connection borrow() throws SQLException {
+    PoolState state = dataSource.getPoolState();
+    long deadline = System.currentTimeMillis() + waitTimeout * 1000L;
+    synchronized (state) {
+      while (state.getActiveConnectionCount() >= dataSource.getPoolMaximumActiveConnections()) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          throw new SQLException("No connection was returned to the pool within " + waitTimeout + " seconds, all "
+              + dataSource.getPoolMaximumActiveConnections() + " connections are in use.");
+        }
+        try {
+          // The pool does not notify the waiting threads when it closes a returned connection instead of keeping it.
+          state.wait(Math.min(remaining, WAIT_INTERVAL));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new SQLException("Interrupted while waiting for a connection.", e);
+        }
+      }
+      return dataSource.getConnection();
+    }
+  }
+
+  private boolean isValid(Connection connection) {
+    try {
+      return connection.isValid(validationTimeout);
+    } catch (SQLFeatureNotSupportedException e) {
+      return true;
+    } catch (SQLException e) {
+      return false;
+    } catch (AbstractMethodError e) {
+      // JDBC 3 driver
+      return true;
+    }
+  }
+
+  private void discard(Connection connection) {
+    try {
+      PooledDataSource.unwrapConnection(connection).close();
+    } catch (SQLException e) {
+      // ignore
+    }
+    try {
+      // the pool notices the real connection is closed and drops it
+      connection.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+}
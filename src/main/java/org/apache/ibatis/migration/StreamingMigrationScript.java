@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration;
+
+import java.io.Reader;
+
+/**
+ * A {@link MigrationScript} whose statements are read as a stream instead of being built as one string.
+ * <p>
+ * {@link JavaMigrationLoader} returns the readers of this interface rather than wrapping {@link #getUpScript()} and
+ * {@link #getDownScript()}, which are not called. Statements generated from an {@link Iterable} can be streamed with
+ * {@link org.apache.ibatis.migration.io.StatementReader}.
+ */
+public interface StreamingMigrationScript extends MigrationScript {
+  /**
+   * @return Reader of the SQL statement(s) executed at runtime schema upgrade. It is closed by the caller.
+   */
+  Reader getUpScriptReader();
+
+  /**
+   * @return Reader of the SQL statement(s) that undo the migration. It is closed by the caller.
+   */
+  Reader getDownScriptReader();
+}
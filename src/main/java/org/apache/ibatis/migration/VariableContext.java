@@ -0,0 +1,82 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The variables available to templates, scripts and hooks: the properties of the environment file along with the
+ * system properties and environment variables, prefixed with <code>sys.</code> and <code>env.</code> respectively.
+ * <p>
+ * The environment variables cannot change while the JVM is running, so they are prefixed once and shared by all the
+ * contexts. System properties are read each time the variables are requested, so a command should request them once
+ * and reuse the result instead of calling {@link #toProperties()} repeatedly.
+ */
+public final class VariableContext {
+
+  private static final String SYSTEM_PREFIX = "sys.";
+  private static final String ENVIRONMENT_PREFIX = "env.";
+
+  private static volatile Map<String, String> environmentVariables;
+
+  private final Properties properties;
+
+  public VariableContext(Properties properties) {
+    super();
+    this.properties = properties;
+  }
+
+  /**
+   * @return A new {@link Properties} holding all the variables, which the caller is free to modify. System properties
+   *         and environment variables take precedence over the entries of the environment file with the same key.
+   */
+  public Properties toProperties() {
+    Properties variables = new Properties();
+    variables.putAll(properties);
+    for (Map.Entry<Object, Object> sys : System.getProperties().entrySet()) {
+      if (sys.getValue() != null) {
+        variables.put(SYSTEM_PREFIX + sys.getKey(), sys.getValue());
+      }
+    }
+    variables.putAll(getEnvironmentVariables());
+    return variables;
+  }
+
+  /**
+   * @return A new {@link Properties} holding only the entries of the environment file.
+   */
+  public Properties toFileProperties() {
+    Properties variables = new Properties();
+    variables.putAll(properties);
+    return variables;
+  }
+
+  private static Map<String, String> getEnvironmentVariables() {
+    Map<String, String> variables = environmentVariables;
+    if (variables == null) {
+      variables = new HashMap<String, String>();
+      for (Map.Entry<String, String> env : System.getenv().entrySet()) {
+        if (env.getValue() != null) {
+          variables.put(ENVIRONMENT_PREFIX + env.getKey(), env.getValue());
+        }
+      }
+      environmentVariables = variables;
+    }
+    return variables;
+  }
+}
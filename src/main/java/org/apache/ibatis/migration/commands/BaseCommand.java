@@ -19,7 +19,6 @@ import org.apache.ibatis.migration.Migrator;
 import static org.apache.ibatis.migration.utils.Util.file;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -29,19 +28,15 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.Reader;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.sql.Connection;
 import java.text.DecimalFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.TimeZone;
@@ -49,6 +44,7 @@ import java.util.TimeZone;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.ConnectionProvider;
 import org.apache.ibatis.migration.Environment;
 import org.apache.ibatis.migration.FileMigrationLoader;
 import org.apache.ibatis.migration.FileMigrationLoaderFactory;
@@ -56,24 +52,33 @@ import org.apache.ibatis.migration.MigrationException;
 import org.apache.ibatis.migration.MigrationLoader;
 import org.apache.ibatis.migration.hook.BasicHook;
 import org.apache.ibatis.migration.hook.Hook;
+import org.apache.ibatis.migration.hook.scripts.AsyncHookScript;
 import org.apache.ibatis.migration.hook.scripts.FileHookScriptFactory;
 import org.apache.ibatis.migration.hook.FileMigrationHook;
+import org.apache.ibatis.migration.hook.scripts.HookScript;
 import org.apache.ibatis.migration.hook.scripts.HookScriptFactory;
+import org.apache.ibatis.migration.hook.scripts.JavaHookScript;
+import org.apache.ibatis.migration.hook.scripts.JavaHookScript.Phase;
 import org.apache.ibatis.migration.hook.MigrationHook;
 import org.apache.ibatis.migration.hook.NoOpHook;
 import org.apache.ibatis.migration.options.DatabaseOperationOption;
 import org.apache.ibatis.migration.options.Options;
 import org.apache.ibatis.migration.options.SelectedOptions;
 import org.apache.ibatis.migration.options.SelectedPaths;
+import org.apache.ibatis.migration.timing.MigrationTimings;
 import org.apache.ibatis.parsing.PropertyParser;
 
 public abstract class BaseCommand implements Command {
   private static final String DATE_FORMAT = "yyyyMMddHHmmss";
 
+  private static volatile ResourceCache resourceCache;
+
   private ClassLoader driverClassLoader;
 
   private Environment environment;
 
+  private Properties variables;
+
   protected PrintStream printStream = System.out;
 
   protected final SelectedOptions options;
@@ -93,6 +98,23 @@ public abstract class BaseCommand implements Command {
     }
   }
 
+  /**
+   * Installs a cache shared by all the commands subsequently executed in this JVM.
+   *
+   * @param cache
+   *          the cache to use, or <code>null</code> to create the resources for each command.
+   */
+  public static void setResourceCache(ResourceCache cache) {
+    resourceCache = cache;
+  }
+
+  /**
+   * @return The cache shared by the commands executed in this JVM, or <code>null</code> if none is installed.
+   */
+  public static ResourceCache getResourceCache() {
+    return resourceCache;
+  }
+
   public void setDriverClassLoader(ClassLoader aDriverClassLoader) {
     driverClassLoader = aDriverClassLoader;
   }
@@ -106,21 +128,25 @@ public abstract class BaseCommand implements Command {
 
   /**
    * Use this to define template variables
-   * @return combined properties of system/environment with 'sys.' and 'env.' appended respectively
+   * @return combined properties of system/environment with 'sys.' and 'env.' appended respectively, built once per
+   *         command
    */
   protected Properties getVariables() {
-    Properties variables = environmentProperties();
-    for (Entry<Object, Object> sys : System.getProperties().entrySet()) {
-      if (sys.getValue() != null)
-        variables.put("sys." + sys.getKey(), sys.getValue());
-    }
-    for (Entry<String, String> env : System.getenv().entrySet()) {
-      if (env.getValue() != null)
-        variables.put("env." + env.getKey(), env.getValue());
+    if (variables == null) {
+      variables = environment().getVariableContext().toProperties();
     }
     return variables;
   }
 
+  /**
+   * @return the properties of the environment file
+   * @deprecated use {@link #getVariables()} or {@link Environment#getVariableContext()} instead
+   */
+  @Deprecated
+  protected Properties environmentProperties() {
+    return environment().getVariableContext().toFileProperties();
+  }
+
   protected boolean paramsEmpty(String... params) {
     return params == null || params.length < 1 || params[0] == null || params[0].length() < 1;
   }
@@ -244,22 +270,13 @@ public abstract class BaseCommand implements Command {
     return envFile;
   }
 
-  protected Properties environmentProperties() {
-    File envFile = existingEnvironmentFile();
-    Properties props = new Properties();
-    try {
-      props.load(new FileInputStream(envFile));
-    } catch (IOException e) {
-      throw new MigrationException("Failed to load environment file " + envFile.getAbsolutePath(), e);
-    }
-    return props;
-  }
-
   protected Environment environment() {
     if (environment != null) {
       return environment;
     }
-    environment = new Environment(existingEnvironmentFile());
+    ResourceCache cache = resourceCache;
+    environment = cache == null ? new Environment(existingEnvironmentFile())
+        : cache.getEnvironment(existingEnvironmentFile());
     return environment;
   }
 
@@ -278,6 +295,10 @@ public abstract class BaseCommand implements Command {
 
   protected Connection getConnection() {
     try {
+      ResourceCache cache = resourceCache;
+      if (cache != null) {
+        return cache.getConnectionProvider(getDriverClassLoader(), environment()).getConnection();
+      }
       UnpooledDataSource dataSource = new UnpooledDataSource(getDriverClassLoader(), environment().getDriver(),
           environment().getUrl(), environment().getUsername(), environment().getPassword());
       dataSource.setDriverProperties(environment.getVariables());
@@ -292,21 +313,7 @@ public abstract class BaseCommand implements Command {
     if (driverClassLoader != null) {
       return driverClassLoader;
     } else if (localDriverPath.exists()) {
-      try {
-        List<URL> urlList = new ArrayList<URL>();
-        for (File file : localDriverPath.listFiles()) {
-          String filename = file.getCanonicalPath();
-          if (!filename.startsWith("/")) {
-            filename = "/" + filename;
-          }
-          urlList.add(new URL("jar:file:" + filename + "!/"));
-          urlList.add(new URL("file:" + filename));
-        }
-        URL[] urls = urlList.toArray(new URL[urlList.size()]);
-        return new URLClassLoader(urls);
-      } catch (Exception e) {
-        throw new MigrationException("Error creating a driver ClassLoader. Cause: " + e, e);
-      }
+      return DriverClassLoaders.get(localDriverPath);
     }
     return null;
   }
@@ -329,8 +336,22 @@ public abstract class BaseCommand implements Command {
       }
       migrationLoader = factory.create(paths, env);
     }
-    return migrationLoader != null ? migrationLoader
-        : new FileMigrationLoader(paths.getScriptPath(), env.getScriptCharset(), env.getVariables());
+    if (migrationLoader != null) {
+      return migrationLoader;
+    }
+    migrationLoader = new FileMigrationLoader(paths.getScriptPath(), env.getScriptCharset(), env.getVariables());
+    ResourceCache cache = resourceCache;
+    return cache == null ? migrationLoader : cache.getMigrationLoader(paths.getScriptPath(), migrationLoader);
+  }
+
+  protected MigrationTimings getMigrationTimings() {
+    // The default directory is only used once it exists, so that projects not using timings are left untouched.
+    MigrationTimings timings = new MigrationTimings(paths.getTimingPath(), options.getEnvironment(),
+        paths.getScriptPath(), paths.isTimingPathSet());
+    for (String warning : timings.getWarnings()) {
+      printStream.println("WARNING: " + warning);
+    }
+    return timings;
   }
 
   protected Hook createNewMigrationHook() {
@@ -366,13 +387,32 @@ public abstract class BaseCommand implements Command {
 
   protected MigrationHook createFileMigrationHook(String before, String beforeEach, String afterEach, String after) {
     HookScriptFactory factory = new FileHookScriptFactory(options.getPaths(), environment(), printStream);
-    return new FileMigrationHook(factory.create(before), factory.create(beforeEach), factory.create(afterEach),
-        factory.create(after));
+    return new FileMigrationHook(createHookScript(factory, before, Phase.BEFORE),
+        createHookScript(factory, beforeEach, Phase.BEFORE_EACH),
+        createHookScript(factory, afterEach, Phase.AFTER_EACH), createHookScript(factory, after, Phase.AFTER));
   }
 
   protected BasicHook createBasicHook(String before, String after) {
     HookScriptFactory factory = new FileHookScriptFactory(options.getPaths(), environment(), printStream);
-    return new BasicHook(factory.create(before), factory.create(after));
+    return new BasicHook(createHookScript(factory, before, Phase.BEFORE),
+        createHookScript(factory, after, Phase.AFTER));
+  }
+
+  private HookScript createHookScript(HookScriptFactory factory, String hookSetting, Phase phase) {
+    if (AsyncHookScript.isAsync(hookSetting)) {
+      if (phase != Phase.BEFORE_EACH && phase != Phase.AFTER_EACH) {
+        throw new MigrationException("Only each hooks can be asynchronous: " + hookSetting);
+      }
+      HookScript delegate = createHookScript(factory, hookSetting.substring(AsyncHookScript.PREFIX.length()), phase);
+      return new AsyncHookScript(delegate, new ConnectionProvider() {
+        @Override
+        public Connection getConnection() {
+          return BaseCommand.this.getConnection();
+        }
+      }, getDatabaseOperationOption(), printStream);
+    }
+    return JavaHookScript.isJavaHook(hookSetting) ? JavaHookScript.create(hookSetting, phase)
+        : factory.create(hookSetting);
   }
 
   protected DatabaseOperationOption getDatabaseOperationOption() {
@@ -0,0 +1,213 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.commands;
+
+import static org.apache.ibatis.migration.utils.Util.formatDuration;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.options.SelectedOptions;
+
+/**
+ * Runs a sequence of commands (e.g. <code>bootstrap; up; status</code>) in this JVM.
+ * <p>
+ * The commands are separated by semicolons or line breaks and are read either from the parameters or from the file
+ * they name. All of them share the same parsed environment, list of migrations and pooled connection, and the
+ * sequence stops at the first command that fails.
+ */
+public final class BatchCommand extends BaseCommand {
+  public BatchCommand(SelectedOptions options) {
+    super(options);
+  }
+
+  @Override
+  public void execute(String... params) {
+    if (paramsEmpty(params)) {
+      throw new MigrationException("No commands specified for batch.");
+    }
+    List<List<String>> steps = parseSteps(readCommands(params));
+    if (steps.isEmpty()) {
+      throw new MigrationException("No commands specified for batch.");
+    }
+    List<Commands> commands = new ArrayList<Commands>();
+    for (List<String> step : steps) {
+      Commands command = Commands.lookup(step.get(0).toUpperCase());
+      if (command == Commands.BATCH || command == Commands.DAEMON) {
+        throw new MigrationException("Command '" + step.get(0) + "' cannot be executed in a batch.");
+      }
+      commands.add(command);
+    }
+
+    boolean ownCache = getResourceCache() == null;
+    if (ownCache) {
+      setResourceCache(new ResourceCache());
+    }
+    String[] results = new String[steps.size()];
+    long[] times = new long[steps.size()];
+    MigrationException failure = null;
+    try {
+      for (int i = 0; i < steps.size() && failure == null; i++) {
+        List<String> step = steps.get(i);
+        printStream.println("-- " + (i + 1) + "/" + steps.size() + ": " + join(step));
+        long start = System.currentTimeMillis();
+        try {
+          Command command = Commands.resolveCommand(commands.get(i).name(), stepOptions(step));
+          if (command instanceof BaseCommand && !options.isQuiet()) {
+            ((BaseCommand) command).setPrintStream(printStream);
+          }
+          command.execute(step.subList(1, step.size()).toArray(new String[step.size() - 1]));
+          results[i] = "SUCCESS";
+        } catch (MigrationException e) {
+          failure = e;
+          results[i] = "FAILURE";
+        } catch (RuntimeException e) {
+          failure = new MigrationException("Error executing batch command '" + join(step) + "'.  Cause: " + e, e);
+          results[i] = "FAILURE";
+        }
+        times[i] = System.currentTimeMillis() - start;
+      }
+    } finally {
+      if (ownCache) {
+        getResourceCache().close();
+        setResourceCache(null);
+      }
+    }
+
+    printStream.println();
+    printStream.println("-- Batch summary");
+    for (int i = 0; i < steps.size(); i++) {
+      printStream.printf("%-30s %-8s %s%n", join(steps.get(i)), results[i] == null ? "SKIPPED" : results[i],
+          results[i] == null ? "" : formatDuration(times[i]));
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private String readCommands(String[] params) {
+    String commands = join(params);
+    File file = new File(commands);
+    if (!file.isAbsolute() && !file.exists()) {
+      file = new File(paths.getBasePath(), commands);
+    }
+    if (!file.isFile()) {
+      return commands;
+    }
+    try {
+      InputStream in = new FileInputStream(file);
+      try {
+        Scanner scanner = new Scanner(in, "UTF-8").useDelimiter("\\A");
+        return scanner.hasNext() ? scanner.next() : "";
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      throw new MigrationException("Error reading batch file " + file.getAbsolutePath() + ".  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * Splits the commands on semicolons and line breaks, and each command on whitespace. Double quotes group words
+   * into a single parameter (e.g. <code>new "create blog table"</code>) and lines starting with <code>#</code> are
+   * ignored.
+   */
+  static List<List<String>> parseSteps(String commands) {
+    List<List<String>> steps = new ArrayList<List<String>>();
+    for (String line : commands.split("\r?\n")) {
+      if (line.trim().startsWith("#")) {
+        continue;
+      }
+      List<String> step = new ArrayList<String>();
+      StringBuilder token = null;
+      boolean quoted = false;
+      for (int i = 0; i <= line.length(); i++) {
+        char c = i < line.length() ? line.charAt(i) : ';';
+        if (c == '"') {
+          quoted = !quoted;
+          if (token == null) {
+            token = new StringBuilder();
+          }
+        } else if (quoted || (c != ';' && !Character.isWhitespace(c))) {
+          if (token == null) {
+            token = new StringBuilder();
+          }
+          token.append(c);
+        } else {
+          if (token != null) {
+            step.add(token.toString());
+            token = null;
+          }
+          if (c == ';' && !step.isEmpty()) {
+            steps.add(step);
+            step = new ArrayList<String>();
+          }
+        }
+      }
+      if (quoted) {
+        throw new MigrationException("Unbalanced quotes in batch command: " + line);
+      }
+    }
+    return steps;
+  }
+
+  private SelectedOptions stepOptions(List<String> step) {
+    SelectedOptions stepOptions = new SelectedOptions();
+    stepOptions.getPaths().setBasePath(paths.getBasePath());
+    stepOptions.getPaths().setEnvPath(paths.getEnvPath());
+    stepOptions.getPaths().setScriptPath(paths.getScriptPath());
+    stepOptions.getPaths().setDriverPath(paths.getDriverPath());
+    stepOptions.getPaths().setHookPath(paths.getHookPath());
+    if (paths.isTimingPathSet()) {
+      // the default timing path would be taken as set by the user and create the directory
+      stepOptions.getPaths().setTimingPath(paths.getTimingPath());
+    }
+    stepOptions.setEnvironment(options.getEnvironment());
+    stepOptions.setTemplate(options.getTemplate());
+    stepOptions.setIdPattern(options.getIdPattern());
+    stepOptions.setForce(options.isForce());
+    stepOptions.setTrace(options.isTrace());
+    stepOptions.setQuiet(options.isQuiet());
+    stepOptions.setColor(options.hasColor());
+    stepOptions.setKey(options.getKey());
+    stepOptions.setCommand(step.get(0));
+    for (String param : step.subList(1, step.size())) {
+      stepOptions.addParam(param);
+    }
+    return stepOptions;
+  }
+
+  private static String join(List<String> words) {
+    return join(words.toArray(new String[words.size()]));
+  }
+
+  private static String join(String[] words) {
+    StringBuilder builder = new StringBuilder();
+    for (String word : words) {
+      if (builder.length() > 0) {
+        builder.append(' ');
+      }
+      builder.append(word);
+    }
+    return builder.toString();
+  }
+}
@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.migration.commands;
 
+import java.io.PrintStream;
+
 import org.apache.ibatis.migration.MigrationException;
 import org.apache.ibatis.migration.options.SelectedOptions;
 
@@ -28,22 +30,38 @@ public enum Commands {
   PENDING,
   SCRIPT,
   VERSION,
-  STATUS;
+  STATUS,
+  DAEMON,
+  BATCH;
 
   public static Command resolveCommand(String commandString, SelectedOptions selectedOptions) {
+    return resolveCommand(commandString, selectedOptions, System.out);
+  }
+
+  /**
+   * @param out
+   *          the stream commands that are not a {@link BaseCommand} write to.
+   */
+  public static Command resolveCommand(String commandString, SelectedOptions selectedOptions,
+      PrintStream out) {
+    return createCommand(lookup(commandString), selectedOptions, out);
+  }
+
+  public static Commands lookup(String commandString) {
     for (Commands command : values()) {
       if (command.name().startsWith(commandString)) {
-        return createCommand(command, selectedOptions);
+        return command;
       }
     }
 
     throw new MigrationException("Attempt to execute unknown command: " + commandString);
   }
 
-  private static Command createCommand(Commands aResolvedCommand, SelectedOptions selectedOptions) {
+  private static Command createCommand(Commands aResolvedCommand, SelectedOptions selectedOptions,
+      final PrintStream out) {
     switch (aResolvedCommand) {
       case INFO:
-        return new InfoCommand(System.out);
+        return new InfoCommand(out);
       case INIT:
         return new InitializeCommand(selectedOptions);
       case BOOTSTRAP:
@@ -62,11 +80,15 @@ public enum Commands {
         return new VersionCommand(selectedOptions);
       case STATUS:
         return new StatusCommand(selectedOptions);
+      case DAEMON:
+        return new DaemonCommand(selectedOptions);
+      case BATCH:
+        return new BatchCommand(selectedOptions);
       default:
         return new Command() {
           @Override
           public void execute(String... params) {
-            System.out.println("unknown command");
+            out.println("unknown command");
           }
         };
     }
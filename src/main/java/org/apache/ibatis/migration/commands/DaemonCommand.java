@@ -0,0 +1,39 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.commands;
+
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.daemon.MigrationDaemon;
+import org.apache.ibatis.migration.options.SelectedOptions;
+
+public final class DaemonCommand extends BaseCommand {
+  public DaemonCommand(SelectedOptions options) {
+    super(options);
+  }
+
+  @Override
+  public void execute(String... params) {
+    int port = options.getDaemonPort() == null ? MigrationDaemon.DEFAULT_PORT : options.getDaemonPort();
+    if (!paramsEmpty(params)) {
+      try {
+        port = Integer.parseInt(params[0]);
+      } catch (NumberFormatException e) {
+        throw new MigrationException("Invalid port passed to command: " + params[0]);
+      }
+    }
+    new MigrationDaemon(port, printStream).run();
+  }
+}
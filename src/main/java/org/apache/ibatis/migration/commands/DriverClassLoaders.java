@@ -0,0 +1,114 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.commands;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.migration.MigrationException;
+
+/**
+ * Class loaders for the JDBC drivers of each drivers directory, shared by all the commands executed in the JVM.
+ * <p>
+ * A class loader is replaced when the names, the last modification times or the sizes of the files of its directory
+ * change (e.g. when a driver is added, removed or overwritten). The replaced class loader is closed if the JVM
+ * supports it.
+ */
+final class DriverClassLoaders {
+
+  private static final Map<String, DriverClassLoader> classLoaders = new HashMap<String, DriverClassLoader>();
+
+  private DriverClassLoaders() {
+    super();
+  }
+
+  static synchronized ClassLoader get(File driverPath) {
+    String key = driverPath.getAbsolutePath();
+    DriverClassLoader classLoader = classLoaders.get(key);
+    String fingerprint = fingerprint(driverPath);
+    if (classLoader == null || !classLoader.fingerprint.equals(fingerprint)) {
+      if (classLoader != null) {
+        close(classLoader.classLoader);
+      }
+      classLoader = new DriverClassLoader(fingerprint, createDriverClassLoader(driverPath));
+      classLoaders.put(key, classLoader);
+    }
+    return classLoader.classLoader;
+  }
+
+  private static String fingerprint(File driverPath) {
+    File[] files = driverPath.listFiles();
+    if (files == null) {
+      return "";
+    }
+    Arrays.sort(files);
+    StringBuilder fingerprint = new StringBuilder();
+    for (File file : files) {
+      fingerprint.append(file.getName()).append('/').append(file.lastModified()).append('/').append(file.length())
+          .append('\n');
+    }
+    return fingerprint.toString();
+  }
+
+  /**
+   * Releases the jar files of a replaced class loader. URLClassLoader#close() only exists since Java 7.
+   */
+  private static void close(ClassLoader classLoader) {
+    try {
+      Method close = classLoader.getClass().getMethod("close");
+      close.invoke(classLoader);
+    } catch (NoSuchMethodException e) {
+      // Java 6
+    } catch (Exception e) {
+      // the old class loader is dropped anyway
+    }
+  }
+
+  private static ClassLoader createDriverClassLoader(File localDriverPath) {
+    try {
+      List<URL> urlList = new ArrayList<URL>();
+      for (File file : localDriverPath.listFiles()) {
+        String filename = file.getCanonicalPath();
+        if (!filename.startsWith("/")) {
+          filename = "/" + filename;
+        }
+        urlList.add(new URL("jar:file:" + filename + "!/"));
+        urlList.add(new URL("file:" + filename));
+      }
+      URL[] urls = urlList.toArray(new URL[urlList.size()]);
+      return new URLClassLoader(urls);
+    } catch (Exception e) {
+      throw new MigrationException("Error creating a driver ClassLoader. Cause: " + e, e);
+    }
+  }
+
+  private static class DriverClassLoader {
+    private final String fingerprint;
+    private final ClassLoader classLoader;
+
+    DriverClassLoader(String fingerprint, ClassLoader classLoader) {
+      this.fingerprint = fingerprint;
+      this.classLoader = classLoader;
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.commands;
+
+import java.io.File;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.Environment;
+import org.apache.ibatis.migration.MigrationLoader;
+import org.apache.ibatis.migration.PooledConnectionProvider;
+
+/**
+ * Keeps parsed environments, migration indexes and open connections alive across the commands executed in the same
+ * JVM (see {@link BaseCommand#setResourceCache(ResourceCache)}).
+ * <p>
+ * Each entry remembers the last modification time and the size of the file it was built from, or the names of the
+ * files in the directory it was built from, and is rebuilt when they change. Edits made while the JVM is running are
+ * therefore picked up by the next command even when they happen within the granularity of the file system timestamps.
+ */
+public class ResourceCache {
+
+  private final Map<String, Entry<Environment>> environments = new HashMap<String, Entry<Environment>>();
+  private final Map<String, Entry<List<Change>>> migrations = new HashMap<String, Entry<List<Change>>>();
+  private final Map<Environment, PooledConnectionProvider> connectionProviders = new HashMap<Environment,
+      PooledConnectionProvider>();
+  private final Map<Environment, ClassLoader> providerClassLoaders = new HashMap<Environment, ClassLoader>();
+
+  public synchronized Environment getEnvironment(File envFile) {
+    String key = envFile.getAbsolutePath();
+    Entry<Environment> entry = environments.get(key);
+    if (entry == null || entry.isStale(envFile)) {
+      if (entry != null) {
+        closeConnectionProvider(entry.value);
+      }
+      entry = new Entry<Environment>(envFile, new Environment(envFile));
+      environments.put(key, entry);
+    }
+    return entry.value;
+  }
+
+  /**
+   * @return A connection provider that keeps the connections to the specified environment open between commands.
+   */
+  public synchronized PooledConnectionProvider getConnectionProvider(ClassLoader driverClassLoader,
+      Environment environment) {
+    PooledConnectionProvider provider = connectionProviders.get(environment);
+    if (provider != null && providerClassLoaders.get(environment) != driverClassLoader) {
+      closeConnectionProvider(environment);
+      provider = null;
+    }
+    if (provider == null) {
+      provider = new PooledConnectionProvider(driverClassLoader, environment.getDriver(), environment.getUrl(),
+          environment.getUsername(), environment.getPassword(), environment.getVariables());
+      connectionProviders.put(environment, provider);
+      providerClassLoaders.put(environment, driverClassLoader);
+    }
+    return provider;
+  }
+
+  /**
+   * @return A loader that reuses the list of migrations of <code>loader</code> as long as <code>scriptsDir</code> is
+   *         not modified.
+   */
+  public MigrationLoader getMigrationLoader(File scriptsDir, MigrationLoader loader) {
+    return new CachedMigrationLoader(scriptsDir, loader);
+  }
+
+  public synchronized void close() {
+    for (PooledConnectionProvider provider : connectionProviders.values()) {
+      provider.close();
+    }
+    connectionProviders.clear();
+    providerClassLoaders.clear();
+    environments.clear();
+    migrations.clear();
+  }
+
+  private synchronized List<Change> getMigrations(File scriptsDir, MigrationLoader loader) {
+    String key = scriptsDir.getAbsolutePath();
+    Entry<List<Change>> entry = migrations.get(key);
+    if (entry == null || entry.isStale(scriptsDir)) {
+      entry = new Entry<List<Change>>(scriptsDir, loader.getMigrations());
+      migrations.put(key, entry);
+    }
+    // Operations sort the returned list and modify the changes, so hand out copies.
+    List<Change> copy = new ArrayList<Change>(entry.value.size());
+    for (Change change : entry.value) {
+      copy.add(change.clone());
+    }
+    return copy;
+  }
+
+  private void closeConnectionProvider(Environment environment) {
+    PooledConnectionProvider provider = connectionProviders.remove(environment);
+    providerClassLoaders.remove(environment);
+    if (provider != null) {
+      provider.close();
+    }
+  }
+
+  private static class Entry<T> {
+    private final long lastModified;
+    private final long length;
+    private final String[] names;
+    private final T value;
+
+    Entry(File file, T value) {
+      this.lastModified = file.lastModified();
+      this.length = file.length();
+      this.names = list(file);
+      this.value = value;
+    }
+
+    boolean isStale(File file) {
+      return file.lastModified() != lastModified || file.length() != length || !Arrays.equals(list(file), names);
+    }
+
+    private static String[] list(File file) {
+      String[] names = file.list();
+      if (names != null) {
+        Arrays.sort(names);
+      }
+      return names;
+    }
+  }
+
+  private class CachedMigrationLoader implements MigrationLoader {
+    private final File scriptsDir;
+    private final MigrationLoader delegate;
+
+    CachedMigrationLoader(File scriptsDir, MigrationLoader delegate) {
+      this.scriptsDir = scriptsDir;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public List<Change> getMigrations() {
+      return ResourceCache.this.getMigrations(scriptsDir, delegate);
+    }
+
+    @Override
+    public Reader getScriptReader(Change change) {
+      return delegate.getScriptReader(change);
+    }
+
+    @Override
+    public Reader getRollbackReader(Change change) {
+      return delegate.getRollbackReader(change);
+    }
+
+    @Override
+    public List<Reader> getBootstrapReaders() {
+      return delegate.getBootstrapReaders();
+    }
+
+    @Override
+    public Reader getOnAbortReader(Change change) {
+      return delegate.getOnAbortReader(change);
+    }
+  }
+}
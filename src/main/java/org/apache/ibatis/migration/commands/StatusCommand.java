@@ -35,8 +35,8 @@ public final class StatusCommand extends BaseCommand {
     try {
       Connection connection = getConnection();
       try {
-        operation = new StatusOperation().operate(connection, getMigrationLoader(), getDatabaseOperationOption(),
-            printStream);
+        operation = new StatusOperation(getMigrationTimings()).operate(connection, getMigrationLoader(),
+            getDatabaseOperationOption(), printStream);
       } finally {
         connection.close();
       }
@@ -18,6 +18,7 @@ package org.apache.ibatis.migration.commands;
 import org.apache.ibatis.migration.MigrationException;
 import org.apache.ibatis.migration.operations.UpOperation;
 import org.apache.ibatis.migration.options.SelectedOptions;
+import org.apache.ibatis.migration.timing.MigrationTimings;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -38,8 +39,10 @@ public final class UpCommand extends BaseCommand {
   public void execute(String... params) {
     final int limit = getStepCountParameter(Integer.MAX_VALUE, params);
 
-    UpOperation op = new UpOperation(runOneStepOnly ? 1 : limit, options);
+    MigrationTimings timings = getMigrationTimings();
+    UpOperation op = new UpOperation(runOneStepOnly ? 1 : limit, options, timings);
 
+    boolean completed = false;
     try {
       Connection connection = getConnection();
       try {
@@ -47,8 +50,27 @@ public final class UpCommand extends BaseCommand {
       } finally {
         connection.close();
       }
+      completed = true;
     } catch (SQLException e) {
       throw new MigrationException(e);
+    } finally {
+      storeTimings(timings, completed);
+    }
+  }
+
+  /**
+   * Stores the times of the migrations applied so far. When the command failed, a failure to store them is only
+   * reported so that it does not hide the original error.
+   */
+  private void storeTimings(MigrationTimings timings, boolean completed) {
+    if (completed) {
+      timings.store();
+      return;
+    }
+    try {
+      timings.store();
+    } catch (MigrationException e) {
+      printStream.println("Failed to store the migration timings: " + e.getMessage());
     }
   }
 }
@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.daemon;
+
+import static org.apache.ibatis.migration.utils.Util.isOption;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.options.Options;
+
+/**
+ * Forwards a command line to a running {@link MigrationDaemon}, authenticating with the token the daemon wrote for
+ * its owner.
+ * <p>
+ * Only the arguments are forwarded. The system properties and environment variables of the client are not, so the
+ * <code>sys.</code> and <code>env.</code> variables of the command are resolved in the daemon's JVM.
+ */
+public class DaemonClient {
+
+  private static final List<Options> PATH_OPTIONS = Arrays.asList(Options.PATH, Options.ENVPATH, Options.SCRIPTPATH,
+      Options.DRIVERPATH, Options.HOOKPATH, Options.TIMINGPATH, Options.TEMPLATE, Options.METRICS,
+      Options.EVENTS, Options.PROFILE);
+
+  private final int port;
+
+  private final File tokenDir;
+
+  private final PrintStream console;
+
+  public DaemonClient(int port, PrintStream console) {
+    this(port, DaemonToken.DEFAULT_DIRECTORY, console);
+  }
+
+  public DaemonClient(int port, File tokenDir, PrintStream console) {
+    super();
+    this.port = port;
+    this.tokenDir = tokenDir;
+    this.console = console;
+  }
+
+  /**
+   * @return The exit status of the command, or <code>null</code> if no daemon of the current user is listening on the
+   *         port.
+   */
+  public Integer forward(String[] args) {
+    String token = DaemonToken.read(DaemonToken.file(tokenDir, port));
+    if (token == null) {
+      return null;
+    }
+    Socket socket;
+    try {
+      socket = new Socket(InetAddress.getByName("127.0.0.1"), port);
+    } catch (ConnectException e) {
+      return null;
+    } catch (IOException e) {
+      throw new MigrationException("Error connecting to the migration daemon.  Cause: " + e, e);
+    }
+    try {
+      try {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        List<String> daemonArgs = toDaemonArgs(args);
+        out.writeUTF(token);
+        out.writeInt(daemonArgs.size());
+        for (String arg : daemonArgs) {
+          out.writeUTF(arg);
+        }
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = in.readInt()) != MigrationDaemon.END_OF_OUTPUT) {
+          if (length > buffer.length) {
+            buffer = new byte[length];
+          }
+          in.readFully(buffer, 0, length);
+          console.write(buffer, 0, length);
+        }
+        console.flush();
+        return in.readInt();
+      } finally {
+        socket.close();
+      }
+    } catch (IOException e) {
+      throw new MigrationException("Error communicating with the migration daemon.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * The daemon has its own working directory, so paths are resolved here and the daemon option is dropped.
+   */
+  static List<String> toDaemonArgs(String[] args) {
+    List<String> daemonArgs = new ArrayList<String>();
+    boolean hasPath = false;
+    for (String arg : args) {
+      if (isOption(arg)) {
+        String[] argParts = arg.substring(2).split("=", 2);
+        Options option = Options.valueOf(argParts[0].toUpperCase());
+        if (option == Options.DAEMON) {
+          continue;
+        }
+        if (PATH_OPTIONS.contains(option) && argParts.length > 1) {
+          hasPath |= option == Options.PATH;
+          arg = "--" + argParts[0] + "=" + new File(argParts[1]).getAbsolutePath();
+        }
+      }
+      daemonArgs.add(arg);
+    }
+    if (!hasPath) {
+      daemonArgs.add("--path=" + new File(".").getAbsolutePath());
+    }
+    return daemonArgs;
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.daemon;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import org.apache.ibatis.migration.MigrationException;
+
+/**
+ * The shared secret a {@link DaemonClient} presents to the {@link MigrationDaemon}.
+ * <p>
+ * The daemon generates a random token when it starts and writes it to <code>daemon-&lt;port&gt;.token</code> in a
+ * directory that, like the file, only its owner can read. Other local users can connect to the port, but cannot read
+ * the token, so their requests are rejected.
+ */
+final class DaemonToken {
+
+  static final File DEFAULT_DIRECTORY = new File(System.getProperty("user.home"), ".mybatis-migrations");
+
+  private static final int TOKEN_BYTES = 32;
+
+  private static final boolean WINDOWS = File.separatorChar == '\\';
+
+  private DaemonToken() {
+    super();
+  }
+
+  static File file(File directory, int port) {
+    return new File(directory, "daemon-" + port + ".token");
+  }
+
+  /**
+   * Generates a new token and writes it to the file, readable by its owner only.
+   *
+   * @return the token.
+   */
+  static String create(File file) {
+    File directory = file.getParentFile();
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new MigrationException("Could not create directory " + directory.getAbsolutePath());
+    }
+    restrictToOwner(directory, true);
+    if (file.exists() && !file.delete()) {
+      throw new MigrationException("Could not replace token file " + file.getAbsolutePath());
+    }
+    byte[] bytes = new byte[TOKEN_BYTES];
+    new SecureRandom().nextBytes(bytes);
+    StringBuilder token = new StringBuilder();
+    for (byte b : bytes) {
+      token.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    try {
+      if (!file.createNewFile()) {
+        throw new MigrationException("Token file was created concurrently: " + file.getAbsolutePath());
+      }
+      // The permissions are restricted before the token is written.
+      restrictToOwner(file, false);
+      OutputStream out = new FileOutputStream(file);
+      try {
+        out.write(token.toString().getBytes("US-ASCII"));
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      throw new MigrationException("Failed to write token file " + file.getAbsolutePath(), e);
+    }
+    return token.toString();
+  }
+
+  /**
+   * @return the token stored in the file, or <code>null</code> if the file does not exist.
+   */
+  static String read(File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      InputStream in = new FileInputStream(file);
+      try {
+        byte[] bytes = new byte[TOKEN_BYTES * 2];
+        int length = 0;
+        int n;
+        while (length < bytes.length && (n = in.read(bytes, length, bytes.length - length)) > 0) {
+          length += n;
+        }
+        return new String(bytes, 0, length, "US-ASCII");
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      throw new MigrationException("Failed to read token file " + file.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * Compares the tokens in constant time.
+   */
+  static boolean matches(String expected, String actual) {
+    try {
+      return actual != null && MessageDigest.isEqual(expected.getBytes("US-ASCII"), actual.getBytes("US-ASCII"));
+    } catch (IOException e) {
+      throw new MigrationException(e);
+    }
+  }
+
+  private static void restrictToOwner(File file, boolean executable) {
+    boolean restricted = file.setReadable(false, false) & file.setReadable(true, true)
+        & file.setWritable(false, false) & file.setWritable(true, true) & file.setExecutable(false, false);
+    if (executable) {
+      restricted &= file.setExecutable(true, true);
+    }
+    // Permissions for others cannot be removed through java.io.File on Windows, where the user profile is private.
+    if (!restricted && !WINDOWS) {
+      throw new MigrationException("Could not restrict the permissions of " + file.getAbsolutePath());
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.apache.ibatis.migration.CommandLine;
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.commands.BaseCommand;
+import org.apache.ibatis.migration.commands.ResourceCache;
+import org.apache.ibatis.migration.metrics.MigrationMetrics;
+
+/**
+ * A long-lived process that executes the commands forwarded by {@link DaemonClient}.
+ * <p>
+ * The daemon only listens on the loopback interface and executes one command at a time. Driver class loaders, parsed
+ * environments, migration indexes and connections are kept in a {@link ResourceCache} between commands. The
+ * cumulative {@link MigrationMetrics} of the commands are exposed over JMX.
+ * <p>
+ * Only the user running the daemon may use it: when it starts, the daemon writes a random token to
+ * <code>~/.mybatis-migrations/daemon-&lt;port&gt;.token</code>, readable by its owner only, and rejects the requests
+ * that do not present it.
+ * <p>
+ * Protocol: the client sends the token and the number of arguments followed by each argument (see
+ * {@link DataOutputStream#writeUTF(String)}). The daemon replies with chunks of output, each prefixed with its length,
+ * and terminates the reply with <code>-1</code> followed by the exit status.
+ */
+public class MigrationDaemon {
+
+  public static final int DEFAULT_PORT = 6717;
+
+  static final int END_OF_OUTPUT = -1;
+
+  private static final int REQUEST_TIMEOUT_MILLIS = 10000;
+
+  private final int port;
+
+  private final File tokenDir;
+
+  private final PrintStream console;
+
+  private ServerSocket server;
+
+  private ResourceCache cache;
+
+  private File tokenFile;
+
+  private String token;
+
+  private Thread shutdownHook;
+
+  private volatile boolean stopped;
+
+  public MigrationDaemon(int port, PrintStream console) {
+    this(port, DaemonToken.DEFAULT_DIRECTORY, console);
+  }
+
+  /**
+   * @param port
+   *          the port to listen on, or <code>0</code> for any free port (see {@link #getPort()}).
+   * @param tokenDir
+   *          the directory the token file is written to.
+   */
+  public MigrationDaemon(int port, File tokenDir, PrintStream console) {
+    super();
+    this.port = port;
+    this.tokenDir = tokenDir;
+    this.console = console;
+  }
+
+  /**
+   * Binds the port and writes the token file. Called by {@link #run()} if needed.
+   */
+  public synchronized void start() {
+    if (server != null) {
+      return;
+    }
+    try {
+      server = new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+    } catch (IOException e) {
+      throw new MigrationException("Migration daemon failed on port " + port + ".  Cause: " + e, e);
+    }
+    tokenFile = DaemonToken.file(tokenDir, server.getLocalPort());
+    try {
+      token = DaemonToken.create(tokenFile);
+    } catch (MigrationException e) {
+      closeServer();
+      throw e;
+    }
+    cache = new ResourceCache();
+    BaseCommand.setResourceCache(cache);
+    MigrationMetrics.registerMBean();
+    shutdownHook = new Thread() {
+      @Override
+      public void run() {
+        cache.close();
+        tokenFile.delete();
+      }
+    };
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+    console.println("Migration daemon listening on 127.0.0.1:" + server.getLocalPort() + " (Ctrl-C to stop)");
+  }
+
+  /**
+   * @return The port the daemon listens on once {@link #start() started}.
+   */
+  public synchronized int getPort() {
+    return server == null ? port : server.getLocalPort();
+  }
+
+  /**
+   * Serves the requests until {@link #stop()} is called.
+   */
+  public void run() {
+    start();
+    try {
+      while (!stopped) {
+        Socket socket = server.accept();
+        try {
+          serve(socket);
+        } catch (IOException e) {
+          console.println("Failed to serve request: " + e);
+        } finally {
+          socket.close();
+        }
+      }
+    } catch (IOException e) {
+      if (!stopped) {
+        throw new MigrationException("Migration daemon failed on port " + getPort() + ".  Cause: " + e, e);
+      }
+    } finally {
+      stop();
+    }
+  }
+
+  /**
+   * Stops accepting requests and releases the cached resources.
+   */
+  public synchronized void stop() {
+    stopped = true;
+    if (server == null || shutdownHook == null) {
+      return;
+    }
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    } catch (IllegalStateException e) {
+      // the JVM is shutting down and the hook cleans up
+    }
+    shutdownHook = null;
+    closeServer();
+    BaseCommand.setResourceCache(null);
+    cache.close();
+    MigrationMetrics.unregisterMBean();
+    tokenFile.delete();
+  }
+
+  private void closeServer() {
+    try {
+      server.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+  private void serve(Socket socket) throws IOException {
+    socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    PrintStream response = new PrintStream(new ChunkedOutputStream(out), true);
+    if (!DaemonToken.matches(token, in.readUTF())) {
+      console.printf("%s rejected a request with an invalid token%n", new Date());
+      response.println("The migration daemon rejected the request: invalid token.");
+      reply(out, 1);
+      return;
+    }
+    String[] args = new String[in.readInt()];
+    for (int i = 0; i < args.length; i++) {
+      args[i] = in.readUTF();
+    }
+    console.printf("%s migrate %s%n", new Date(), Arrays.toString(args));
+
+    boolean success = false;
+    try {
+      success = new CommandLine(args, response).run();
+    } finally {
+      response.flush();
+    }
+    reply(out, success ? 0 : 1);
+  }
+
+  private void reply(DataOutputStream out, int status) throws IOException {
+    out.writeInt(END_OF_OUTPUT);
+    out.writeInt(status);
+    out.flush();
+  }
+
+  private static class ChunkedOutputStream extends OutputStream {
+    private final DataOutputStream out;
+
+    ChunkedOutputStream(DataOutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.writeInt(1);
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (len > 0) {
+        out.writeInt(len);
+        out.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,32 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.events;
+
+/**
+ * Receives the {@link MigrationEvent}s of the operations. See {@link MigrationEvents#setSink(EventSink)}.
+ * <p>
+ * {@link #emit(MigrationEvent)} is called on the thread running the operation, so it should return quickly and must
+ * not throw. The human-readable output of the operations is written to their print stream independently of the sink.
+ */
+public interface EventSink {
+
+  void emit(MigrationEvent event);
+
+  /**
+   * Writes the pending events and releases the resources of the sink.
+   */
+  void close();
+}
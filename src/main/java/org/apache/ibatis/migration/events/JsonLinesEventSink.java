@@ -0,0 +1,154 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.events;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.migration.MigrationException;
+
+/**
+ * Writes each event as a line of JSON (see {@link MigrationEvent#toJson()}) to an output stream.
+ * <p>
+ * Events are queued and written by a background thread through a buffered writer, which is flushed whenever the
+ * queue is empty. {@link #emit(MigrationEvent)} never blocks: when the queue is full, the event is dropped and
+ * counted. The number of dropped events, if any, is written as a last <code>dropped</code> event by {@link #close()}.
+ */
+public class JsonLinesEventSink implements EventSink {
+
+  public static final int DEFAULT_CAPACITY = 8192;
+
+  private static final MigrationEvent END = new MigrationEvent("end", 0L);
+
+  private final BlockingQueue<MigrationEvent> queue;
+  private final Writer writer;
+  private final Thread thread;
+  private final AtomicLong dropped = new AtomicLong();
+
+  private volatile boolean closed;
+  private volatile IOException failure;
+
+  public JsonLinesEventSink(OutputStream out) {
+    this(out, DEFAULT_CAPACITY);
+  }
+
+  public JsonLinesEventSink(OutputStream out, int capacity) {
+    super();
+    this.queue = new ArrayBlockingQueue<MigrationEvent>(capacity);
+    this.writer = new BufferedWriter(new OutputStreamWriter(out, Charset.forName("UTF-8")));
+    this.thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        writeEvents();
+      }
+    }, "mybatis-migrations-events");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public void emit(MigrationEvent event) {
+    if (closed || !queue.offer(event)) {
+      dropped.incrementAndGet();
+    }
+  }
+
+  /**
+   * @return the number of events that were not written because the queue was full or the sink was closed.
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * Waits until the queued events are written, then closes the output stream.
+   *
+   * @throws MigrationException
+   *           if writing failed.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          queue.put(END);
+          thread.join();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      try {
+        if (failure == null && dropped.get() > 0) {
+          write(new MigrationEvent("dropped").with("count", dropped.get()));
+        }
+        writer.close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (failure != null) {
+      throw new MigrationException("Error writing events.  Cause: " + failure, failure);
+    }
+  }
+
+  private void writeEvents() {
+    try {
+      while (true) {
+        MigrationEvent event = queue.take();
+        if (event == END) {
+          return;
+        }
+        if (failure == null) {
+          try {
+            write(event);
+            if (queue.isEmpty()) {
+              writer.flush();
+            }
+          } catch (IOException e) {
+            // keep draining the queue so that emitters are not affected
+            failure = e;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      // the JVM is shutting down
+    }
+  }
+
+  private void write(MigrationEvent event) throws IOException {
+    writer.write(event.toJson());
+    writer.write('\n');
+  }
+}
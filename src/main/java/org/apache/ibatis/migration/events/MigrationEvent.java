@@ -0,0 +1,92 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.events;
+
+import static org.apache.ibatis.migration.utils.Util.appendJson;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Something that happened during a migration run, e.g. a migration that was applied.
+ * <p>
+ * An event has a type, the time it was created (in milliseconds since the epoch) and named fields whose values are
+ * strings, numbers or booleans.
+ */
+public class MigrationEvent {
+
+  private final String type;
+  private final long timestamp;
+  private final Map<String, Object> fields = new LinkedHashMap<String, Object>();
+
+  public MigrationEvent(String type) {
+    this(type, System.currentTimeMillis());
+  }
+
+  public MigrationEvent(String type, long timestamp) {
+    super();
+    this.type = type;
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Sets a field, unless the value is <code>null</code>.
+   */
+  public MigrationEvent with(String name, Object value) {
+    if (value != null) {
+      fields.put(name, value);
+    }
+    return this;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public Object get(String name) {
+    return fields.get(name);
+  }
+
+  public Map<String, Object> getFields() {
+    return Collections.unmodifiableMap(fields);
+  }
+
+  /**
+   * @return the event as a single line JSON object, e.g.
+   *         <code>{"event":"changeEnd","timestamp":1514764800000,"operation":"up","changeId":"1",...}</code>
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder(128);
+    appendJson(json.append("{\"event\":"), type);
+    json.append(",\"timestamp\":").append(timestamp);
+    for (Entry<String, Object> field : fields.entrySet()) {
+      appendJson(json.append(','), field.getKey()).append(':');
+      appendJson(json, field.getValue());
+    }
+    return json.append('}').toString();
+  }
+
+  @Override
+  public String toString() {
+    return toJson();
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.events;
+
+import org.apache.ibatis.migration.Change;
+
+/**
+ * Emits the events of the operations to the current {@link EventSink}, if any.
+ * <p>
+ * The events and their fields are:
+ * <ul>
+ * <li><code>runStart</code>: <code>operation</code> and <code>pending</code>, the number of migrations to run.</li>
+ * <li><code>runEnd</code>: <code>operation</code>, <code>count</code> and <code>durationMillis</code>.</li>
+ * <li><code>changeStart</code>, <code>changeEnd</code>: <code>operation</code>, <code>changeId</code>,
+ * <code>fileName</code>, <code>description</code> and, at the end, <code>durationMillis</code>.</li>
+ * <li><code>statement</code>: <code>type</code> (<code>ddl</code>, <code>dml</code>, <code>query</code>,
+ * <code>other</code> or <code>batch</code>), <code>sql</code>, <code>durationMillis</code> and
+ * <code>success</code>.</li>
+ * <li><code>hook</code>: <code>phase</code>, <code>changeId</code> and <code>durationMillis</code>.</li>
+ * <li><code>abort</code>: <code>changeId</code>, when the on abort script is run.</li>
+ * <li><code>error</code>: <code>operation</code> and <code>message</code>. A failed run ends with this event instead of
+ * <code>runEnd</code>.</li>
+ * </ul>
+ * Without a sink, nothing is allocated.
+ */
+public final class MigrationEvents {
+
+  private static volatile EventSink sink;
+
+  private MigrationEvents() {
+    super();
+  }
+
+  public static EventSink getSink() {
+    return sink;
+  }
+
+  /**
+   * @param eventSink
+   *          the sink receiving the events of all operations, or <code>null</code> to stop emitting events. The
+   *          previous sink is not closed.
+   */
+  public static void setSink(EventSink eventSink) {
+    sink = eventSink;
+  }
+
+  public static boolean isEnabled() {
+    return sink != null;
+  }
+
+  public static void emit(MigrationEvent event) {
+    EventSink current = sink;
+    if (current != null) {
+      current.emit(event);
+    }
+  }
+
+  public static void runStart(String operation, int pending) {
+    if (sink != null) {
+      emit(new MigrationEvent("runStart").with("operation", operation).with("pending", pending));
+    }
+  }
+
+  public static void runEnd(String operation, int count, long durationMillis) {
+    if (sink != null) {
+      emit(new MigrationEvent("runEnd").with("operation", operation).with("count", count).with("durationMillis",
+          durationMillis));
+    }
+  }
+
+  public static void changeStart(String operation, Change change) {
+    if (sink != null) {
+      emit(withChange(new MigrationEvent("changeStart").with("operation", operation), change));
+    }
+  }
+
+  public static void changeEnd(String operation, Change change, long durationNanos) {
+    if (sink != null) {
+      emit(withChange(new MigrationEvent("changeEnd").with("operation", operation), change).with("durationMillis",
+          toMillis(durationNanos)));
+    }
+  }
+
+  public static void statement(String type, String sql, long durationNanos, boolean success) {
+    if (sink != null) {
+      emit(new MigrationEvent("statement").with("type", type).with("sql", sql)
+          .with("durationMillis", toMillis(durationNanos)).with("success", success));
+    }
+  }
+
+  public static void hook(String phase, Change change, long durationNanos) {
+    if (sink != null) {
+      emit(new MigrationEvent("hook").with("phase", phase).with("changeId", id(change))
+          .with("durationMillis", toMillis(durationNanos)));
+    }
+  }
+
+  public static void abort(Change change) {
+    if (sink != null) {
+      emit(new MigrationEvent("abort").with("changeId", id(change)));
+    }
+  }
+
+  public static void error(String operation, Throwable cause) {
+    if (sink != null) {
+      emit(new MigrationEvent("error").with("operation", operation).with("message",
+          String.valueOf(cause.getMessage())));
+    }
+  }
+
+  private static MigrationEvent withChange(MigrationEvent event, Change change) {
+    return event.with("changeId", id(change)).with("fileName", change.getFilename()).with("description",
+        change.getDescription());
+  }
+
+  private static String id(Change change) {
+    return change == null || change.getId() == null ? null : change.getId().toString();
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / 1000000.0;
+  }
+}
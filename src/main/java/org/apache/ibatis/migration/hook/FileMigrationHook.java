@@ -15,7 +15,12 @@
  */
 package org.apache.ibatis.migration.hook;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.migration.hook.scripts.AsyncHookScript;
 import org.apache.ibatis.migration.hook.scripts.HookScript;
 
 public class FileMigrationHook extends BasicHook implements MigrationHook {
@@ -44,6 +49,44 @@ public class FileMigrationHook extends BasicHook implements MigrationHook {
     afterEachScript.execute(bindingMap);
   }
 
+  /**
+   * Waits for the asynchronous each-scripts before executing the after script.
+   */
+  @Override
+  public void after(Map<String, Object> bindingMap) {
+    await(beforeEachScript);
+    await(afterEachScript);
+    super.after(bindingMap);
+  }
+
+  private void await(HookScript script) {
+    if (script instanceof AsyncHookScript) {
+      ((AsyncHookScript) script).await();
+    }
+  }
+
+  /**
+   * Waits for the asynchronous each-scripts when the migration failed, so {@link #after(Map)} is not called. Each
+   * script is waited for at most <code>timeout</code>.
+   *
+   * @return the failures of the asynchronous each-scripts; empty if there were none.
+   */
+  public List<Throwable> awaitAfterFailure(long timeout, TimeUnit unit) {
+    List<Throwable> failures = new ArrayList<Throwable>();
+    awaitAfterFailure(beforeEachScript, timeout, unit, failures);
+    awaitAfterFailure(afterEachScript, timeout, unit, failures);
+    return failures;
+  }
+
+  private void awaitAfterFailure(HookScript script, long timeout, TimeUnit unit, List<Throwable> failures) {
+    if (script instanceof AsyncHookScript) {
+      Throwable failure = ((AsyncHookScript) script).awaitAfterFailure(timeout, unit);
+      if (failure != null) {
+        failures.add(failure);
+      }
+    }
+  }
+
   public HookScript getBeforeEachScript() {
     return beforeEachScript;
   }
@@ -0,0 +1,69 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.hook;
+
+import java.util.Map;
+
+/**
+ * A hook implemented in Java, found through {@link java.util.ServiceLoader} and referenced from the
+ * <code>hook_*</code> settings of the environment as <code>java:&lt;name&gt;</code>.
+ * <p>
+ * The method matching the setting is called, e.g. {@link #beforeEach(HookContext, Map)} for
+ * <code>hook_before_each_up=java:audit</code>, with the {@link HookContext} of the phase and the constant variables of
+ * the setting (e.g. <code>java:audit:table=audit_log</code>) as a read-only map.
+ * <p>
+ * Implementations are registered in <code>META-INF/services/org.apache.ibatis.migration.hook.JavaMigrationHook</code>
+ * and must have a public no-argument constructor. The providers are loaded once per class loader, and one instance
+ * serves all the settings that reference it.
+ */
+public interface JavaMigrationHook {
+  /**
+   * @return The name used to reference this hook in the <code>hook_*</code> settings.
+   */
+  String getName();
+
+  /**
+   * @param context
+   *          context of the operation; {@link HookContext#getChange()} is <code>null</code>.
+   * @param options
+   *          constant variables of the setting.
+   */
+  void before(HookContext context, Map<String, String> options);
+
+  /**
+   * @param context
+   *          context of the migration about to be applied or undone.
+   * @param options
+   *          constant variables of the setting.
+   */
+  void beforeEach(HookContext context, Map<String, String> options);
+
+  /**
+   * @param context
+   *          context of the migration that was applied or undone.
+   * @param options
+   *          constant variables of the setting.
+   */
+  void afterEach(HookContext context, Map<String, String> options);
+
+  /**
+   * @param context
+   *          context of the operation; {@link HookContext#getChange()} is <code>null</code>.
+   * @param options
+   *          constant variables of the setting.
+   */
+  void after(HookContext context, Map<String, String> options);
+}
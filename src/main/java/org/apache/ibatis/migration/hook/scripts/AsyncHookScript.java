@@ -0,0 +1,223 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.hook.scripts;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.ConnectionProvider;
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.hook.HookContext;
+import org.apache.ibatis.migration.hook.MigrationHook;
+import org.apache.ibatis.migration.operations.DatabaseOperation;
+import org.apache.ibatis.migration.options.DatabaseOperationOption;
+
+/**
+ * Executes a hook script in the background so that the migration does not wait for it.
+ * <p>
+ * Executions run one at a time in the order they were requested, on a copy of the binding map and with a
+ * {@link HookContext} on a connection of their own, which is committed when the script returns. When the queue of
+ * pending executions is full, the migration waits for a free slot. {@link #await()} waits for the pending executions
+ * and reports the first failure. When the migration fails, {@link #awaitAfterFailure(long, TimeUnit)} waits for them
+ * for a limited time instead.
+ */
+public class AsyncHookScript implements HookScript {
+
+  public static final String PREFIX = "async:";
+
+  private static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+  private final HookScript delegate;
+  private final ConnectionProvider connectionProvider;
+  private final DatabaseOperationOption option;
+  private final PrintStream printStream;
+  private final ThreadPoolExecutor executor;
+  // one permit per execution that is queued or running; the queue can hold them all, as an execution releases its
+  // permit just before the worker takes the next one, so that submit() is never rejected
+  private final Semaphore slots;
+
+  private Future<?> last;
+  private volatile Thread worker;
+  private volatile Throwable failure;
+
+  public AsyncHookScript(HookScript delegate, ConnectionProvider connectionProvider, DatabaseOperationOption option,
+      PrintStream printStream) {
+    this(delegate, connectionProvider, option, printStream, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  public AsyncHookScript(HookScript delegate, ConnectionProvider connectionProvider, DatabaseOperationOption option,
+      PrintStream printStream, int queueCapacity) {
+    this.delegate = delegate;
+    this.connectionProvider = connectionProvider;
+    this.option = option;
+    this.printStream = printStream;
+    this.executor = new ThreadPoolExecutor(1, 1, 1L, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(queueCapacity + 1), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "mybatis-migrations-hook");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    this.executor.allowCoreThreadTimeOut(true);
+    this.slots = new Semaphore(queueCapacity + 1);
+  }
+
+  public static boolean isAsync(String hookSetting) {
+    return hookSetting != null && hookSetting.regionMatches(true, 0, PREFIX, 0, PREFIX.length());
+  }
+
+  @Override
+  public synchronized Void execute(Map<String, Object> bindingMap) {
+    final Map<String, Object> bindings = new HashMap<String, Object>(bindingMap);
+    HookContext hookContext = (HookContext) bindings.get(MigrationHook.HOOK_CONTEXT);
+    final Change change = hookContext == null ? null : hookContext.getChange();
+    try {
+      slots.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MigrationException("Interrupted while waiting for asynchronous hook.", e);
+    }
+    try {
+      last = executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          worker = Thread.currentThread();
+          try {
+            Connection connection = connectionProvider.getConnection();
+            try {
+              bindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connection,
+                  DatabaseOperation.createScriptRunner(connection, option, printStream), change));
+              delegate.execute(bindings);
+              if (!connection.getAutoCommit()) {
+                connection.commit();
+              }
+            } finally {
+              connection.close();
+            }
+          } catch (Throwable t) {
+            if (failure == null) {
+              failure = t;
+            }
+          } finally {
+            worker = null;
+            slots.release();
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      slots.release();
+      throw new MigrationException("Error executing asynchronous hook.  Cause: " + e, e);
+    }
+    return null;
+  }
+
+  /**
+   * Waits until the executions requested so far have completed.
+   *
+   * @throws MigrationException
+   *           if one of them failed since the last call.
+   */
+  public void await() {
+    Future<?> pending;
+    synchronized (this) {
+      pending = last;
+      last = null;
+    }
+    if (pending != null) {
+      try {
+        pending.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MigrationException("Interrupted while waiting for asynchronous hook.", e);
+      } catch (ExecutionException e) {
+        throw new MigrationException("Error executing asynchronous hook.  Cause: " + e.getCause(), e.getCause());
+      }
+    }
+    Throwable t = failure;
+    if (t != null) {
+      failure = null;
+      if (t instanceof MigrationException) {
+        throw (MigrationException) t;
+      }
+      throw new MigrationException("Error executing asynchronous hook.  Cause: " + t, t);
+    }
+  }
+
+  /**
+   * Waits at most <code>timeout</code> for the executions requested so far, then cancels those that are still queued or
+   * running, so that none of them outlives the failed operation.
+   *
+   * @return the first failure since the last call to {@link #await()}, or an exception telling that the executions did
+   *         not complete in time; <code>null</code> if they all succeeded.
+   */
+  public Throwable awaitAfterFailure(long timeout, TimeUnit unit) {
+    Future<?> pending;
+    synchronized (this) {
+      pending = last;
+      last = null;
+    }
+    Throwable incomplete = null;
+    if (pending != null) {
+      try {
+        pending.get(timeout, unit);
+      } catch (TimeoutException e) {
+        cancel(pending);
+        incomplete = new MigrationException("Asynchronous hook did not complete within " + unit.toSeconds(timeout)
+            + " seconds and was cancelled.", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancel(pending);
+        incomplete = new MigrationException("Interrupted while waiting for asynchronous hook.", e);
+      } catch (ExecutionException e) {
+        incomplete = e.getCause();
+      }
+    }
+    Throwable t = failure;
+    failure = null;
+    return t != null ? t : incomplete;
+  }
+
+  private void cancel(Future<?> pending) {
+    List<Runnable> dropped = new ArrayList<Runnable>();
+    executor.getQueue().drainTo(dropped);
+    slots.release(dropped.size());
+    pending.cancel(true);
+    Thread running = worker;
+    if (running != null) {
+      running.interrupt();
+    }
+  }
+
+  public HookScript getDelegate() {
+    return delegate;
+  }
+}
@@ -0,0 +1,146 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.hook.scripts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.hook.HookContext;
+import org.apache.ibatis.migration.hook.JavaMigrationHook;
+import org.apache.ibatis.migration.hook.MigrationHook;
+
+/**
+ * Executes one method of a {@link JavaMigrationHook} referenced as <code>java:&lt;name&gt;[:key=value...]</code>.
+ */
+public class JavaHookScript implements HookScript {
+
+  public enum Phase {
+    BEFORE, BEFORE_EACH, AFTER_EACH, AFTER
+  }
+
+  private static final String LANGUAGE = "java";
+
+  /**
+   * The hooks found through {@link ServiceLoader} by name, for each context class loader.
+   */
+  private static final Map<ClassLoader, Map<String, List<JavaMigrationHook>>> HOOKS
+      = new WeakHashMap<ClassLoader, Map<String, List<JavaMigrationHook>>>();
+
+  private final JavaMigrationHook hook;
+  private final Phase phase;
+  private final Map<String, String> options;
+
+  public JavaHookScript(JavaMigrationHook hook, Phase phase, String[] options) {
+    this.hook = hook;
+    this.phase = phase;
+    Map<String, String> localVars = new HashMap<String, String>();
+    for (String option : options) {
+      int sep = option.indexOf('=');
+      if (sep > -1) {
+        localVars.put(option.substring(0, sep), option.substring(sep + 1));
+      }
+    }
+    this.options = Collections.unmodifiableMap(localVars);
+  }
+
+  public static boolean isJavaHook(String hookSetting) {
+    return hookSetting != null && hookSetting.regionMatches(true, 0, LANGUAGE + ":", 0, LANGUAGE.length() + 1);
+  }
+
+  /**
+   * Creates the script for the hook setting, looking the hook up by name among the providers found through
+   * {@link ServiceLoader}. The providers are loaded once per context class loader.
+   */
+  public static JavaHookScript create(String hookSetting, Phase phase) {
+    String[] segments = hookSetting.split(":");
+    if (segments.length < 2 || segments[1].length() == 0) {
+      throw new MigrationException(
+          "Error creating a HookScript. Java hook setting must contain the hook name (e.g. java:audit).");
+    }
+    String name = segments[1];
+    List<JavaMigrationHook> hooks = getHooks().get(name);
+    if (hooks == null) {
+      throw new MigrationException("Java hook not found : " + name);
+    }
+    if (hooks.size() > 1) {
+      throw new MigrationException("Found multiple implementations of JavaMigrationHook named '" + name + "'.");
+    }
+    JavaMigrationHook hook = hooks.get(0);
+    String[] options = new String[segments.length - 2];
+    System.arraycopy(segments, 2, options, 0, options.length);
+    return new JavaHookScript(hook, phase, options);
+  }
+
+  private static Map<String, List<JavaMigrationHook>> getHooks() {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    synchronized (HOOKS) {
+      Map<String, List<JavaMigrationHook>> hooks = HOOKS.get(classLoader);
+      if (hooks == null) {
+        hooks = new HashMap<String, List<JavaMigrationHook>>();
+        for (JavaMigrationHook hook : ServiceLoader.load(JavaMigrationHook.class, classLoader)) {
+          List<JavaMigrationHook> named = hooks.get(hook.getName());
+          if (named == null) {
+            named = new ArrayList<JavaMigrationHook>();
+            hooks.put(hook.getName(), named);
+          }
+          named.add(hook);
+        }
+        HOOKS.put(classLoader, hooks);
+      }
+      return hooks;
+    }
+  }
+
+  /**
+   * Calls the method of the phase with the {@link HookContext} of the binding map and the constant variables of the
+   * setting. The binding map is not modified.
+   */
+  @Override
+  public Void execute(Map<String, Object> bindingMap) {
+    HookContext context = (HookContext) bindingMap.get(MigrationHook.HOOK_CONTEXT);
+    switch (phase) {
+      case BEFORE:
+        hook.before(context, options);
+        break;
+      case BEFORE_EACH:
+        hook.beforeEach(context, options);
+        break;
+      case AFTER_EACH:
+        hook.afterEach(context, options);
+        break;
+      case AFTER:
+        hook.after(context, options);
+        break;
+      default:
+        throw new IllegalStateException("Unknown hook phase: " + phase);
+    }
+    return null;
+  }
+
+  public JavaMigrationHook getHook() {
+    return hook;
+  }
+
+  public Phase getPhase() {
+    return phase;
+  }
+}
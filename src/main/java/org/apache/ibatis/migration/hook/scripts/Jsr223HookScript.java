@@ -21,6 +21,7 @@ import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.io.Reader;
+import java.util.Map;
 import java.util.Properties;
 import org.apache.ibatis.migration.MigrationException;
 import org.apache.ibatis.migration.options.SelectedPaths;
@@ -37,8 +38,14 @@ public class Jsr223HookScript extends Jsr223Script<Void> implements HookScript {
     this.scriptFile = scriptFile;
   }
 
-  protected Reader getReader() throws FileNotFoundException {
+  @Override
+  public Void execute(Map<String, Object> bindingMap) {
     printStream.println(Util.horizontalLine("Applying JSR-223 hook : " + scriptFile.getName(), 80));
+    return super.execute(bindingMap);
+  }
+
+  @Override
+  protected Reader getReader() throws FileNotFoundException {
     return new InputStreamReader(new FileInputStream(scriptFile));
   }
 }
@@ -37,6 +37,10 @@ public class SqlHookScript implements HookScript {
   protected final Properties variables;
   protected final PrintStream printStream;
 
+  private String script;
+  private long scriptLastModified;
+  private long scriptLength;
+
   public SqlHookScript(File scriptFile, String charset, String[] options, Properties variables,
       PrintStream printStream) {
     super();
@@ -57,28 +61,36 @@ public class SqlHookScript implements HookScript {
   public Void execute(Map<String, Object> bindingMap) {
     HookContext context = (HookContext) bindingMap.get(MigrationHook.HOOK_CONTEXT);
     printStream.println(Util.horizontalLine("Applying SQL hook: " + scriptFile.getName(), 80));
-
-    FileInputStream inputStream = null;
     try {
-      inputStream = new FileInputStream(scriptFile);
-      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-      byte[] buffer = new byte[1024];
-      int length;
-      while ((length = inputStream.read(buffer)) != -1) {
-        outputStream.write(buffer, 0, length);
-      }
-      context.executeSql(new StringReader(PropertyParser.parse(outputStream.toString(charset), variables)));
+      context.executeSql(new StringReader(getScript()));
     } catch (IOException e) {
       throw new MigrationException("Error occurred while running SQL hook script.", e);
-    } finally {
+    }
+    return null;
+  }
+
+  /**
+   * Reads the script and substitutes the variables on first use, and again only when the file has changed.
+   */
+  private synchronized String getScript() throws IOException {
+    long lastModified = scriptFile.lastModified();
+    long length = scriptFile.length();
+    if (script == null || lastModified != scriptLastModified || length != scriptLength) {
+      FileInputStream inputStream = new FileInputStream(scriptFile);
       try {
-        if (inputStream != null) {
-          inputStream.close();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) length);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+          outputStream.write(buffer, 0, read);
         }
-      } catch (IOException e) {
-        // ignore
+        script = PropertyParser.parse(outputStream.toString(charset), variables);
+        scriptLastModified = lastModified;
+        scriptLength = length;
+      } finally {
+        inputStream.close();
       }
     }
-    return null;
+    return script;
   }
 }
@@ -0,0 +1,265 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.migration.MigrationException;
+
+/**
+ * Index of the Java migration scripts on the classpath, generated at compile time by
+ * {@link MigrationIndexProcessor}.
+ * <p>
+ * The index is stored in the {@link #RESOURCE} resource, one script per line:
+ *
+ * <pre>
+ * kind&lt;TAB&gt;class name&lt;TAB&gt;ID&lt;TAB&gt;description
+ * </pre>
+ *
+ * The ID and description are empty unless the script is annotated with
+ * {@link org.apache.ibatis.migration.MigrationInfo}. Lines starting with <code>#</code> are comments.
+ * <p>
+ * A package is only known to be complete, i.e. every script of the package was compiled with the processor, when it
+ * is declared with the <code>migrations.index.complete</code> processor option. It is then listed as:
+ *
+ * <pre>
+ * COMPLETE&lt;TAB&gt;package name
+ * </pre>
+ */
+public final class MigrationIndex {
+  public static final String RESOURCE = "META-INF/mybatis-migrations/java-migrations.index";
+
+  private static final String COMPLETE = "COMPLETE";
+
+  public enum Kind {
+    MIGRATION, BOOTSTRAP, ONABORT
+  }
+
+  public static final class Entry {
+    private final Kind kind;
+    private final String className;
+    private final BigDecimal id;
+    private final String description;
+
+    public Entry(Kind kind, String className, BigDecimal id, String description) {
+      this.kind = kind;
+      this.className = className;
+      this.id = id;
+      this.description = description;
+    }
+
+    public Kind getKind() {
+      return kind;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    /**
+     * @return ID of the migration, or <code>null</code> if it is only known by instantiating the script.
+     */
+    public BigDecimal getId() {
+      return id;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    public boolean isInPackage(String packageName) {
+      return className.startsWith(packageName + ".");
+    }
+  }
+
+  private static final MigrationIndex EMPTY = new MigrationIndex(Collections.<Entry> emptyList(),
+      Collections.<String> emptyList());
+
+  private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+  private final Set<String> completePackages;
+
+  private MigrationIndex(Collection<Entry> entries, Collection<String> completePackages) {
+    for (Entry entry : entries) {
+      this.entries.put(entry.getClassName(), entry);
+    }
+    this.completePackages = Collections.unmodifiableSet(new LinkedHashSet<String>(completePackages));
+  }
+
+  /**
+   * Reads and merges every index resource visible to the class loader.
+   *
+   * @return the index; empty if no index resource is found.
+   */
+  public static MigrationIndex load(ClassLoader classLoader) {
+    if (classLoader == null) {
+      classLoader = MigrationIndex.class.getClassLoader();
+    }
+    List<Entry> entries = new ArrayList<Entry>();
+    List<String> completePackages = new ArrayList<String>();
+    try {
+      Enumeration<URL> resources = classLoader.getResources(RESOURCE);
+      while (resources.hasMoreElements()) {
+        URL url = resources.nextElement();
+        InputStream in = url.openStream();
+        try {
+          MigrationIndex index = read(new InputStreamReader(in, "UTF-8"));
+          entries.addAll(index.getEntries());
+          completePackages.addAll(index.getCompletePackages());
+        } finally {
+          in.close();
+        }
+      }
+    } catch (IOException e) {
+      throw new MigrationException("Error reading migration index " + RESOURCE + ".  Cause: " + e, e);
+    }
+    return entries.isEmpty() && completePackages.isEmpty() ? EMPTY : new MigrationIndex(entries, completePackages);
+  }
+
+  /**
+   * @return <code>true</code> if the package was declared complete when the index was generated, so the scripts of
+   *         the package and its sub-packages are all listed. Other packages must be scanned, even if some of their
+   *         scripts are listed.
+   */
+  public boolean isComplete(String packageName) {
+    return completePackages.contains(packageName);
+  }
+
+  public Set<String> getCompletePackages() {
+    return completePackages;
+  }
+
+  public Collection<Entry> getEntries() {
+    return Collections.unmodifiableCollection(entries.values());
+  }
+
+  public List<Entry> getEntries(Kind kind, String packageName) {
+    List<Entry> result = new ArrayList<Entry>();
+    for (Entry entry : entries.values()) {
+      if (entry.getKind() == kind && entry.isInPackage(packageName)) {
+        result.add(entry);
+      }
+    }
+    return result;
+  }
+
+  public Entry getEntry(String className) {
+    return entries.get(className);
+  }
+
+  public boolean isEmpty() {
+    return entries.isEmpty() && completePackages.isEmpty();
+  }
+
+  public static MigrationIndex read(Reader reader) throws IOException {
+    List<Entry> entries = new ArrayList<Entry>();
+    List<String> completePackages = new ArrayList<String>();
+    BufferedReader in = new BufferedReader(reader);
+    String line;
+    while ((line = in.readLine()) != null) {
+      if (line.trim().length() == 0 || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\t", -1);
+      if (fields.length == 2 && COMPLETE.equals(fields[0])) {
+        completePackages.add(fields[1]);
+        continue;
+      }
+      if (fields.length != 4) {
+        throw new MigrationException("Invalid line in migration index: " + line);
+      }
+      Kind kind = Kind.valueOf(fields[0]);
+      BigDecimal id = fields[2].length() == 0 ? null : new BigDecimal(fields[2]);
+      String description = fields[3].length() == 0 && id == null ? null : unescape(fields[3]);
+      entries.add(new Entry(kind, fields[1], id, description));
+    }
+    return new MigrationIndex(entries, completePackages);
+  }
+
+  public static void write(Writer writer, Collection<Entry> entries, Collection<String> completePackages)
+      throws IOException {
+    writer.write("# Generated by " + MigrationIndexProcessor.class.getName() + ". Do not edit.\n");
+    for (String packageName : completePackages) {
+      writer.write(COMPLETE);
+      writer.write('\t');
+      writer.write(packageName);
+      writer.write('\n');
+    }
+    for (Entry entry : entries) {
+      writer.write(entry.getKind().name());
+      writer.write('\t');
+      writer.write(entry.getClassName());
+      writer.write('\t');
+      writer.write(entry.getId() == null ? "" : entry.getId().toString());
+      writer.write('\t');
+      writer.write(entry.getDescription() == null ? "" : escape(entry.getDescription()));
+      writer.write('\n');
+    }
+  }
+
+  private static String escape(String s) {
+    StringBuilder sb = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String unescape(String s) {
+    StringBuilder sb = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '\\' && i + 1 < s.length()) {
+        char next = s.charAt(++i);
+        sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,207 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.index;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.MigrationInfo;
+import org.apache.ibatis.migration.MigrationScript;
+import org.apache.ibatis.migration.index.MigrationIndex.Entry;
+import org.apache.ibatis.migration.index.MigrationIndex.Kind;
+import org.apache.ibatis.migration.scripts.BootstrapScript;
+import org.apache.ibatis.migration.scripts.OnAbortScript;
+
+/**
+ * Annotation processor that writes the {@link MigrationIndex} of the public, concrete {@link MigrationScript},
+ * {@link BootstrapScript} and {@link OnAbortScript} classes being compiled.
+ * <p>
+ * The processor is not registered as a service, so that it does not run in every compilation that has
+ * mybatis-migrations on the class path. It is enabled with
+ * <code>-processor org.apache.ibatis.migration.index.MigrationIndexProcessor</code>. The packages whose scripts are all
+ * compiled together can be declared with <code>-Amigrations.index.complete=com.example.migrations,...</code>; only
+ * those packages are not scanned by {@link org.apache.ibatis.migration.JavaMigrationLoader}.
+ * <p>
+ * The processor only supports {@link MigrationInfo}, so the compiler runs it for the compilations that contain at
+ * least one annotated class. It then indexes every script of the compilation, annotated or not. Annotate the scripts
+ * of the complete packages so that recompiling any of them updates the index.
+ * <p>
+ * Entries of a previous index in the output directory are kept as long as their classes still exist, so incremental
+ * compilation does not drop scripts that were not recompiled.
+ */
+@SupportedAnnotationTypes("org.apache.ibatis.migration.MigrationInfo")
+@SupportedOptions(MigrationIndexProcessor.COMPLETE_PACKAGES_OPTION)
+public class MigrationIndexProcessor extends AbstractProcessor {
+  public static final String COMPLETE_PACKAGES_OPTION = "migrations.index.complete";
+
+  private final Map<String, Entry> entries = new TreeMap<String, Entry>();
+  private final Set<String> completePackages = new TreeSet<String>();
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+    String packages = processingEnv.getOptions().get(COMPLETE_PACKAGES_OPTION);
+    if (packages != null) {
+      for (String packageName : packages.split(",")) {
+        if (packageName.trim().length() > 0) {
+          completePackages.add(packageName.trim());
+        }
+      }
+    }
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver()) {
+      if (!entries.isEmpty() || !completePackages.isEmpty()) {
+        writeIndex();
+      }
+    } else {
+      for (Element element : roundEnv.getRootElements()) {
+        collect(element);
+      }
+    }
+    return false;
+  }
+
+  private void collect(Element element) {
+    if (!element.getKind().isClass() && !element.getKind().isInterface()) {
+      return;
+    }
+    TypeElement type = (TypeElement) element;
+    if (type.getKind() == ElementKind.CLASS && isInstantiable(type)) {
+      Kind kind = getKind(type);
+      if (kind != null) {
+        String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+        entries.put(className, createEntry(kind, className, type));
+      }
+    }
+    for (Element enclosed : type.getEnclosedElements()) {
+      collect(enclosed);
+    }
+  }
+
+  private boolean isInstantiable(TypeElement type) {
+    Set<Modifier> modifiers = type.getModifiers();
+    return modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.ABSTRACT)
+        && (type.getNestingKind() == NestingKind.TOP_LEVEL || modifiers.contains(Modifier.STATIC));
+  }
+
+  private Kind getKind(TypeElement type) {
+    if (isSubtype(type, MigrationScript.class)) {
+      return Kind.MIGRATION;
+    } else if (isSubtype(type, BootstrapScript.class)) {
+      return Kind.BOOTSTRAP;
+    } else if (isSubtype(type, OnAbortScript.class)) {
+      return Kind.ONABORT;
+    }
+    return null;
+  }
+
+  private boolean isSubtype(TypeElement type, Class<?> superType) {
+    TypeElement superElement = processingEnv.getElementUtils().getTypeElement(superType.getName());
+    if (superElement == null) {
+      return false;
+    }
+    TypeMirror erasure = processingEnv.getTypeUtils().erasure(superElement.asType());
+    return processingEnv.getTypeUtils().isAssignable(type.asType(), erasure);
+  }
+
+  private Entry createEntry(Kind kind, String className, TypeElement type) {
+    MigrationInfo info = type.getAnnotation(MigrationInfo.class);
+    if (kind != Kind.MIGRATION || info == null) {
+      return new Entry(kind, className, null, null);
+    }
+    BigDecimal id = null;
+    try {
+      id = new BigDecimal(info.id());
+    } catch (NumberFormatException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Invalid migration ID '" + info.id() + "' in @MigrationInfo", type);
+    }
+    return new Entry(kind, className, id, info.description());
+  }
+
+  private void writeIndex() {
+    mergePreviousIndex();
+    try {
+      FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+          MigrationIndex.RESOURCE);
+      Writer writer = new OutputStreamWriter(resource.openOutputStream(), "UTF-8");
+      try {
+        MigrationIndex.write(writer, entries.values(), completePackages);
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Could not write migration index " + MigrationIndex.RESOURCE + ".  Cause: " + e);
+    }
+  }
+
+  private void mergePreviousIndex() {
+    try {
+      FileObject previous = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+          MigrationIndex.RESOURCE);
+      Reader reader = previous.openReader(true);
+      try {
+        for (Entry entry : MigrationIndex.read(reader).getEntries()) {
+          if (!entries.containsKey(entry.getClassName()) && processingEnv.getElementUtils()
+              .getTypeElement(entry.getClassName().replace('$', '.')) != null) {
+            entries.put(entry.getClassName(), entry);
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      // No previous index.
+    } catch (IllegalArgumentException e) {
+      // The output location does not support reading.
+    } catch (MigrationException e) {
+      // The previous index is unreadable, so it is replaced.
+    }
+  }
+}
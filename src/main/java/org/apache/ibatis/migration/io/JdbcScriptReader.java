@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.apache.ibatis.migration.JdbcMigrationScript;
+
+/**
+ * Reader returned by a loader for a {@link JdbcMigrationScript}.
+ * <p>
+ * Operations {@link #execute(Connection) execute} the migration instead of running the text as a script. Reading
+ * returns the text of {@link JdbcMigrationScript#getUpScript()} or {@link JdbcMigrationScript#getDownScript()}.
+ */
+public final class JdbcScriptReader extends Reader {
+
+  private final JdbcMigrationScript script;
+
+  private final boolean undo;
+
+  private Reader text;
+
+  public JdbcScriptReader(JdbcMigrationScript script, boolean undo) {
+    this.script = script;
+    this.undo = undo;
+  }
+
+  public void execute(Connection connection) throws SQLException {
+    if (undo) {
+      script.down(connection);
+    } else {
+      script.up(connection);
+    }
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (text == null) {
+      String s = undo ? script.getDownScript() : script.getUpScript();
+      text = new StringReader(s == null ? "" : s);
+    }
+    return text.read(cbuf, off, len);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (text != null) {
+      text.close();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+
+/**
+ * Reads statements from an {@link Iterable} one at a time, each followed by the delimiter and a line break, so that
+ * a large script never has to be held in memory.
+ */
+public final class StatementReader extends Reader {
+
+  private final Iterator<String> statements;
+
+  private final String delimiter;
+
+  private String current = "";
+
+  private int pos = 0;
+
+  public StatementReader(Iterable<String> statements) {
+    this(statements, ";");
+  }
+
+  /**
+   * @param delimiter
+   *          must match the delimiter of the environment.
+   */
+  public StatementReader(Iterable<String> statements, String delimiter) {
+    this.statements = statements.iterator();
+    this.delimiter = delimiter;
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (current == null) {
+      return -1;
+    }
+    while (pos >= current.length()) {
+      if (!statements.hasNext()) {
+        current = null;
+        return -1;
+      }
+      current = statements.next() + delimiter + '\n';
+      pos = 0;
+    }
+    int toCopy = Math.min(len, current.length() - pos);
+    current.getChars(pos, pos + toCopy, cbuf, off);
+    pos = pos + toCopy;
+    return toCopy;
+  }
+
+  @Override
+  public void close() throws IOException {
+    current = null;
+  }
+}
@@ -0,0 +1,291 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.lock;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.UUID;
+
+import org.apache.ibatis.jdbc.SqlRunner;
+import org.apache.ibatis.migration.ConnectionProvider;
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.options.DatabaseOperationOption;
+
+/**
+ * A lock stored in a table next to the changelog table (<code>CHANGELOG_LOCK</code> by default), so that only one of
+ * the processes sharing a database applies migrations at a time.
+ * <p>
+ * The lock is a single row holding the owner and the time until which the lock is valid. While the lock is held, a
+ * background thread renews it every {@link #setHeartbeatInterval(long) heartbeat interval}. If the owner dies without
+ * releasing it, the lock expires after the {@link #setLockTimeout(long) lock timeout} and is taken over by the next
+ * process trying to acquire it. Processes waiting for the lock poll the table every
+ * {@link #setPollInterval(long) poll interval} (with some jitter, so that they don't all query at the same time).
+ * <p>
+ * Expiration times are computed with the clocks of the processes, so the lock timeout must be large compared to the
+ * clock skew between them. The lock table is created on first use if it does not exist.
+ *
+ * @see org.apache.ibatis.migration.operations.UpOperation#operate(ConnectionProvider,
+ *      org.apache.ibatis.migration.MigrationLoader, DatabaseOperationOption, java.io.PrintStream,
+ *      org.apache.ibatis.migration.hook.MigrationHook, MigrationLock)
+ */
+public class MigrationLock {
+  private static final Integer LOCK_ID = 1;
+
+  private static final Random JITTER = new Random();
+
+  private final ConnectionProvider connectionProvider;
+  private final String lockTable;
+  private final String owner;
+
+  private long lockTimeout = 5 * 60 * 1000L;
+  private long heartbeatInterval = -1L;
+  private long waitTimeout = 30 * 60 * 1000L;
+  private long pollInterval = 1000L;
+
+  private Timer heartbeat;
+  private volatile boolean held;
+  private volatile long expiresAt;
+  private volatile boolean lockTableChecked;
+
+  public MigrationLock(ConnectionProvider connectionProvider, DatabaseOperationOption option) {
+    this(connectionProvider, option.getChangelogTable() + "_LOCK");
+  }
+
+  public MigrationLock(ConnectionProvider connectionProvider, String lockTable) {
+    this.connectionProvider = connectionProvider;
+    this.lockTable = lockTable;
+    this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+  }
+
+  /**
+   * @param lockTimeout
+   *          milliseconds after which a lock that was not renewed is considered stale and can be taken over. Defaults
+   *          to 5 minutes.
+   */
+  public void setLockTimeout(long lockTimeout) {
+    this.lockTimeout = lockTimeout;
+  }
+
+  /**
+   * @param heartbeatInterval
+   *          milliseconds between two renewals of a held lock. Defaults to a third of the lock timeout.
+   */
+  public void setHeartbeatInterval(long heartbeatInterval) {
+    this.heartbeatInterval = heartbeatInterval;
+  }
+
+  /**
+   * @param waitTimeout
+   *          maximum number of milliseconds {@link #acquire()} waits for the lock. Defaults to 30 minutes.
+   */
+  public void setWaitTimeout(long waitTimeout) {
+    this.waitTimeout = waitTimeout;
+  }
+
+  /**
+   * @param pollInterval
+   *          milliseconds between two attempts to acquire the lock. Defaults to 1 second.
+   */
+  public void setPollInterval(long pollInterval) {
+    this.pollInterval = pollInterval;
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  /**
+   * @return <code>true</code> if this lock is acquired and was renewed in time. Once the last successful renewal is
+   *         older than the lock timeout, another process may have taken the lock over, so it is no longer held.
+   */
+  public boolean isHeld() {
+    return held && System.currentTimeMillis() < expiresAt;
+  }
+
+  /**
+   * Blocks until the lock is acquired.
+   *
+   * @throws MigrationException
+   *           if the lock could not be acquired within the wait timeout.
+   */
+  public synchronized void acquire() {
+    if (held) {
+      throw new MigrationException("Migration lock " + lockTable + " is already held by " + owner + ".");
+    }
+    long deadline = System.currentTimeMillis() + waitTimeout;
+    while (!tryAcquire()) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        throw new MigrationException("Timed out waiting for migration lock " + lockTable + " held by "
+            + currentOwner() + ".");
+      }
+      try {
+        Thread.sleep(Math.min(remaining, pollInterval + (long) (JITTER.nextDouble() * pollInterval / 2)));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new MigrationException("Interrupted while waiting for migration lock " + lockTable + ".", e);
+      }
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the lock was free (or stale) and is now held by this instance.
+   */
+  public synchronized boolean tryAcquire() {
+    if (held) {
+      return false;
+    }
+    final long now = System.currentTimeMillis();
+    boolean acquired = execute(new LockAction<Boolean>() {
+      @Override
+      public Boolean run(SqlRunner runner) throws SQLException {
+        try {
+          runner.insert("insert into " + lockTable + " (ID, OWNER, EXPIRES_AT) values (?, ?, ?)", LOCK_ID, owner,
+              now + lockTimeout);
+          return true;
+        } catch (SQLException e) {
+          // held by another process, take it over if it was not renewed
+          return runner.update(
+              "update " + lockTable + " set OWNER = ?, EXPIRES_AT = ? where ID = ? and EXPIRES_AT < ?", owner,
+              now + lockTimeout, LOCK_ID, now) == 1;
+        }
+      }
+    });
+    if (acquired) {
+      expiresAt = now + lockTimeout;
+      held = true;
+      startHeartbeat();
+    }
+    return acquired;
+  }
+
+  /**
+   * Releases the lock if it is held by this instance.
+   */
+  public synchronized void release() {
+    stopHeartbeat();
+    if (!held) {
+      return;
+    }
+    held = false;
+    execute(new LockAction<Integer>() {
+      @Override
+      public Integer run(SqlRunner runner) throws SQLException {
+        return runner.delete("delete from " + lockTable + " where ID = ? and OWNER = ?", LOCK_ID, owner);
+      }
+    });
+  }
+
+  private synchronized void renew() {
+    if (!held) {
+      return;
+    }
+    final long now = System.currentTimeMillis();
+    try {
+      held = execute(new LockAction<Boolean>() {
+        @Override
+        public Boolean run(SqlRunner runner) throws SQLException {
+          return runner.update("update " + lockTable + " set EXPIRES_AT = ? where ID = ? and OWNER = ?",
+              now + lockTimeout, LOCK_ID, owner) == 1;
+        }
+      });
+      if (held) {
+        expiresAt = now + lockTimeout;
+      }
+    } catch (MigrationException e) {
+      // keep the lock, the next renewal may succeed before it expires
+    }
+    if (!held) {
+      stopHeartbeat();
+    }
+  }
+
+  private String currentOwner() {
+    return execute(new LockAction<String>() {
+      @Override
+      public String run(SqlRunner runner) throws SQLException {
+        List<Map<String, Object>> rows = runner.selectAll("select OWNER from " + lockTable + " where ID = ?", LOCK_ID);
+        return rows.isEmpty() ? "nobody" : String.valueOf(rows.get(0).get("OWNER"));
+      }
+    });
+  }
+
+  private void startHeartbeat() {
+    long interval = heartbeatInterval > 0 ? heartbeatInterval : Math.max(1L, lockTimeout / 3);
+    heartbeat = new Timer("migration-lock-heartbeat", true);
+    heartbeat.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        renew();
+      }
+    }, interval, interval);
+  }
+
+  private void stopHeartbeat() {
+    if (heartbeat != null) {
+      heartbeat.cancel();
+      heartbeat = null;
+    }
+  }
+
+  private <T> T execute(LockAction<T> action) {
+    try {
+      Connection connection = connectionProvider.getConnection();
+      try {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        try {
+          SqlRunner runner = new SqlRunner(connection);
+          if (!lockTableChecked) {
+            createLockTableIfNecessary(runner);
+            lockTableChecked = true;
+          }
+          return action.run(runner);
+        } finally {
+          connection.setAutoCommit(autoCommit);
+        }
+      } finally {
+        connection.close();
+      }
+    } catch (SQLException e) {
+      throw new MigrationException("Error accessing migration lock " + lockTable + ".  Cause: " + e, e);
+    }
+  }
+
+  private void createLockTableIfNecessary(SqlRunner runner) throws SQLException {
+    try {
+      runner.selectAll("select ID, OWNER, EXPIRES_AT from " + lockTable + " where ID = ?", LOCK_ID);
+    } catch (SQLException e) {
+      try {
+        runner.run("create table " + lockTable + " (ID INTEGER NOT NULL, OWNER VARCHAR(255) NOT NULL,"
+            + " EXPIRES_AT NUMERIC(20,0) NOT NULL, PRIMARY KEY (ID))");
+      } catch (SQLException e2) {
+        // created by another process in the meantime
+        runner.selectAll("select ID, OWNER, EXPIRES_AT from " + lockTable + " where ID = ?", LOCK_ID);
+      }
+    }
+  }
+
+  private interface LockAction<T> {
+    T run(SqlRunner runner) throws SQLException;
+  }
+}
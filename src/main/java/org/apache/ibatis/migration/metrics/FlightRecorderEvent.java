@@ -0,0 +1,339 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.metrics;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.migration.Change;
+
+/**
+ * A Java Flight Recorder event of the migration run.
+ * <p>
+ * The JFR API is only available on recent JVMs, so the event types are defined at runtime with
+ * <code>jdk.jfr.EventFactory</code>. They are named <code>org.apache.ibatis.migration.&lt;Type&gt;</code>, belong to
+ * the <code>MyBatis Migrations</code> category and have the following fields besides the duration:
+ * <code>changeId</code>, <code>fileName</code>, <code>scriptLength</code> (the number of characters read from the
+ * script) and <code>detail</code> (e.g. the SQL of a statement or the phase of a hook).
+ * <p>
+ * While no recording is running, or if JFR is not available, {@link #begin(Type)} returns a shared instance on which
+ * every method does nothing, so instrumented code neither allocates nor calls into JFR.
+ *
+ * <pre>
+ * FlightRecorderEvent event = FlightRecorderEvent.begin(Type.CHANGELOG_QUERY);
+ * try {
+ *   ...
+ * } finally {
+ *   event.detail("select").commit();
+ * }
+ * </pre>
+ */
+public final class FlightRecorderEvent {
+
+  public enum Type {
+    LOADER_SCAN("LoaderScan", "Loader Scan"),
+    MIGRATION_UP("MigrationUp", "Migration Applied"),
+    MIGRATION_DOWN("MigrationDown", "Migration Undone"),
+    STATEMENT("Statement", "Statement"),
+    CHANGELOG_QUERY("ChangelogQuery", "Changelog Query"),
+    HOOK("Hook", "Hook"),
+    ABORT("Abort", "On Abort Script");
+
+    private final String eventName;
+    private final String label;
+
+    private Type(String name, String label) {
+      this.eventName = "org.apache.ibatis.migration." + name;
+      this.label = label;
+    }
+
+    public String getEventName() {
+      return eventName;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+
+    boolean isMigration() {
+      return this == MIGRATION_UP || this == MIGRATION_DOWN;
+    }
+  }
+
+  private static final FlightRecorderEvent DISABLED = new FlightRecorderEvent(null, null);
+
+  // statements and hooks run by a migration report its ID
+  private static final ThreadLocal<Change> CURRENT_CHANGE = new ThreadLocal<Change>();
+
+  private static final Bridge BRIDGE = Bridge.create();
+
+  private static volatile boolean recording;
+
+  private final Type type;
+  private final Object event;
+
+  private Change change;
+  private String fileName;
+  private String detail;
+  private CountingReader reader;
+
+  private FlightRecorderEvent(Type type, Object event) {
+    this.type = type;
+    this.event = event;
+  }
+
+  /**
+   * @return <code>true</code> if a JFR recording is running.
+   */
+  public static boolean isRecording() {
+    return recording;
+  }
+
+  /**
+   * Starts timing an event. If the event is run by a migration on this thread, the migration is set as its change.
+   */
+  public static FlightRecorderEvent begin(Type type) {
+    if (!recording) {
+      return DISABLED;
+    }
+    Object event = BRIDGE.begin(type);
+    if (event == null) {
+      return DISABLED;
+    }
+    FlightRecorderEvent result = new FlightRecorderEvent(type, event);
+    result.change = CURRENT_CHANGE.get();
+    return result;
+  }
+
+  public FlightRecorderEvent change(Change change) {
+    if (event != null) {
+      this.change = change;
+      if (type.isMigration()) {
+        CURRENT_CHANGE.set(change);
+      }
+    }
+    return this;
+  }
+
+  public FlightRecorderEvent fileName(String fileName) {
+    if (event != null) {
+      this.fileName = fileName;
+    }
+    return this;
+  }
+
+  public FlightRecorderEvent detail(String detail) {
+    if (event != null) {
+      this.detail = detail;
+    }
+    return this;
+  }
+
+  /**
+   * @return a reader counting the characters read from <code>reader</code> as the script length of this event, or
+   *         <code>reader</code> itself if nothing is recorded.
+   */
+  public Reader count(Reader reader) {
+    if (event == null || reader == null) {
+      return reader;
+    }
+    this.reader = new CountingReader(reader);
+    return this.reader;
+  }
+
+  /**
+   * Ends the event and writes it to the running recordings.
+   */
+  public void commit() {
+    if (event == null) {
+      return;
+    }
+    if (type.isMigration()) {
+      CURRENT_CHANGE.remove();
+    }
+    String changeId = change == null || change.getId() == null ? null : change.getId().toString();
+    String file = fileName == null && change != null ? change.getFilename() : fileName;
+    BRIDGE.commit(event, changeId, file, reader == null ? -1L : reader.count, detail);
+  }
+
+  private static void updateRecordingState() {
+    recording = BRIDGE != null && BRIDGE.isRecording();
+  }
+
+  private static class CountingReader extends FilterReader {
+    private long count;
+
+    CountingReader(Reader in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int c = super.read();
+      if (c >= 0) {
+        count++;
+      }
+      return c;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      int n = super.read(cbuf, off, len);
+      if (n > 0) {
+        count += n;
+      }
+      return n;
+    }
+  }
+
+  /**
+   * Calls the JFR API through reflection, so that this class loads on any JVM.
+   */
+  private static final class Bridge implements InvocationHandler {
+    private static final String CATEGORY = "MyBatis Migrations";
+
+    private final Class<?> flightRecorderClass;
+    private final Method newEvent;
+    private final Method beginEvent;
+    private final Method setField;
+    private final Method commitEvent;
+    private final Map<Type, Object> factories = new EnumMap<Type, Object>(Type.class);
+
+    private Bridge() throws Exception {
+      flightRecorderClass = Class.forName("jdk.jfr.FlightRecorder");
+      Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+      Class<?> eventClass = Class.forName("jdk.jfr.Event");
+      newEvent = factoryClass.getMethod("newEvent");
+      beginEvent = eventClass.getMethod("begin");
+      setField = eventClass.getMethod("set", int.class, Object.class);
+      commitEvent = eventClass.getMethod("commit");
+    }
+
+    static Bridge create() {
+      try {
+        Bridge bridge = new Bridge();
+        Class<?> listenerClass = Class.forName("jdk.jfr.FlightRecorderListener");
+        Object listener = Proxy.newProxyInstance(FlightRecorderEvent.class.getClassLoader(),
+            new Class<?>[] { listenerClass }, bridge);
+        bridge.flightRecorderClass.getMethod("addListener", listenerClass).invoke(null, listener);
+        return bridge;
+      } catch (Throwable t) {
+        // JFR is not available on this JVM or access is denied
+        return null;
+      }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      String name = method.getName();
+      if ("equals".equals(name)) {
+        return proxy == args[0];
+      } else if ("hashCode".equals(name)) {
+        return System.identityHashCode(proxy);
+      } else if ("toString".equals(name)) {
+        return FlightRecorderEvent.class.getName() + "$Listener";
+      }
+      // recorderInitialized or recordingStateChanged
+      updateRecordingState();
+      return null;
+    }
+
+    boolean isRecording() {
+      try {
+        if (!(Boolean) flightRecorderClass.getMethod("isInitialized").invoke(null)) {
+          return false;
+        }
+        Object recorder = flightRecorderClass.getMethod("getFlightRecorder").invoke(null);
+        for (Object recording : (List<?>) flightRecorderClass.getMethod("getRecordings").invoke(recorder)) {
+          Object state = recording.getClass().getMethod("getState").invoke(recording);
+          if ("RUNNING".equals(state.toString())) {
+            return true;
+          }
+        }
+        return false;
+      } catch (Exception e) {
+        return false;
+      }
+    }
+
+    Object begin(Type type) {
+      try {
+        Object event = newEvent.invoke(getFactory(type));
+        beginEvent.invoke(event);
+        return event;
+      } catch (Exception e) {
+        return null;
+      }
+    }
+
+    void commit(Object event, String changeId, String fileName, long scriptLength, String detail) {
+      try {
+        setField.invoke(event, 0, changeId);
+        setField.invoke(event, 1, fileName);
+        setField.invoke(event, 2, scriptLength);
+        setField.invoke(event, 3, detail);
+        commitEvent.invoke(event);
+      } catch (Exception e) {
+        // events are best effort
+      }
+    }
+
+    private synchronized Object getFactory(Type type) throws Exception {
+      Object factory = factories.get(type);
+      if (factory == null) {
+        List<Object> annotations = new ArrayList<Object>();
+        annotations.add(annotation("jdk.jfr.Name", type.getEventName()));
+        annotations.add(annotation("jdk.jfr.Label", type.getLabel()));
+        annotations.add(annotation("jdk.jfr.Category", new String[] { CATEGORY }));
+        annotations.add(annotation("jdk.jfr.StackTrace", Boolean.FALSE));
+        List<Object> fields = Arrays.asList(field(String.class, "changeId", "Change ID"),
+            field(String.class, "fileName", "File Name"), field(long.class, "scriptLength", "Script Length"),
+            field(String.class, "detail", "Detail"));
+        factory = Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class).invoke(null,
+            annotations, fields);
+        factories.put(type, factory);
+      }
+      return factory;
+    }
+
+    private static Object annotation(String annotationClass, Object value) throws Exception {
+      Constructor<?> constructor = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class,
+          Object.class);
+      return constructor.newInstance(Class.forName(annotationClass).asSubclass(Annotation.class), value);
+    }
+
+    private static Object field(Class<?> type, String name, String label) throws Exception {
+      Constructor<?> constructor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class,
+          String.class, List.class);
+      return constructor.newInstance(type, name, Arrays.asList(annotation("jdk.jfr.Label", label)));
+    }
+  }
+
+  static {
+    updateRecordingState();
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts timed events and keeps their total, minimum and maximum duration together with a latency histogram.
+ * <p>
+ * The histogram has one bucket per upper bound of {@link #getBucketBounds()} and a last one for longer events. Timers
+ * are safe to update from several threads; a snapshot taken during updates may be off by the events in flight.
+ */
+public final class LatencyTimer {
+
+  private static final long[] BUCKET_BOUNDS = { 1, 5, 10, 50, 100, 500, 1000, 5000, 10000, 60000 };
+
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong minNanos = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong maxNanos = new AtomicLong();
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+  /**
+   * @return the inclusive upper bounds of the histogram buckets in milliseconds.
+   */
+  public static long[] getBucketBounds() {
+    return BUCKET_BOUNDS.clone();
+  }
+
+  public void record(long duration, TimeUnit unit) {
+    record(unit.toNanos(duration));
+  }
+
+  /**
+   * @param nanos
+   *          the duration of the event, as a difference of {@link System#nanoTime()} values.
+   */
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    count.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+    long min;
+    while (nanos < (min = minNanos.get()) && !minNanos.compareAndSet(min, nanos)) {
+      // retry
+    }
+    long max;
+    while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+      // retry
+    }
+    buckets.incrementAndGet(bucketIndex(nanos));
+  }
+
+  private static int bucketIndex(long nanos) {
+    for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+      if (nanos <= TimeUnit.MILLISECONDS.toNanos(BUCKET_BOUNDS[i])) {
+        return i;
+      }
+    }
+    return BUCKET_BOUNDS.length;
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public TimerSnapshot snapshot() {
+    long n = count.get();
+    long total = totalNanos.get();
+    long[] counts = new long[buckets.length()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = buckets.get(i);
+    }
+    return new TimerSnapshot(n, toMillis(total), n == 0 ? 0 : toMillis(minNanos.get()), toMillis(maxNanos.get()),
+        n == 0 ? 0 : toMillis(total) / n, getBucketBounds(), counts);
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / 1000000.0;
+  }
+}
@@ -0,0 +1,189 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Locale;
+
+import org.apache.ibatis.migration.events.MigrationEvents;
+
+/**
+ * Wraps a connection so that the statements it creates record their execution time in the
+ * <code>statement.&lt;type&gt;</code> timers of {@link MigrationMetrics}.
+ * <p>
+ * The type is derived from the first keyword of the SQL: <code>ddl</code>, <code>dml</code>, <code>query</code> or
+ * <code>other</code>. Batches are recorded as <code>statement.batch</code>. Each execution is also reported as a
+ * {@link FlightRecorderEvent} and a <code>statement</code> event of {@link MigrationEvents}, and recorded by the
+ * active {@link StatementProfiler}. Everything else is delegated to the wrapped connection and statements unchanged.
+ * <p>
+ * Wrapping adds reflective calls to every statement, so the operations only wrap their connections when
+ * {@link #isEnabled()}.
+ */
+public final class MeteredConnection {
+
+  private MeteredConnection() {
+    super();
+  }
+
+  /**
+   * @return <code>true</code> if the statements are consumed on this thread: statement timing is enabled in
+   *         {@link MigrationMetrics}, a {@link StatementProfiler} is active, a JFR recording is running or a
+   *         {@link MigrationEvents} sink is set.
+   */
+  public static boolean isEnabled() {
+    return MigrationMetrics.isStatementTimingEnabled() || StatementProfiler.getActive() != null
+        || FlightRecorderEvent.isRecording() || MigrationEvents.isEnabled();
+  }
+
+  public static Connection wrap(Connection connection, MigrationMetrics metrics) {
+    if (connection == null || Proxy.isProxyClass(connection.getClass())
+        && Proxy.getInvocationHandler(connection) instanceof ConnectionHandler) {
+      return connection;
+    }
+    return (Connection) Proxy.newProxyInstance(MeteredConnection.class.getClassLoader(),
+        new Class<?>[] { Connection.class }, new ConnectionHandler(connection, metrics));
+  }
+
+  /**
+   * @return the name of the timer of the statement, e.g. <code>statement.ddl</code>.
+   */
+  static String timerName(String sql) {
+    String keyword = firstKeyword(sql);
+    if ("CREATE".equals(keyword) || "ALTER".equals(keyword) || "DROP".equals(keyword) || "TRUNCATE".equals(keyword)
+        || "RENAME".equals(keyword) || "COMMENT".equals(keyword) || "GRANT".equals(keyword)
+        || "REVOKE".equals(keyword)) {
+      return "statement.ddl";
+    }
+    if ("INSERT".equals(keyword) || "UPDATE".equals(keyword) || "DELETE".equals(keyword) || "MERGE".equals(keyword)
+        || "UPSERT".equals(keyword) || "REPLACE".equals(keyword)) {
+      return "statement.dml";
+    }
+    if ("SELECT".equals(keyword) || "WITH".equals(keyword)) {
+      return "statement.query";
+    }
+    return "statement.other";
+  }
+
+  private static String firstKeyword(String sql) {
+    if (sql == null) {
+      return "";
+    }
+    int i = 0;
+    int length = sql.length();
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c) || c == '(') {
+        i++;
+      } else if (sql.startsWith("--", i)) {
+        int end = sql.indexOf('\n', i);
+        i = end < 0 ? length : end + 1;
+      } else if (sql.startsWith("/*", i)) {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? length : end + 2;
+      } else {
+        break;
+      }
+    }
+    int start = i;
+    while (i < length && Character.isLetter(sql.charAt(i))) {
+      i++;
+    }
+    return sql.substring(start, i).toUpperCase(Locale.ENGLISH);
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+
+  private static class ConnectionHandler implements InvocationHandler {
+    private final Connection connection;
+    private final MigrationMetrics metrics;
+
+    ConnectionHandler(Connection connection, MigrationMetrics metrics) {
+      this.connection = connection;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object result = MeteredConnection.invoke(connection, method, args);
+      if (result instanceof Statement) {
+        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+        Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+            : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return Proxy.newProxyInstance(MeteredConnection.class.getClassLoader(), new Class<?>[] { type },
+            new StatementHandler((Statement) result, sql, metrics));
+      }
+      return result;
+    }
+  }
+
+  private static class StatementHandler implements InvocationHandler {
+    private final Statement statement;
+    private final String preparedSql;
+    private final MigrationMetrics metrics;
+
+    StatementHandler(Statement statement, String preparedSql, MigrationMetrics metrics) {
+      this.statement = statement;
+      this.preparedSql = preparedSql;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (!name.startsWith("execute")) {
+        return MeteredConnection.invoke(statement, method, args);
+      }
+      String timer;
+      String sql;
+      if (name.endsWith("Batch")) {
+        timer = "statement.batch";
+        sql = preparedSql;
+      } else {
+        sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+        timer = timerName(sql);
+      }
+      long start = System.nanoTime();
+      FlightRecorderEvent event = FlightRecorderEvent.begin(FlightRecorderEvent.Type.STATEMENT).detail(sql);
+      boolean success = false;
+      try {
+        Object result = MeteredConnection.invoke(statement, method, args);
+        success = true;
+        return result;
+      } finally {
+        event.commit();
+        long nanos = metrics.recordSince(timer, start);
+        MigrationEvents.statement(timer.substring(timer.indexOf('.') + 1), sql, nanos, success);
+        StatementProfiler profiler = StatementProfiler.getActive();
+        if (profiler != null) {
+          profiler.record(sql, nanos);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.metrics;
+
+import static org.apache.ibatis.migration.utils.Util.appendJson;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.migration.MigrationException;
+
+/**
+ * Named {@link LatencyTimer}s updated by the operations.
+ * <p>
+ * The operations record into the shared instance returned by {@link #getInstance()}:
+ * <ul>
+ * <li><code>migration.up</code> and <code>migration.down</code> for every migration applied or undone, and
+ * <code>migration.up.&lt;ID&gt;</code> and <code>migration.down.&lt;ID&gt;</code> for each migration.</li>
+ * <li><code>statement.ddl</code>, <code>statement.dml</code>, <code>statement.query</code> and
+ * <code>statement.other</code> for every statement sent by a script runner, classified by its first keyword, and
+ * <code>statement.batch</code> for batches (see {@link MeteredConnection}).</li>
+ * <li><code>changelog.query</code>, <code>changelog.insert</code> and <code>changelog.delete</code> for the changelog
+ * table.</li>
+ * <li><code>hook.before</code>, <code>hook.beforeEach</code>, <code>hook.afterEach</code> and
+ * <code>hook.after</code> for the hooks that are run.</li>
+ * </ul>
+ * Timers are cumulative until {@link #reset()}. Embedding applications can expose them over JMX with
+ * {@link #registerMBean()}.
+ * <p>
+ * The statement timers are only recorded while statement timing is enabled, because it wraps every connection and
+ * statement of the script runners (see {@link MeteredConnection#isEnabled()}). {@link #registerMBean()} enables it,
+ * and so does {@link #setStatementTimingEnabled(boolean)} for applications that read the timers directly.
+ * <p>
+ * A command can collect its own timers, without resetting the shared ones, by setting a
+ * {@link #setCommandMetrics(MigrationMetrics) command registry} on its thread: what is recorded into the shared
+ * instance on that thread is recorded into the command registry as well.
+ */
+public class MigrationMetrics implements MigrationMetricsMXBean {
+
+  public static final String OBJECT_NAME = "org.apache.ibatis.migration:type=MigrationMetrics";
+
+  private static final MigrationMetrics INSTANCE = new MigrationMetrics();
+
+  private static final ThreadLocal<MigrationMetrics> COMMAND_METRICS = new ThreadLocal<MigrationMetrics>();
+
+  private static volatile boolean statementTimingEnabled;
+
+  private final ConcurrentMap<String, LatencyTimer> timers = new ConcurrentHashMap<String, LatencyTimer>();
+
+  public static MigrationMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Registers the shared instance with the platform MBean server, unless it is already registered, and enables
+   * statement timing. Embedding applications call it once, before running the operations.
+   */
+  public static void registerMBean() {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+    } catch (InstanceAlreadyExistsException e) {
+      // registered by an earlier call
+    } catch (JMException e) {
+      throw new MigrationException("Error registering " + OBJECT_NAME + ".  Cause: " + e, e);
+    }
+    statementTimingEnabled = true;
+  }
+
+  public static void unregisterMBean() {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.unregisterMBean(new ObjectName(OBJECT_NAME));
+    } catch (InstanceNotFoundException e) {
+      // not registered
+    } catch (JMException e) {
+      throw new MigrationException("Error unregistering " + OBJECT_NAME + ".  Cause: " + e, e);
+    }
+    statementTimingEnabled = false;
+  }
+
+  /**
+   * @return <code>true</code> if the statements are timed in the shared instance, or in the command registry of this
+   *         thread.
+   */
+  public static boolean isStatementTimingEnabled() {
+    return statementTimingEnabled || COMMAND_METRICS.get() != null;
+  }
+
+  public static void setStatementTimingEnabled(boolean enabled) {
+    statementTimingEnabled = enabled;
+  }
+
+  /**
+   * @param metrics
+   *          the registry that also receives what is recorded into the shared instance on this thread, or
+   *          <code>null</code> to stop.
+   */
+  public static void setCommandMetrics(MigrationMetrics metrics) {
+    if (metrics == null) {
+      COMMAND_METRICS.remove();
+    } else {
+      COMMAND_METRICS.set(metrics);
+    }
+  }
+
+  /**
+   * @return the timer with the specified name, created if it does not exist yet.
+   */
+  public LatencyTimer timer(String name) {
+    LatencyTimer timer = timers.get(name);
+    if (timer == null) {
+      LatencyTimer created = new LatencyTimer();
+      timer = timers.putIfAbsent(name, created);
+      if (timer == null) {
+        timer = created;
+      }
+    }
+    return timer;
+  }
+
+  /**
+   * Records the time elapsed since <code>startNanos</code>, a value of {@link System#nanoTime()}.
+   *
+   * @return the elapsed time in nanoseconds.
+   */
+  public long recordSince(String name, long startNanos) {
+    long nanos = System.nanoTime() - startNanos;
+    record(name, nanos);
+    return nanos;
+  }
+
+  /**
+   * Records a duration in nanoseconds, also into the command registry of this thread if this is the shared instance.
+   */
+  public void record(String name, long nanos) {
+    timer(name).record(nanos);
+    if (this == INSTANCE) {
+      MigrationMetrics commandMetrics = COMMAND_METRICS.get();
+      if (commandMetrics != null) {
+        commandMetrics.timer(name).record(nanos);
+      }
+    }
+  }
+
+  /**
+   * @return the current value of the timer, or <code>null</code> if nothing has been recorded under this name.
+   */
+  public TimerSnapshot getTimer(String name) {
+    LatencyTimer timer = timers.get(name);
+    return timer == null ? null : timer.snapshot();
+  }
+
+  @Override
+  public SortedMap<String, TimerSnapshot> getTimers() {
+    SortedMap<String, TimerSnapshot> snapshots = new TreeMap<String, TimerSnapshot>();
+    for (Entry<String, LatencyTimer> entry : timers.entrySet()) {
+      snapshots.put(entry.getKey(), entry.getValue().snapshot());
+    }
+    return snapshots;
+  }
+
+  @Override
+  public String getSummary() {
+    StringBuilder json = new StringBuilder();
+    json.append("{\"timers\":{");
+    boolean first = true;
+    for (Entry<String, TimerSnapshot> entry : getTimers().entrySet()) {
+      if (!first) {
+        json.append(',');
+      }
+      first = false;
+      appendJson(json, entry.getKey());
+      json.append(':');
+      appendTimer(json, entry.getValue());
+    }
+    json.append("}}");
+    return json.toString();
+  }
+
+  /**
+   * Writes the {@link #getSummary() summary} to the file, replacing its content.
+   */
+  public void writeSummary(File file) {
+    try {
+      Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+      try {
+        writer.write(getSummary());
+        writer.write(System.getProperty("line.separator"));
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      throw new MigrationException("Failed to write metrics file " + file.getAbsolutePath(), e);
+    }
+  }
+
+  @Override
+  public void reset() {
+    timers.clear();
+  }
+
+  private static void appendTimer(StringBuilder json, TimerSnapshot timer) {
+    json.append("{\"count\":").append(timer.getCount());
+    appendJson(json.append(",\"totalMillis\":"), timer.getTotalMillis());
+    appendJson(json.append(",\"minMillis\":"), timer.getMinMillis());
+    appendJson(json.append(",\"maxMillis\":"), timer.getMaxMillis());
+    appendJson(json.append(",\"meanMillis\":"), timer.getMeanMillis());
+    json.append(",\"buckets\":{");
+    long[] bounds = timer.getBucketBoundsMillis();
+    long[] counts = timer.getBucketCounts();
+    for (int i = 0; i < counts.length; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append('"').append(i < bounds.length ? String.valueOf(bounds[i]) : "+Inf").append("\":").append(counts[i]);
+    }
+    json.append("}}");
+  }
+}
@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link MigrationMetrics}, registered as
+ * <code>org.apache.ibatis.migration:type=MigrationMetrics</code>.
+ */
+public interface MigrationMetricsMXBean {
+
+  /**
+   * @return the current value of every timer, keyed and sorted by name.
+   */
+  Map<String, TimerSnapshot> getTimers();
+
+  /**
+   * @return the timers as a JSON document.
+   */
+  String getSummary();
+
+  /**
+   * Discards all timers.
+   */
+  void reset();
+}
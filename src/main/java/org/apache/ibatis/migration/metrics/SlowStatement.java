@@ -0,0 +1,76 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.metrics;
+
+/**
+ * A statement recorded by {@link StatementProfiler}.
+ */
+public class SlowStatement implements Comparable<SlowStatement> {
+
+  private final String changeId;
+  private final String fileName;
+  private final int line;
+  private final String sql;
+  private final long durationNanos;
+
+  public SlowStatement(String changeId, String fileName, int line, String sql, long durationNanos) {
+    super();
+    this.changeId = changeId;
+    this.fileName = fileName;
+    this.line = line;
+    this.sql = sql;
+    this.durationNanos = durationNanos;
+  }
+
+  /**
+   * @return the ID of the migration that ran the statement, or <code>null</code> if it was not run by a migration
+   *         (e.g. by a hook).
+   */
+  public String getChangeId() {
+    return changeId;
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  /**
+   * @return the line of the script on which the statement ends, or <code>0</code> if unknown.
+   */
+  public int getLine() {
+    return line;
+  }
+
+  /**
+   * @return the SQL of the statement, truncated.
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  public double getDurationMillis() {
+    return durationNanos / 1000000.0;
+  }
+
+  @Override
+  public int compareTo(SlowStatement other) {
+    return durationNanos < other.durationNanos ? -1 : durationNanos == other.durationNanos ? 0 : 1;
+  }
+}
@@ -0,0 +1,258 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.metrics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.MigrationException;
+
+/**
+ * Keeps the slowest statements executed by the script runners of the operations.
+ * <p>
+ * While a profiler is {@link #setActive(StatementProfiler) active}, every statement is timed (see
+ * {@link MeteredConnection}) and the <code>size</code> slowest ones are kept in a bounded heap, along with the
+ * migration that ran them, the line of the script on which they end and the beginning of their SQL.
+ * <p>
+ * The line is known for migration scripts run by the operations: the script is handed to the script runner one line
+ * per read, so that the profiler knows how many lines the runner has consumed when a statement is executed.
+ */
+public class StatementProfiler {
+
+  public static final int DEFAULT_SIZE = 20;
+
+  static final int MAX_SQL_LENGTH = 120;
+
+  private static volatile StatementProfiler active;
+
+  private static final ThreadLocal<ScriptPosition> POSITION = new ThreadLocal<ScriptPosition>();
+
+  private final int size;
+  private final PriorityQueue<SlowStatement> slowest;
+  private long count;
+  private long totalNanos;
+
+  public StatementProfiler() {
+    this(DEFAULT_SIZE);
+  }
+
+  /**
+   * @param size
+   *          the number of statements kept.
+   */
+  public StatementProfiler(int size) {
+    super();
+    if (size < 1) {
+      throw new IllegalArgumentException("size must be positive.");
+    }
+    this.size = size;
+    this.slowest = new PriorityQueue<SlowStatement>(size + 1);
+  }
+
+  /**
+   * @return the profiler recording the statements, or <code>null</code>.
+   */
+  public static StatementProfiler getActive() {
+    return active;
+  }
+
+  /**
+   * @param profiler
+   *          the profiler recording the statements of all operations, or <code>null</code> to stop profiling.
+   */
+  public static void setActive(StatementProfiler profiler) {
+    active = profiler;
+  }
+
+  /**
+   * Marks the beginning of the script of a migration on this thread, if a profiler is active.
+   */
+  public static void enterScript(Change change) {
+    if (active != null) {
+      POSITION.set(new ScriptPosition(change));
+    }
+  }
+
+  public static void exitScript() {
+    if (active != null || POSITION.get() != null) {
+      POSITION.remove();
+    }
+  }
+
+  /**
+   * @return a reader that tracks the current line of the script entered on this thread, or <code>reader</code> if
+   *         there is none. The returned reader must be read by the script runner directly.
+   */
+  public static Reader trackLines(Reader reader) {
+    ScriptPosition position = POSITION.get();
+    return position == null ? reader : new LineReader(new BufferedReader(reader), position);
+  }
+
+  public synchronized void record(String sql, long nanos) {
+    count++;
+    totalNanos += nanos;
+    if (slowest.size() == size && slowest.peek().getDurationNanos() >= nanos) {
+      return;
+    }
+    ScriptPosition position = POSITION.get();
+    Change change = position == null ? null : position.change;
+    slowest.add(new SlowStatement(change == null || change.getId() == null ? null : change.getId().toString(),
+        change == null ? null : change.getFilename(), position == null ? 0 : position.line, truncate(sql), nanos));
+    if (slowest.size() > size) {
+      slowest.poll();
+    }
+  }
+
+  /**
+   * @return the slowest statements, the slowest first.
+   */
+  public synchronized List<SlowStatement> getSlowest() {
+    List<SlowStatement> statements = new ArrayList<SlowStatement>(slowest);
+    Collections.sort(statements, Collections.reverseOrder());
+    return statements;
+  }
+
+  public synchronized long getCount() {
+    return count;
+  }
+
+  public synchronized long getTotalNanos() {
+    return totalNanos;
+  }
+
+  public void printReport(PrintWriter out) {
+    List<SlowStatement> statements = getSlowest();
+    out.printf(Locale.ROOT, "-- Slowest statements: %d of %d, %.3fs in total%n", statements.size(), getCount(),
+        getTotalNanos() / 1000000000.0);
+    if (statements.isEmpty()) {
+      return;
+    }
+    out.printf(Locale.ROOT, "-- %3s %12s  %-40s %6s  %s%n", "#", "Time (ms)", "Migration", "Line", "SQL");
+    int rank = 1;
+    for (SlowStatement statement : statements) {
+      String migration = statement.getFileName() == null ? "-" : statement.getFileName();
+      out.printf(Locale.ROOT, "-- %3d %12.3f  %-40s %6s  %s%n", rank++, statement.getDurationMillis(), migration,
+          statement.getLine() > 0 ? String.valueOf(statement.getLine()) : "-", statement.getSql());
+    }
+    out.flush();
+  }
+
+  public void writeReport(File file) {
+    try {
+      PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+      try {
+        printReport(out);
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      throw new MigrationException("Failed to write profile report " + file.getAbsolutePath(), e);
+    }
+  }
+
+  static String truncate(String sql) {
+    if (sql == null) {
+      return null;
+    }
+    String singleLine = sql.trim().replaceAll("\\s+", " ");
+    return singleLine.length() <= MAX_SQL_LENGTH ? singleLine : singleLine.substring(0, MAX_SQL_LENGTH - 3) + "...";
+  }
+
+  private static class ScriptPosition {
+    private final Change change;
+    private int line;
+
+    ScriptPosition(Change change) {
+      this.change = change;
+    }
+  }
+
+  /**
+   * Returns at most one line per read, so that a buffered reader on top of it does not read ahead of the line being
+   * parsed.
+   */
+  private static class LineReader extends FilterReader {
+    private final ScriptPosition position;
+    private boolean lineEnded = true;
+
+    LineReader(Reader in, ScriptPosition position) {
+      super(in);
+      this.position = position;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int c = super.read();
+      if (c >= 0) {
+        count((char) c);
+      }
+      return c;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      int n = 0;
+      while (n < len) {
+        int c = super.read();
+        if (c < 0) {
+          return n == 0 ? -1 : n;
+        }
+        cbuf[off + n++] = (char) c;
+        count((char) c);
+        if (c == '\n') {
+          break;
+        }
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = 0;
+      while (skipped < n && read() >= 0) {
+        skipped++;
+      }
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    private void count(char c) {
+      if (lineEnded) {
+        position.line++;
+        lineEnded = false;
+      }
+      if (c == '\n') {
+        lineEnded = true;
+      }
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The values of a {@link LatencyTimer} at some point in time. Durations are in milliseconds.
+ * <p>
+ * <code>bucketCounts[i]</code> is the number of events that took at most <code>bucketBoundsMillis[i]</code> (and more
+ * than the previous bound); the last count is the number of events longer than the last bound.
+ */
+public class TimerSnapshot {
+
+  private final long count;
+  private final double totalMillis;
+  private final double minMillis;
+  private final double maxMillis;
+  private final double meanMillis;
+  private final long[] bucketBoundsMillis;
+  private final long[] bucketCounts;
+
+  @ConstructorProperties({ "count", "totalMillis", "minMillis", "maxMillis", "meanMillis", "bucketBoundsMillis",
+      "bucketCounts" })
+  public TimerSnapshot(long count, double totalMillis, double minMillis, double maxMillis, double meanMillis,
+      long[] bucketBoundsMillis, long[] bucketCounts) {
+    super();
+    this.count = count;
+    this.totalMillis = totalMillis;
+    this.minMillis = minMillis;
+    this.maxMillis = maxMillis;
+    this.meanMillis = meanMillis;
+    this.bucketBoundsMillis = bucketBoundsMillis.clone();
+    this.bucketCounts = bucketCounts.clone();
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getTotalMillis() {
+    return totalMillis;
+  }
+
+  public double getMinMillis() {
+    return minMillis;
+  }
+
+  public double getMaxMillis() {
+    return maxMillis;
+  }
+
+  public double getMeanMillis() {
+    return meanMillis;
+  }
+
+  public long[] getBucketBoundsMillis() {
+    return bucketBoundsMillis.clone();
+  }
+
+  public long[] getBucketCounts() {
+    return bucketCounts.clone();
+  }
+}
@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.operations;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.ConnectionProvider;
+import org.apache.ibatis.migration.MigrationLoader;
+import org.apache.ibatis.migration.options.DatabaseOperationOption;
+import org.apache.ibatis.migration.options.SelectedOptions;
+import org.apache.ibatis.migration.timing.MigrationTimings;
+
+/**
+ * Runs operations on an {@link Executor} supplied by the caller and returns their {@link OperationResult results}
+ * as {@link Future}s.
+ * <p>
+ * Each submitted operation uses its own connection from the connection provider, operation instance and output, so
+ * an instance can be shared between threads and several environments can be migrated concurrently by using one
+ * instance per environment. The migration loader and the option are shared and must not be modified once the
+ * instance is created.
+ */
+public class AsyncOperations {
+  private static final String CHARSET = "UTF-8";
+
+  private final ConnectionProvider connectionProvider;
+  private final MigrationLoader migrationLoader;
+  private final DatabaseOperationOption option;
+  private final Executor executor;
+
+  public AsyncOperations(ConnectionProvider connectionProvider, MigrationLoader migrationLoader,
+      DatabaseOperationOption option, Executor executor) {
+    super();
+    this.connectionProvider = connectionProvider;
+    this.migrationLoader = migrationLoader;
+    this.option = option == null ? new DatabaseOperationOption() : option;
+    this.executor = executor;
+  }
+
+  public Future<OperationResult> bootstrap() {
+    return submit("bootstrap", new Task() {
+      @Override
+      public void run(Connection connection, PrintStream printStream) {
+        new BootstrapOperation().operate(connection, migrationLoader, option, printStream);
+      }
+    });
+  }
+
+  public Future<OperationResult> status() {
+    return submit("status", null);
+  }
+
+  /**
+   * @param steps
+   *          the number of migrations to apply, <code>null</code> to apply all of them.
+   */
+  public Future<OperationResult> up(final Integer steps) {
+    return submit("up", new Task() {
+      @Override
+      public void run(Connection connection, PrintStream printStream) {
+        // in-memory timings, only used to print the progress
+        new UpOperation(steps, new SelectedOptions(), new MigrationTimings()).operate(connection, migrationLoader,
+            option, printStream);
+      }
+    });
+  }
+
+  /**
+   * @param steps
+   *          the number of migrations to undo, <code>null</code> to undo the last one.
+   */
+  public Future<OperationResult> down(final Integer steps) {
+    return submit("down", new Task() {
+      @Override
+      public void run(Connection connection, PrintStream printStream) {
+        new DownOperation(steps).operate(connection, migrationLoader, option, printStream);
+      }
+    });
+  }
+
+  public Future<OperationResult> version(final BigDecimal version) {
+    return submit("version", new Task() {
+      @Override
+      public void run(Connection connection, PrintStream printStream) {
+        new VersionOperation(version).operate(connection, migrationLoader, option, printStream);
+      }
+    });
+  }
+
+  public Future<OperationResult> pending() {
+    return submit("pending", new Task() {
+      @Override
+      public void run(Connection connection, PrintStream printStream) {
+        new PendingOperation().operate(connection, migrationLoader, option, printStream);
+      }
+    });
+  }
+
+  private Future<OperationResult> submit(final String name, final Task task) {
+    FutureTask<OperationResult> future = new FutureTask<OperationResult>(new Callable<OperationResult>() {
+      @Override
+      public OperationResult call() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(output, true, CHARSET);
+        long start = System.currentTimeMillis();
+        Connection connection = connectionProvider.getConnection();
+        OperationRecorder recorder = OperationRecorder.start();
+        try {
+          if (task != null) {
+            task.run(connection, printStream);
+          }
+          List<Change> status = new StatusOperation().operate(connection, migrationLoader, option, null)
+              .getCurrentStatus();
+          printStream.flush();
+          return new OperationResult(name, recorder.getApplied(), recorder.getReverted(), status,
+              recorder.getExecutionTimes(), System.currentTimeMillis() - start, output.toString(CHARSET),
+              recorder.getWarnings());
+        } finally {
+          OperationRecorder.stop();
+          connection.close();
+        }
+      }
+    });
+    executor.execute(future);
+    return future;
+  }
+
+  private interface Task {
+    void run(Connection connection, PrintStream printStream);
+  }
+}
@@ -15,7 +15,6 @@
  */
 package org.apache.ibatis.migration.operations;
 
-import static java.lang.System.out;
 import org.apache.ibatis.jdbc.ScriptRunner;
 import org.apache.ibatis.migration.MigrationLoader;
 import org.apache.ibatis.migration.options.DatabaseOperationOption;
@@ -44,21 +43,21 @@ public final class BootstrapOperation extends DatabaseOperation {
     }
     if (changelogExists(connection, option)) {
       if (force) {
-        bootstrap(migrationsLoader, getScriptRunner(connection, option, printStream));
+        bootstrap(migrationsLoader, getScriptRunner(connection, option, printStream), printStream);
       } else {
         printStream.println("For your safety, the bootstrapping will only run before migrations are applied "
             + "(i.e. before the changelog exists).  If you're certain, you can run it " + "using the --force option.");
       }
     } else {
-      bootstrap(migrationsLoader, getScriptRunner(connection, option, printStream));
+      bootstrap(migrationsLoader, getScriptRunner(connection, option, printStream), printStream);
     }
     return this;
   }
 
-  private void bootstrap(MigrationLoader migrationLoader, ScriptRunner runner) {
+  private void bootstrap(MigrationLoader migrationLoader, ScriptRunner runner, PrintStream printStream) {
 
     for (Reader bootstrapReader : migrationLoader.getBootstrapReaders()) {
-      out.println(horizontalLine("Bootstrapping: " + bootstrapReader, 80));
+      println(printStream, horizontalLine("Bootstrapping: " + bootstrapReader, 80));
       runner.runScript(bootstrapReader);
     }
   }
@@ -17,6 +17,7 @@ package org.apache.ibatis.migration.operations;
 
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -24,10 +25,19 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import org.apache.ibatis.jdbc.RuntimeSqlException;
 import org.apache.ibatis.jdbc.ScriptRunner;
 import org.apache.ibatis.jdbc.SqlRunner;
 import org.apache.ibatis.migration.Change;
 import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.events.MigrationEvents;
+import org.apache.ibatis.migration.io.JdbcScriptReader;
+import org.apache.ibatis.migration.io.TemplateReader;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent.Type;
+import org.apache.ibatis.migration.metrics.MeteredConnection;
+import org.apache.ibatis.migration.metrics.MigrationMetrics;
+import org.apache.ibatis.migration.metrics.StatementProfiler;
 import org.apache.ibatis.migration.options.DatabaseOperationOption;
 
 public abstract class DatabaseOperation {
@@ -35,45 +45,77 @@ public abstract class DatabaseOperation {
   protected void insertChangelog(Change change, Connection connection, DatabaseOperationOption option) {
     SqlRunner runner = getSqlRunner(connection);
     change.setAppliedTimestamp(generateAppliedTimeStampAsString());
+    long start = System.nanoTime();
+    FlightRecorderEvent event = FlightRecorderEvent.begin(Type.CHANGELOG_QUERY).change(change).detail("insert");
     try {
       runner.insert("insert into " + option.getChangelogTable() + " (ID, APPLIED_AT, DESCRIPTION) values (?,?,?)",
           change.getId(), change.getAppliedTimestamp(), change.getDescription());
       connection.commit();
+      OperationRecorder.applied(change);
     } catch (SQLException e) {
       throw new MigrationException("Error querying last applied migration.  Cause: " + e, e);
+    } finally {
+      event.commit();
+      MigrationMetrics.getInstance().recordSince("changelog.insert", start);
     }
   }
 
   protected Change getLastAppliedChange(Connection connection, DatabaseOperationOption option) {
-    List<Change> changelog = getChangelog(connection, option);
-    return changelog.isEmpty() ? null : changelog.get(changelog.size() - 1);
+    SqlRunner runner = getSqlRunner(connection);
+    long start = System.nanoTime();
+    FlightRecorderEvent event = FlightRecorderEvent.begin(Type.CHANGELOG_QUERY).detail("select last");
+    try {
+      // only read the high-water mark, the changelog can be long
+      List<Map<String, Object>> changelog = runner.selectAll("select ID, APPLIED_AT, DESCRIPTION from "
+          + option.getChangelogTable() + " where ID = (select max(ID) from " + option.getChangelogTable() + ")");
+      return changelog.isEmpty() ? null : toChange(changelog.get(0));
+    } catch (SQLException e) {
+      throw new MigrationException("Error querying last applied migration.  Cause: " + e, e);
+    } finally {
+      event.commit();
+      MigrationMetrics.getInstance().recordSince("changelog.query", start);
+    }
   }
 
   protected List<Change> getChangelog(Connection connection, DatabaseOperationOption option) {
     SqlRunner runner = getSqlRunner(connection);
+    long start = System.nanoTime();
+    FlightRecorderEvent event = FlightRecorderEvent.begin(Type.CHANGELOG_QUERY).detail("select all");
     try {
       List<Map<String, Object>> changelog = runner
           .selectAll("select ID, APPLIED_AT, DESCRIPTION from " + option.getChangelogTable() + " order by ID");
       List<Change> changes = new ArrayList<Change>();
       for (Map<String, Object> change : changelog) {
-        String id = change.get("ID") == null ? null : change.get("ID").toString();
-        String appliedAt = change.get("APPLIED_AT") == null ? null : change.get("APPLIED_AT").toString();
-        String description = change.get("DESCRIPTION") == null ? null : change.get("DESCRIPTION").toString();
-        changes.add(new Change(new BigDecimal(id), appliedAt, description));
+        changes.add(toChange(change));
       }
       return changes;
     } catch (SQLException e) {
       throw new MigrationException("Error querying last applied migration.  Cause: " + e, e);
+    } finally {
+      event.commit();
+      MigrationMetrics.getInstance().recordSince("changelog.query", start);
     }
   }
 
+  private Change toChange(Map<String, Object> change) {
+    String id = change.get("ID") == null ? null : change.get("ID").toString();
+    String appliedAt = change.get("APPLIED_AT") == null ? null : change.get("APPLIED_AT").toString();
+    String description = change.get("DESCRIPTION") == null ? null : change.get("DESCRIPTION").toString();
+    return new Change(new BigDecimal(id), appliedAt, description);
+  }
+
   protected boolean changelogExists(Connection connection, DatabaseOperationOption option) {
     SqlRunner runner = getSqlRunner(connection);
+    long start = System.nanoTime();
+    FlightRecorderEvent event = FlightRecorderEvent.begin(Type.CHANGELOG_QUERY).detail("exists");
     try {
       runner.selectAll("select ID, APPLIED_AT, DESCRIPTION from " + option.getChangelogTable());
       return true;
     } catch (SQLException e) {
       return false;
+    } finally {
+      event.commit();
+      MigrationMetrics.getInstance().recordSince("changelog.query", start);
     }
   }
 
@@ -83,9 +125,20 @@ public abstract class DatabaseOperation {
 
   protected ScriptRunner getScriptRunner(Connection connection, DatabaseOperationOption option,
       PrintStream printStream) {
+    return createScriptRunner(connection, option, printStream);
+  }
+
+  /**
+   * @return a script runner configured by the option that logs to the print stream. The statements it sends are
+   *         timed by {@link MigrationMetrics} if {@link MeteredConnection#isEnabled()}.
+   */
+  public static ScriptRunner createScriptRunner(Connection connection, DatabaseOperationOption option,
+      PrintStream printStream) {
     try {
       PrintWriter outWriter = printStream == null ? null : new PrintWriter(printStream);
-      ScriptRunner scriptRunner = new ScriptRunner(connection);
+      ScriptRunner scriptRunner = new ScriptRunner(
+          MeteredConnection.isEnabled() ? MeteredConnection.wrap(connection, MigrationMetrics.getInstance())
+              : connection);
       scriptRunner.setLogWriter(outWriter);
       scriptRunner.setErrorLogWriter(outWriter);
       scriptRunner.setStopOnError(option.isStopOnError());
@@ -102,6 +155,80 @@ public abstract class DatabaseOperation {
     }
   }
 
+  /**
+   * Runs a migration script, or executes it on the connection if the loader returned a {@link JdbcScriptReader}. In
+   * both cases, the statements are timed as by {@link #createScriptRunner}.
+   *
+   * @param hookBindings
+   *          variables substituted in the script, or <code>null</code> to run it as is.
+   */
+  protected void runMigrationScript(ScriptRunner runner, Connection connection, DatabaseOperationOption option,
+      Reader scriptReader, Map<String, Object> hookBindings) {
+    if (scriptReader instanceof JdbcScriptReader) {
+      executeJdbcScript((JdbcScriptReader) scriptReader, connection, option);
+    } else {
+      Reader reader = hookBindings == null ? scriptReader : new TemplateReader(scriptReader, hookBindings);
+      runner.runScript(StatementProfiler.trackLines(reader));
+    }
+  }
+
+  /**
+   * Runs the script of a migration with {@link #runMigrationScript} and records its execution time in the
+   * <code>migration.&lt;up|down&gt;</code> and <code>migration.&lt;up|down&gt;.&lt;ID&gt;</code> timers of
+   * {@link MigrationMetrics}, as a {@link FlightRecorderEvent} and as <code>changeStart</code> and
+   * <code>changeEnd</code> {@link MigrationEvents}.
+   *
+   * @param undo
+   *          <code>true</code> if the migration is undone.
+   * @return the execution time in milliseconds.
+   */
+  protected long runMigration(Change change, boolean undo, ScriptRunner runner, Connection connection,
+      DatabaseOperationOption option, Reader scriptReader, Map<String, Object> hookBindings) {
+    String direction = undo ? "down" : "up";
+    FlightRecorderEvent event = FlightRecorderEvent.begin(undo ? Type.MIGRATION_DOWN : Type.MIGRATION_UP)
+        .change(change);
+    MigrationEvents.changeStart(direction, change);
+    StatementProfiler.enterScript(change);
+    long start = System.nanoTime();
+    try {
+      runMigrationScript(runner, connection, option,
+          scriptReader instanceof JdbcScriptReader ? scriptReader : event.count(scriptReader), hookBindings);
+    } finally {
+      StatementProfiler.exitScript();
+      event.commit();
+    }
+    MigrationMetrics metrics = MigrationMetrics.getInstance();
+    long nanos = metrics.recordSince("migration." + direction, start);
+    metrics.record("migration." + direction + "." + change.getId(), nanos);
+    MigrationEvents.changeEnd(direction, change, nanos);
+    OperationRecorder.executed(change, undo, nanos / 1000000L);
+    return nanos / 1000000L;
+  }
+
+  private void executeJdbcScript(JdbcScriptReader scriptReader, Connection connection,
+      DatabaseOperationOption option) {
+    try {
+      if (connection.getAutoCommit() != option.isAutoCommit()) {
+        connection.setAutoCommit(option.isAutoCommit());
+      }
+      boolean success = false;
+      try {
+        scriptReader.execute(MeteredConnection.isEnabled()
+            ? MeteredConnection.wrap(connection, MigrationMetrics.getInstance()) : connection);
+        if (!connection.getAutoCommit()) {
+          connection.commit();
+        }
+        success = true;
+      } finally {
+        if (!success && !connection.getAutoCommit()) {
+          connection.rollback();
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeSqlException("Error executing Java migration.  Cause: " + e, e);
+    }
+  }
+
   public static String generateAppliedTimeStampAsString() {
     return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new java.sql.Date(System.currentTimeMillis()));
   }
@@ -117,4 +244,13 @@ public abstract class DatabaseOperation {
       printStream.println(text);
     }
   }
+
+  /**
+   * Prints the warning prefixed with <code>WARNING: </code> and reports it in the
+   * {@link OperationResult#getWarnings() result} of an asynchronous operation.
+   */
+  protected void warn(PrintStream printStream, String warning) {
+    println(printStream, "WARNING: " + warning);
+    OperationRecorder.warning(warning);
+  }
 }
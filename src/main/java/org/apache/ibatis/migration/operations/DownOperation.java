@@ -16,10 +16,10 @@
 package org.apache.ibatis.migration.operations;
 
 import java.io.PrintStream;
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -28,9 +28,11 @@ import org.apache.ibatis.jdbc.SqlRunner;
 import org.apache.ibatis.migration.Change;
 import org.apache.ibatis.migration.MigrationException;
 import org.apache.ibatis.migration.MigrationLoader;
-import org.apache.ibatis.migration.io.TemplateReader;
-import org.apache.ibatis.migration.hook.HookContext;
+import org.apache.ibatis.migration.events.MigrationEvents;
 import org.apache.ibatis.migration.hook.MigrationHook;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent.Type;
+import org.apache.ibatis.migration.metrics.MigrationMetrics;
 import org.apache.ibatis.migration.options.DatabaseOperationOption;
 import org.apache.ibatis.migration.options.SelectedOptions;
 import org.apache.ibatis.migration.utils.Util;
@@ -40,6 +42,7 @@ import static java.util.Arrays.asList;
 public final class DownOperation extends DatabaseOperation {
   private final SelectedOptions options;
   private final Integer steps;
+  private final BigDecimal targetVersion;
 
   public DownOperation() {
     this(null, new SelectedOptions());
@@ -50,8 +53,18 @@ public final class DownOperation extends DatabaseOperation {
   }
 
   public DownOperation(Integer steps, SelectedOptions options) {
+    this(steps, options, null);
+  }
+
+  /**
+   * @param targetVersion
+   *          when not <code>null</code>, migrations are undone until this version is the last applied one and
+   *          <code>steps</code> only acts as an additional limit.
+   */
+  DownOperation(Integer steps, SelectedOptions options, BigDecimal targetVersion) {
     this.options = options;
     this.steps = steps;
+    this.targetVersion = targetVersion;
   }
 
   public DownOperation operate(Connection connection, MigrationLoader migrationsLoader, DatabaseOperationOption option,
@@ -65,77 +78,112 @@ public final class DownOperation extends DatabaseOperation {
       if (option == null) {
         option = new DatabaseOperationOption();
       }
-      Change lastChange = getLastAppliedChange(connection, option);
-      if (lastChange == null) {
+      List<Change> changelog = getChangelog(connection, option);
+      if (changelog.isEmpty()) {
         println(printStream, "Changelog exist, but no migration found.");
       } else {
+        int changelogIndex = changelog.size() - 1;
+        Change lastChange = changelog.get(changelogIndex);
         List<Change> migrations = migrationsLoader.getMigrations();
         Collections.sort(migrations);
         Collections.reverse(migrations);
+        long runStart = System.currentTimeMillis();
+        MigrationEvents.runStart("down", countToUndo(changelog));
         int stepCount = 0;
         ScriptRunner runner = getScriptRunner(connection, option, printStream);
 
-        Map<String, Object> hookBindings = new HashMap<String, Object>();
-        hookBindings.put("args", Collections.unmodifiableList(asList(options.getParams())));
-        hookBindings.put("quiet", options.isQuiet());
-        hookBindings.put("printStream", printStream);
+        HookInvoker hooks = new HookInvoker(hook, null, connection, runner);
 
-        for (Change change : migrations) {
-          if (change.getId().equals(lastChange.getId())) {
-            if (stepCount == 0 && hook != null) {
-              hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connection, runner, null));
-              hook.before(hookBindings);
-            }
-            if (hook != null) {
-              hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connection, runner, change.clone()));
-              hook.beforeEach(hookBindings);
-            }
-            System.out.println(Util.horizontalLine("Undoing: " + change.getFilename(), 80));
-
-            long start = System.currentTimeMillis();
-            runner.runScript(new TemplateReader(migrationsLoader.getRollbackReader(change), hookBindings));
-            long end = System.currentTimeMillis();
-
-            if (changelogExists(connection, option)) {
-              deleteChange(connection, change, option);
-            } else {
-              println(printStream,
-                  "Changelog doesn't exist. No further migrations will be undone (normal for the last migration).");
-              stepCount = steps;
-            }
-            println(printStream);
-            if (hook != null) {
-              hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connection, runner, change.clone()));
-              hookBindings.put("executionTime", end - start);
-              hook.afterEach(hookBindings);
-            }
-            stepCount++;
-            if (steps == null || stepCount >= steps) {
+        try {
+          for (Change change : migrations) {
+            if (targetVersion != null && change.getId().compareTo(targetVersion) <= 0) {
               break;
             }
-            lastChange = getLastAppliedChange(connection, option);
+            if (change.getId().equals(lastChange.getId())) {
+              if (stepCount == 0) {
+                bindOptions(hooks.getBindings(), printStream);
+                hooks.before();
+              }
+              hooks.beforeEach(change);
+              println(printStream, Util.horizontalLine("Undoing: " + change.getFilename(), 80));
+
+              long executionTime = runMigration(change, true, runner, connection, option,
+                  migrationsLoader.getRollbackReader(change), hooks.getBindings());
+
+              boolean changelogDropped = false;
+              if (changelogExists(connection, option)) {
+                deleteChange(connection, change, option);
+              } else {
+                println(printStream,
+                    "Changelog doesn't exist. No further migrations will be undone (normal for the last migration).");
+                changelogDropped = true;
+              }
+              OperationRecorder.reverted(change);
+              println(printStream);
+              hooks.afterEach(change, executionTime);
+              stepCount++;
+              if (changelogDropped || --changelogIndex < 0) {
+                break;
+              }
+              if (steps == null ? targetVersion == null : stepCount >= steps) {
+                break;
+              }
+              // The changelog is read once; walk it backwards instead of querying it again for every step.
+              lastChange = changelog.get(changelogIndex);
+            }
           }
+          if (stepCount > 0) {
+            FingerprintOperation.clear(connection, option);
+            hooks.after();
+          }
+        } finally {
+          hooks.end(printStream);
         }
-        if (stepCount > 0 && hook != null) {
-          hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connection, runner, null));
-          hook.after(hookBindings);
-        }
+        MigrationEvents.runEnd("down", stepCount, System.currentTimeMillis() - runStart);
       }
       return this;
     } catch (MigrationException e) {
+      MigrationEvents.error("down", e);
       throw e;
     } catch (Exception e) {
+      MigrationEvents.error("down", e);
       throw new MigrationException("Error undoing last migration.  Cause: " + e, e);
     }
   }
 
+  private void bindOptions(Map<String, Object> bindings, PrintStream printStream) {
+    bindings.put("args", Collections.unmodifiableList(asList(options.getParams())));
+    bindings.put("quiet", options.isQuiet());
+    bindings.put("printStream", printStream);
+  }
+
+  private int countToUndo(List<Change> changelog) {
+    int count = changelog.size();
+    if (targetVersion != null) {
+      count = 0;
+      for (Change change : changelog) {
+        if (change.getId().compareTo(targetVersion) > 0) {
+          count++;
+        }
+      }
+    } else if (steps == null) {
+      count = 1;
+    }
+    return steps == null ? count : Math.min(steps, count);
+  }
+
   protected void deleteChange(Connection connection, Change change, DatabaseOperationOption option) {
     SqlRunner runner = getSqlRunner(connection);
+    long start = System.nanoTime();
+    FlightRecorderEvent event = FlightRecorderEvent.begin(Type.CHANGELOG_QUERY).change(change).detail("delete");
     try {
       runner.delete("delete from " + option.getChangelogTable() + " where ID = ?", change.getId());
       connection.commit();
     } catch (SQLException e) {
       throw new MigrationException("Error querying last applied migration.  Cause: " + e, e);
+    } finally {
+      event.commit();
+      MigrationMetrics.getInstance().recordSince("changelog.delete", start);
     }
   }
 }
@@ -0,0 +1,147 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.operations;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.jdbc.SqlRunner;
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.MigrationFingerprint;
+import org.apache.ibatis.migration.options.DatabaseOperationOption;
+
+/**
+ * Compares the fingerprint of the migrations with the one stored in the database by a single indexed read, to tell
+ * whether the schema is current without loading the migrations or reading the changelog.
+ * <p>
+ * The fingerprint is stored in a table named after the changelog table (<code>CHANGELOG_FINGERPRINT</code> by
+ * default) by {@link #store(Connection, DatabaseOperationOption)}, which should be called once the migrations are
+ * applied. {@link DownOperation} removes it whenever a migration is undone.
+ */
+public final class FingerprintOperation extends DatabaseOperation {
+  private static final Integer FINGERPRINT_ID = 1;
+
+  private final MigrationFingerprint fingerprint;
+  private MigrationFingerprint storedFingerprint;
+
+  public FingerprintOperation(MigrationFingerprint fingerprint) {
+    super();
+    this.fingerprint = fingerprint;
+  }
+
+  public FingerprintOperation operate(Connection connection, DatabaseOperationOption option,
+      PrintStream printStream) {
+    if (option == null) {
+      option = new DatabaseOperationOption();
+    }
+    storedFingerprint = null;
+    try {
+      List<Map<String, Object>> rows = getSqlRunner(connection).selectAll(
+          "select FINGERPRINT from " + fingerprintTable(option) + " where ID = ?", FINGERPRINT_ID);
+      if (!rows.isEmpty()) {
+        storedFingerprint = MigrationFingerprint.valueOf(String.valueOf(rows.get(0).get("FINGERPRINT")));
+      }
+    } catch (SQLException e) {
+      // nothing stored yet
+      rollback(connection);
+    } catch (MigrationException e) {
+      // not a fingerprint, the schema is considered outdated
+    }
+    println(printStream, isCurrent() ? "Schema is current: " + fingerprint
+        : "Schema fingerprint " + storedFingerprint + " does not match " + fingerprint);
+    return this;
+  }
+
+  /**
+   * Stores the fingerprint in the database, creating the table if necessary.
+   */
+  public FingerprintOperation store(Connection connection, DatabaseOperationOption option) {
+    if (option == null) {
+      option = new DatabaseOperationOption();
+    }
+    String table = fingerprintTable(option);
+    SqlRunner runner = getSqlRunner(connection);
+    try {
+      try {
+        runner.selectAll("select ID from " + table + " where ID = ?", FINGERPRINT_ID);
+      } catch (SQLException e) {
+        if (!connection.getAutoCommit()) {
+          connection.rollback();
+        }
+        runner.run("create table " + table + " (ID INTEGER NOT NULL, FINGERPRINT VARCHAR(255) NOT NULL,"
+            + " PRIMARY KEY (ID))");
+      }
+      if (runner.update("update " + table + " set FINGERPRINT = ? where ID = ?", fingerprint.toString(),
+          FINGERPRINT_ID) == 0) {
+        runner.insert("insert into " + table + " (ID, FINGERPRINT) values (?, ?)", FINGERPRINT_ID,
+            fingerprint.toString());
+      }
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    } catch (SQLException e) {
+      throw new MigrationException("Error storing migration fingerprint.  Cause: " + e, e);
+    }
+    storedFingerprint = fingerprint;
+    return this;
+  }
+
+  /**
+   * Removes the stored fingerprint, if any, so that the next check reports the schema as outdated.
+   */
+  static void clear(Connection connection, DatabaseOperationOption option) {
+    try {
+      new SqlRunner(connection).delete("delete from " + fingerprintTable(option) + " where ID = ?", FINGERPRINT_ID);
+      if (!connection.getAutoCommit()) {
+        connection.commit();
+      }
+    } catch (SQLException e) {
+      // no fingerprint table
+      rollback(connection);
+    }
+  }
+
+  private static void rollback(Connection connection) {
+    try {
+      if (!connection.getAutoCommit()) {
+        connection.rollback();
+      }
+    } catch (SQLException e) {
+      throw new MigrationException("Error rolling back the fingerprint query.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the fingerprint stored in the database matches the fingerprint of the migrations.
+   */
+  public boolean isCurrent() {
+    return fingerprint.equals(storedFingerprint);
+  }
+
+  /**
+   * @return The fingerprint read from the database, or <code>null</code> if none is stored.
+   */
+  public MigrationFingerprint getStoredFingerprint() {
+    return storedFingerprint;
+  }
+
+  private static String fingerprintTable(DatabaseOperationOption option) {
+    return option.getChangelogTable() + "_FINGERPRINT";
+  }
+}
@@ -0,0 +1,194 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.operations;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.events.MigrationEvents;
+import org.apache.ibatis.migration.hook.FileMigrationHook;
+import org.apache.ibatis.migration.hook.HookContext;
+import org.apache.ibatis.migration.hook.MigrationHook;
+import org.apache.ibatis.migration.hook.scripts.AsyncHookScript;
+import org.apache.ibatis.migration.hook.scripts.HookScript;
+import org.apache.ibatis.migration.hook.scripts.NoOpHookScript;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent.Type;
+import org.apache.ibatis.migration.metrics.MigrationMetrics;
+
+/**
+ * Calls the hook of an operation, skipping the phases whose script does nothing.
+ * <p>
+ * For a skipped phase, no {@link HookContext} is created, no change is cloned and the binding map is not touched. The
+ * binding map is created on first use if the operation does not provide one. One context is shared by
+ * {@link #before()} and {@link #after()}. {@link #beforeEach(Change)} and {@link #afterEach(Change, Long)} each get a
+ * context with a clone of the change taken when they are called, so that <code>afterEach</code> sees the applied
+ * timestamp set by the changelog insert and not the changes a <code>beforeEach</code> hook made to its clone. The
+ * phases that are run are timed by {@link MigrationMetrics} and reported as {@link FlightRecorderEvent}s and
+ * <code>hook</code> {@link MigrationEvents}.
+ * <p>
+ * {@link #end(PrintStream)} must be called when the operation ends, so that the asynchronous hook scripts are not
+ * left running when a migration fails.
+ */
+final class HookInvoker {
+
+  /**
+   * How long {@link #end(PrintStream)} waits for each asynchronous hook script after a failure.
+   */
+  static final long ASYNC_TIMEOUT_SECONDS = 30L;
+
+  private final MigrationHook hook;
+  private final Connection connection;
+  private final ScriptRunner runner;
+  private final boolean before;
+  private final boolean beforeEach;
+  private final boolean afterEach;
+  private final boolean after;
+
+  private Map<String, Object> bindings;
+  private boolean started;
+  private boolean ended;
+  private HookContext operationContext;
+
+  HookInvoker(MigrationHook hook, Map<String, Object> bindings, Connection connection, ScriptRunner runner) {
+    this.hook = hook;
+    this.bindings = bindings;
+    this.connection = connection;
+    this.runner = runner;
+    if (hook instanceof FileMigrationHook) {
+      FileMigrationHook fileHook = (FileMigrationHook) hook;
+      before = isActive(fileHook.getBeforeScript());
+      beforeEach = isActive(fileHook.getBeforeEachScript());
+      afterEach = isActive(fileHook.getAfterEachScript());
+      // FileMigrationHook#after also waits for the asynchronous each hooks
+      after = isActive(fileHook.getAfterScript()) || fileHook.getBeforeEachScript() instanceof AsyncHookScript
+          || fileHook.getAfterEachScript() instanceof AsyncHookScript;
+    } else {
+      before = beforeEach = afterEach = after = hook != null;
+    }
+  }
+
+  private static boolean isActive(HookScript script) {
+    return script != null && !(script instanceof NoOpHookScript);
+  }
+
+  void before() {
+    started = true;
+    if (before) {
+      getBindings().put(MigrationHook.HOOK_CONTEXT, getOperationContext());
+      long start = System.nanoTime();
+      FlightRecorderEvent event = FlightRecorderEvent.begin(Type.HOOK).detail("before");
+      try {
+        hook.before(bindings);
+      } finally {
+        event.commit();
+      }
+      MigrationEvents.hook("before", null, MigrationMetrics.getInstance().recordSince("hook.before", start));
+    }
+  }
+
+  void beforeEach(Change change) {
+    started = true;
+    if (beforeEach) {
+      getBindings().put(MigrationHook.HOOK_CONTEXT, getChangeContext(change));
+      long start = System.nanoTime();
+      FlightRecorderEvent event = FlightRecorderEvent.begin(Type.HOOK).change(change).detail("beforeEach");
+      try {
+        hook.beforeEach(bindings);
+      } finally {
+        event.commit();
+      }
+      MigrationEvents.hook("beforeEach", change, MigrationMetrics.getInstance().recordSince("hook.beforeEach", start));
+    }
+  }
+
+  /**
+   * @param executionTime
+   *          bound as <code>executionTime</code> unless <code>null</code>.
+   */
+  void afterEach(Change change, Long executionTime) {
+    if (afterEach) {
+      getBindings().put(MigrationHook.HOOK_CONTEXT, getChangeContext(change));
+      if (executionTime != null) {
+        bindings.put("executionTime", executionTime);
+      }
+      long start = System.nanoTime();
+      FlightRecorderEvent event = FlightRecorderEvent.begin(Type.HOOK).change(change).detail("afterEach");
+      try {
+        hook.afterEach(bindings);
+      } finally {
+        event.commit();
+      }
+      MigrationEvents.hook("afterEach", change, MigrationMetrics.getInstance().recordSince("hook.afterEach", start));
+    }
+  }
+
+  void after() {
+    ended = true;
+    if (after) {
+      getBindings().put(MigrationHook.HOOK_CONTEXT, getOperationContext());
+      long start = System.nanoTime();
+      FlightRecorderEvent event = FlightRecorderEvent.begin(Type.HOOK).detail("after");
+      try {
+        hook.after(bindings);
+      } finally {
+        event.commit();
+      }
+      MigrationEvents.hook("after", null, MigrationMetrics.getInstance().recordSince("hook.after", start));
+    }
+  }
+
+  /**
+   * Called when the operation ends. If it failed after the hooks were started, {@link #after()} was not called, so the
+   * asynchronous scripts of a {@link FileMigrationHook} are waited for here and their failures are printed.
+   */
+  void end(PrintStream printStream) {
+    if (started && !ended && hook instanceof FileMigrationHook) {
+      ended = true;
+      for (Throwable failure : ((FileMigrationHook) hook).awaitAfterFailure(ASYNC_TIMEOUT_SECONDS,
+          TimeUnit.SECONDS)) {
+        PrintStream out = printStream == null ? System.err : printStream;
+        out.println("Asynchronous hook failed: " + failure);
+      }
+    }
+  }
+
+  /**
+   * @return the binding map, created on first use. The operation also substitutes it in the migration scripts.
+   */
+  Map<String, Object> getBindings() {
+    if (bindings == null) {
+      bindings = new HashMap<String, Object>();
+    }
+    return bindings;
+  }
+
+  private HookContext getOperationContext() {
+    if (operationContext == null) {
+      operationContext = new HookContext(connection, runner, null);
+    }
+    return operationContext;
+  }
+
+  private HookContext getChangeContext(Change change) {
+    return new HookContext(connection, runner, change.clone());
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.operations;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.migration.Change;
+
+/**
+ * Collects the migrations applied and undone by the operations running on the current thread, with their execution
+ * times and the warnings of the operations, so that {@link AsyncOperations} does not have to compare the status of
+ * the migrations before and after an operation or to parse its output.
+ */
+final class OperationRecorder {
+
+  private static final ThreadLocal<OperationRecorder> CURRENT = new ThreadLocal<OperationRecorder>();
+
+  private final List<Change> applied = new ArrayList<Change>();
+  private final List<Change> reverted = new ArrayList<Change>();
+  private final Map<BigDecimal, Long> executionTimes = new LinkedHashMap<BigDecimal, Long>();
+  private final List<String> warnings = new ArrayList<String>();
+
+  /**
+   * Records the operations of the current thread until {@link #stop()} is called.
+   */
+  static OperationRecorder start() {
+    OperationRecorder recorder = new OperationRecorder();
+    CURRENT.set(recorder);
+    return recorder;
+  }
+
+  static void stop() {
+    CURRENT.remove();
+  }
+
+  static void executed(Change change, boolean undo, long executionTime) {
+    OperationRecorder recorder = CURRENT.get();
+    if (recorder != null && !undo) {
+      recorder.executionTimes.put(change.getId(), executionTime);
+    }
+  }
+
+  static void applied(Change change) {
+    OperationRecorder recorder = CURRENT.get();
+    if (recorder != null) {
+      recorder.applied.add(change.clone());
+    }
+  }
+
+  static void reverted(Change change) {
+    OperationRecorder recorder = CURRENT.get();
+    if (recorder != null) {
+      Change copy = change.clone();
+      copy.setAppliedTimestamp(null);
+      recorder.reverted.add(copy);
+    }
+  }
+
+  static void warning(String warning) {
+    OperationRecorder recorder = CURRENT.get();
+    if (recorder != null) {
+      recorder.warnings.add(warning);
+    }
+  }
+
+  /**
+   * @return The applied migrations, in the order of their IDs.
+   */
+  List<Change> getApplied() {
+    return sorted(applied);
+  }
+
+  /**
+   * @return The undone migrations, in the order of their IDs.
+   */
+  List<Change> getReverted() {
+    return sorted(reverted);
+  }
+
+  /**
+   * @return The execution time in milliseconds of each applied migration by ID.
+   */
+  Map<BigDecimal, Long> getExecutionTimes() {
+    Map<BigDecimal, Long> times = new LinkedHashMap<BigDecimal, Long>();
+    for (Change change : getApplied()) {
+      Long time = executionTimes.get(change.getId());
+      if (time != null) {
+        times.put(change.getId(), time);
+      }
+    }
+    return times;
+  }
+
+  List<String> getWarnings() {
+    return warnings;
+  }
+
+  private static List<Change> sorted(List<Change> changes) {
+    List<Change> copy = new ArrayList<Change>(changes);
+    Collections.sort(copy);
+    return copy;
+  }
+}
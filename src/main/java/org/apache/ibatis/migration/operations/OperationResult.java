@@ -0,0 +1,115 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.operations;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.migration.Change;
+
+/**
+ * The immutable outcome of an operation submitted to {@link AsyncOperations}.
+ */
+public final class OperationResult {
+  private final String operation;
+  private final List<Change> applied;
+  private final List<Change> reverted;
+  private final List<Change> status;
+  private final Map<BigDecimal, Long> executionTimes;
+  private final long elapsedTime;
+  private final String output;
+  private final List<String> warnings;
+
+  OperationResult(String operation, List<Change> applied, List<Change> reverted, List<Change> status,
+      Map<BigDecimal, Long> executionTimes, long elapsedTime, String output, List<String> warnings) {
+    this.operation = operation;
+    this.applied = copy(applied);
+    this.reverted = copy(reverted);
+    this.status = copy(status);
+    this.executionTimes = Collections.unmodifiableMap(new LinkedHashMap<BigDecimal, Long>(executionTimes));
+    this.elapsedTime = elapsedTime;
+    this.output = output;
+    this.warnings = Collections.unmodifiableList(new ArrayList<String>(warnings));
+  }
+
+  private static List<Change> copy(List<Change> changes) {
+    List<Change> copy = new ArrayList<Change>(changes.size());
+    for (Change change : changes) {
+      copy.add(change.clone());
+    }
+    return Collections.unmodifiableList(copy);
+  }
+
+  /**
+   * @return The name of the operation (e.g. <code>up</code>).
+   */
+  public String getOperation() {
+    return operation;
+  }
+
+  /**
+   * @return The migrations applied by the operation, in the order of their IDs. The returned changes are copies.
+   */
+  public List<Change> getApplied() {
+    return copy(applied);
+  }
+
+  /**
+   * @return The migrations undone by the operation, in the order of their IDs. The returned changes are copies.
+   */
+  public List<Change> getReverted() {
+    return copy(reverted);
+  }
+
+  /**
+   * @return The status of every migration once the operation completed. The returned changes are copies.
+   */
+  public List<Change> getStatus() {
+    return copy(status);
+  }
+
+  /**
+   * @return The execution time in milliseconds of each applied migration by ID.
+   */
+  public Map<BigDecimal, Long> getExecutionTimes() {
+    return executionTimes;
+  }
+
+  /**
+   * @return The duration of the whole operation in milliseconds.
+   */
+  public long getElapsedTime() {
+    return elapsedTime;
+  }
+
+  /**
+   * @return Everything the operation and its scripts printed.
+   */
+  public String getOutput() {
+    return output;
+  }
+
+  /**
+   * @return The warnings of the operation, without the <code>WARNING: </code> prefix they are printed with.
+   */
+  public List<String> getWarnings() {
+    return warnings;
+  }
+}
@@ -20,14 +20,12 @@ import java.io.Reader;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import org.apache.ibatis.jdbc.ScriptRunner;
 import org.apache.ibatis.migration.Change;
 import org.apache.ibatis.migration.MigrationException;
 import org.apache.ibatis.migration.MigrationLoader;
-import org.apache.ibatis.migration.hook.HookContext;
+import org.apache.ibatis.migration.events.MigrationEvents;
 import org.apache.ibatis.migration.hook.MigrationHook;
 import org.apache.ibatis.migration.options.DatabaseOperationOption;
 import org.apache.ibatis.migration.utils.Util;
@@ -49,48 +47,46 @@ public final class PendingOperation extends DatabaseOperation {
         throw new MigrationException("Change log doesn't exist, no migrations applied.  Try running 'up' instead.");
       }
       List<Change> pending = getPendingChanges(connectionProvider, migrationsLoader, option);
+      long runStart = System.currentTimeMillis();
+      MigrationEvents.runStart("pending", pending.size());
       int stepCount = 0;
-      Map<String, Object> hookBindings = new HashMap<String, Object>();
-      println(printStream, "WARNING: Running pending migrations out of order can create unexpected results.");
+      warn(printStream, "Running pending migrations out of order can create unexpected results.");
       ScriptRunner runner = getScriptRunner(connectionProvider, option, printStream);
+      HookInvoker hooks = new HookInvoker(hook, null, connectionProvider, runner);
       Reader scriptReader = null;
       try {
         for (Change change : pending) {
-          if (stepCount == 0 && hook != null) {
-            hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connectionProvider, runner, null));
-            hook.before(hookBindings);
-          }
-          if (hook != null) {
-            hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connectionProvider, runner, change.clone()));
-            hook.beforeEach(hookBindings);
+          if (stepCount == 0) {
+            hooks.before();
           }
+          hooks.beforeEach(change);
           println(printStream, Util.horizontalLine("Applying: " + change.getFilename(), 80));
           scriptReader = migrationsLoader.getScriptReader(change);
-          runner.runScript(scriptReader);
+          runMigration(change, false, runner, connectionProvider, option, scriptReader, null);
           insertChangelog(change, connectionProvider, option);
           println(printStream);
-          if (hook != null) {
-            hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connectionProvider, runner, change.clone()));
-            hook.afterEach(hookBindings);
-          }
+          hooks.afterEach(change, null);
           stepCount++;
         }
-        if (stepCount > 0 && hook != null) {
-          hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connectionProvider, runner, null));
-          hook.after(hookBindings);
+        if (stepCount > 0) {
+          hooks.after();
         }
+        MigrationEvents.runEnd("pending", stepCount, System.currentTimeMillis() - runStart);
         return this;
       } catch (Exception e) {
         throw new MigrationException("Error executing command.  Cause: " + e, e);
       } finally {
+        hooks.end(printStream);
         if (scriptReader != null) {
           scriptReader.close();
         }
 
       }
     } catch (MigrationException e) {
+      MigrationEvents.error("pending", e);
       throw e;
     } catch (Exception e) {
+      MigrationEvents.error("pending", e);
       throw new MigrationException("Error executing command.  Cause: " + e, e);
     }
   }
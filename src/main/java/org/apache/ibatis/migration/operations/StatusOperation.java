@@ -24,15 +24,33 @@ import java.util.List;
 import org.apache.ibatis.migration.Change;
 import org.apache.ibatis.migration.MigrationLoader;
 import org.apache.ibatis.migration.options.DatabaseOperationOption;
+import org.apache.ibatis.migration.timing.MigrationTimings;
 import org.apache.ibatis.migration.utils.Util;
 
 public final class StatusOperation extends DatabaseOperation {
+  private final MigrationTimings timings;
+
   private int applied;
 
   private int pending;
 
   private List<Change> changes;
 
+  private long estimatedPendingTime;
+
+  public StatusOperation() {
+    this(null);
+  }
+
+  /**
+   * @param timings
+   *          when not <code>null</code>, the total estimated duration of the pending migrations is reported.
+   */
+  public StatusOperation(MigrationTimings timings) {
+    super();
+    this.timings = timings;
+  }
+
   public StatusOperation operate(Connection connection, MigrationLoader migrationsLoader,
       DatabaseOperationOption option, PrintStream printStream) {
     if (option == null) {
@@ -41,6 +59,7 @@ public final class StatusOperation extends DatabaseOperation {
     println(printStream, "ID             Applied At          Description");
     println(printStream, Util.horizontalLine("", 80));
     changes = new ArrayList<Change>();
+    List<Change> pendingChanges = new ArrayList<Change>();
     List<Change> migrations = migrationsLoader.getMigrations();
     if (changelogExists(connection, option)) {
       List<Change> changelog = getChangelog(connection, option);
@@ -51,11 +70,13 @@ public final class StatusOperation extends DatabaseOperation {
           applied++;
         } else {
           changes.add(change);
+          pendingChanges.add(change);
           pending++;
         }
       }
     } else {
       changes.addAll(migrations);
+      pendingChanges.addAll(migrations);
       pending = migrations.size();
     }
     Collections.sort(changes);
@@ -63,6 +84,12 @@ public final class StatusOperation extends DatabaseOperation {
       println(printStream, change.toString());
     }
     println(printStream);
+    if (timings != null && pending > 0) {
+      estimatedPendingTime = timings.estimate(pendingChanges);
+      println(printStream, "Estimated duration of " + pending + " pending migration(s): "
+          + Util.formatDuration(estimatedPendingTime));
+      println(printStream);
+    }
     return this;
   }
 
@@ -74,6 +101,14 @@ public final class StatusOperation extends DatabaseOperation {
     return pending;
   }
 
+  /**
+   * @return The estimated duration of the pending migrations in milliseconds, or <code>0</code> if the operation
+   *         was created without timings.
+   */
+  public long getEstimatedPendingTime() {
+    return estimatedPendingTime;
+  }
+
   public List<Change> getCurrentStatus() {
     return changes;
   }
@@ -18,20 +18,26 @@ package org.apache.ibatis.migration.operations;
 import org.apache.ibatis.jdbc.RuntimeSqlException;
 import org.apache.ibatis.jdbc.ScriptRunner;
 import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.ConnectionProvider;
 import org.apache.ibatis.migration.MigrationException;
 import org.apache.ibatis.migration.MigrationLoader;
-import org.apache.ibatis.migration.hook.HookContext;
+import org.apache.ibatis.migration.events.MigrationEvents;
 import org.apache.ibatis.migration.hook.MigrationHook;
-import org.apache.ibatis.migration.io.TemplateReader;
+import org.apache.ibatis.migration.lock.MigrationLock;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent.Type;
 import org.apache.ibatis.migration.options.DatabaseOperationOption;
 import org.apache.ibatis.migration.options.SelectedOptions;
+import org.apache.ibatis.migration.timing.MigrationTimings;
 import org.apache.ibatis.migration.utils.Util;
 
 import java.io.PrintStream;
 import java.io.Reader;
+import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,6 +46,8 @@ import static java.util.Arrays.asList;
 public final class UpOperation extends DatabaseOperation {
   private final Integer steps;
   private final SelectedOptions options;
+  private final MigrationTimings timings;
+  private final BigDecimal targetVersion;
 
   public UpOperation() {
     this(null, new SelectedOptions());
@@ -50,8 +58,27 @@ public final class UpOperation extends DatabaseOperation {
   }
 
   public UpOperation(Integer steps, SelectedOptions options) {
+    this(steps, options, null);
+  }
+
+  /**
+   * @param timings
+   *          when not <code>null</code>, the execution time of each applied migration is recorded and the progress
+   *          of the run is reported with an estimated time of arrival.
+   */
+  public UpOperation(Integer steps, SelectedOptions options, MigrationTimings timings) {
+    this(steps, options, timings, null);
+  }
+
+  /**
+   * @param targetVersion
+   *          when not <code>null</code>, migrations with an ID greater than this version are not applied.
+   */
+  UpOperation(Integer steps, SelectedOptions options, MigrationTimings timings, BigDecimal targetVersion) {
     this.options = options;
     this.steps = steps;
+    this.timings = timings;
+    this.targetVersion = targetVersion;
     if (steps != null && steps < 1) {
       throw new IllegalArgumentException("step must be positive number or null.");
     }
@@ -64,79 +91,136 @@ public final class UpOperation extends DatabaseOperation {
 
   public UpOperation operate(Connection connection, MigrationLoader migrationsLoader, DatabaseOperationOption option,
       PrintStream printStream, MigrationHook hook) {
+    return operate(connection, migrationsLoader, null, option, printStream, hook, null);
+  }
+
+  /**
+   * Applies the pending migrations while holding <code>lock</code>, so that only one of the processes sharing the
+   * database applies them.
+   * <p>
+   * The changelog is checked before waiting for the lock, so nothing is locked when the database is up to date, and
+   * checked again once the lock is acquired, so processes that waited while another one applied the migrations return
+   * without applying anything. No connection is held while waiting for the lock. If <code>lock</code> is
+   * <code>null</code>, the migrations are applied without locking.
+   * <p>
+   * The lock is checked again before each migration and before each changelog insert. If it was lost (because it
+   * could not be renewed in time and may have been taken over by another process), the operation is aborted with a
+   * {@link MigrationException}.
+   */
+  public UpOperation operate(ConnectionProvider connectionProvider, MigrationLoader migrationsLoader,
+      DatabaseOperationOption option, PrintStream printStream, MigrationHook hook, MigrationLock lock) {
+    if (option == null) {
+      option = new DatabaseOperationOption();
+    }
+    try {
+      List<Change> migrations = migrationsLoader.getMigrations();
+      Collections.sort(migrations);
+      if (!hasPendingChanges(connectionProvider, option, migrations)) {
+        return this;
+      }
+      if (lock != null) {
+        lock.acquire();
+      }
+      try {
+        Connection connection = connectionProvider.getConnection();
+        try {
+          return operate(connection, migrationsLoader, migrations, option, printStream, hook, lock);
+        } finally {
+          connection.close();
+        }
+      } finally {
+        if (lock != null) {
+          lock.release();
+        }
+      }
+    } catch (SQLException e) {
+      throw new MigrationException("Error executing command.  Cause: " + e, e);
+    }
+  }
+
+  private UpOperation operate(Connection connection, MigrationLoader migrationsLoader, List<Change> migrations,
+      DatabaseOperationOption option, PrintStream printStream, MigrationHook hook, MigrationLock lock) {
     try {
       if (option == null) {
         option = new DatabaseOperationOption();
       }
 
-      Change lastChange = null;
-      if (changelogExists(connection, option)) {
-        lastChange = getLastAppliedChange(connection, option);
+      if (migrations == null) {
+        migrations = migrationsLoader.getMigrations();
+        Collections.sort(migrations);
       }
-
-      List<Change> migrations = migrationsLoader.getMigrations();
-      Collections.sort(migrations);
+      List<Change> pending = getPendingChanges(connection, option, migrations);
+      long[] estimates = new long[pending.size()];
+      long remainingTime = 0L;
+      if (timings != null) {
+        for (int i = 0; i < estimates.length; i++) {
+          estimates[i] = timings.estimate(pending.get(i));
+          remainingTime += estimates[i];
+        }
+      }
+      long runStart = System.currentTimeMillis();
+      MigrationEvents.runStart("up", pending.size());
       int stepCount = 0;
       ScriptRunner runner = getScriptRunner(connection, option, printStream);
 
-      Map<String, Object> hookBindings = new HashMap<String, Object>();
-      hookBindings.put("args", Collections.unmodifiableList(asList(options.getParams())));
-      hookBindings.put("quiet", options.isQuiet());
-      hookBindings.put("printStream", printStream);
-      hookBindings.put("key", options.getKey());
-
       Reader scriptReader = null;
       Reader onAbortScriptReader = null;
 
       Change currentChange = null;
+      HookInvoker hooks = new HookInvoker(hook, null, connection, runner);
 
       try {
-        for (Change change : migrations) {
+        for (Change change : pending) {
           currentChange = change;
-          if (lastChange == null || change.getId().compareTo(lastChange.getId()) > 0) {
-            if (stepCount == 0 && hook != null) {
-              hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connection, runner, null));
-              hook.before(hookBindings);
-            }
-            if (hook != null) {
-              hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connection, runner, change.clone()));
-              hook.beforeEach(hookBindings);
-            }
-            System.out.println(Util.horizontalLine("Applying: " + change.getFilename(), 80));
-            scriptReader = migrationsLoader.getScriptReader(change);
-
-            long start = System.currentTimeMillis();
-            runner.runScript(new TemplateReader(scriptReader, hookBindings));
-            long end = System.currentTimeMillis();
-
-            insertChangelog(change, connection, option);
-            println(printStream);
-            if (hook != null) {
-              hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connection, runner, change.clone()));
-              hookBindings.put("executionTime", end - start);
-              hook.afterEach(hookBindings);
-            }
-            stepCount++;
-            if (steps != null && stepCount >= steps) {
-              break;
+          checkLock(lock);
+          if (stepCount == 0) {
+            bindOptions(hooks.getBindings(), printStream);
+            hooks.before();
+          }
+          hooks.beforeEach(change);
+          println(printStream, Util.horizontalLine("Applying: " + change.getFilename(), 80));
+          scriptReader = migrationsLoader.getScriptReader(change);
+
+          long executionTime = runMigration(change, false, runner, connection, option, scriptReader,
+              hooks.getBindings());
+
+          checkLock(lock);
+          insertChangelog(change, connection, option);
+          println(printStream);
+          hooks.afterEach(change, executionTime);
+          if (timings != null) {
+            timings.record(change, executionTime);
+            remainingTime -= estimates[stepCount];
+            if (pending.size() > 1) {
+              long elapsed = System.currentTimeMillis() - runStart;
+              println(printStream, String.format("Progress: %d/%d, elapsed %s, ETA %s", stepCount + 1, pending.size(),
+                  Util.formatDuration(elapsed), Util.formatDuration(Math.max(0L, remainingTime))));
             }
           }
+          stepCount++;
         }
-        if (stepCount > 0 && hook != null) {
-          hookBindings.put(MigrationHook.HOOK_CONTEXT, new HookContext(connection, runner, null));
-          hook.after(hookBindings);
+        if (stepCount > 0) {
+          hooks.after();
         }
+        MigrationEvents.runEnd("up", stepCount, System.currentTimeMillis() - runStart);
         return this;
       } catch (RuntimeSqlException e) {
         onAbortScriptReader = migrationsLoader.getOnAbortReader(currentChange);
         if (onAbortScriptReader != null) {
           println(printStream);
           System.err.println(Util.horizontalLine("Aborting: " + onAbortScriptReader, 80));
-          runner.runScript(onAbortScriptReader);
+          MigrationEvents.abort(currentChange);
+          FlightRecorderEvent event = FlightRecorderEvent.begin(Type.ABORT).change(currentChange);
+          try {
+            runner.runScript(event.count(onAbortScriptReader));
+          } finally {
+            event.commit();
+          }
           println(printStream);
         }
         throw e;
       } finally {
+        hooks.end(printStream);
         if (scriptReader != null) {
           scriptReader.close();
         }
@@ -145,9 +229,59 @@ public final class UpOperation extends DatabaseOperation {
         }
       }
     } catch (MigrationException e) {
+      MigrationEvents.error("up", e);
       throw e;
     } catch (Exception e) {
+      MigrationEvents.error("up", e);
       throw new MigrationException("Error executing command.  Cause: " + e, e);
     }
   }
+
+  private void bindOptions(Map<String, Object> bindings, PrintStream printStream) {
+    bindings.put("args", Collections.unmodifiableList(asList(options.getParams())));
+    bindings.put("quiet", options.isQuiet());
+    bindings.put("printStream", printStream);
+    bindings.put("key", options.getKey());
+  }
+
+  private void checkLock(MigrationLock lock) {
+    if (lock != null && !lock.isHeld()) {
+      throw new MigrationException("Lost the migration lock held by " + lock.getOwner() + ", aborting.");
+    }
+  }
+
+  private boolean hasPendingChanges(ConnectionProvider connectionProvider, DatabaseOperationOption option,
+      List<Change> migrations) throws SQLException {
+    Connection connection = connectionProvider.getConnection();
+    try {
+      return !getPendingChanges(connection, option, migrations).isEmpty();
+    } finally {
+      connection.close();
+    }
+  }
+
+  private List<Change> getPendingChanges(Connection connection, DatabaseOperationOption option,
+      List<Change> migrations) {
+    Change lastChange = null;
+    if (changelogExists(connection, option)) {
+      lastChange = getLastAppliedChange(connection, option);
+    }
+    return getPendingChanges(migrations, lastChange);
+  }
+
+  private List<Change> getPendingChanges(List<Change> migrations, Change lastChange) {
+    List<Change> pending = new ArrayList<Change>();
+    for (Change change : migrations) {
+      if (steps != null && pending.size() >= steps) {
+        break;
+      }
+      if (targetVersion != null && change.getId().compareTo(targetVersion) > 0) {
+        break;
+      }
+      if (lastChange == null || change.getId().compareTo(lastChange.getId()) > 0) {
+        pending.add(change);
+      }
+    }
+    return pending;
+  }
 }
@@ -25,6 +25,7 @@ import org.apache.ibatis.migration.MigrationException;
 import org.apache.ibatis.migration.MigrationLoader;
 import org.apache.ibatis.migration.hook.MigrationHook;
 import org.apache.ibatis.migration.options.DatabaseOperationOption;
+import org.apache.ibatis.migration.options.SelectedOptions;
 
 public final class VersionOperation extends DatabaseOperation {
   private BigDecimal version;
@@ -50,20 +51,16 @@ public final class VersionOperation extends DatabaseOperation {
     ensureVersionExists(migrationsLoader);
     Change change = getLastAppliedChange(connection, option);
     if (change != null) {
+      // Each direction is a single ranged pass bounded by the target version, so the migrations are sorted,
+      // the changelog is read and the before/after hooks are fired only once regardless of the distance.
       if (version.compareTo(change.getId()) > 0) {
         println(printStream, "Upgrading to: " + version);
-        UpOperation up = new UpOperation(1);
-        while (!version.equals(change.getId())) {
-          up.operate(connection, migrationsLoader, option, printStream, upHook);
-          change = getLastAppliedChange(connection, option);
-        }
+        new UpOperation(null, new SelectedOptions(), null, version).operate(connection, migrationsLoader, option,
+            printStream, upHook);
       } else if (version.compareTo(change.getId()) < 0) {
         println(printStream, "Downgrading to: " + version);
-        DownOperation down = new DownOperation(1);
-        while (!version.equals(change.getId())) {
-          down.operate(connection, migrationsLoader, option, printStream, downHook);
-          change = getLastAppliedChange(connection, option);
-        }
+        new DownOperation(null, new SelectedOptions(), version).operate(connection, migrationsLoader, option,
+            printStream, downHook);
       } else {
         println(printStream, "Already at version: " + version);
       }
@@ -21,6 +21,7 @@ public enum Options {
   SCRIPTPATH,
   DRIVERPATH,
   HOOKPATH,
+  TIMINGPATH,
   ENV,
   FORCE,
   KEY,
@@ -30,5 +31,9 @@ public enum Options {
   CERT,
   IDPATTERN,
   QUIET,
-  COLOR
+  COLOR,
+  DAEMON,
+  METRICS,
+  EVENTS,
+  PROFILE
 }
@@ -19,6 +19,8 @@ import static org.apache.ibatis.migration.utils.Util.isOption;
 
 import java.io.File;
 
+import org.apache.ibatis.migration.daemon.MigrationDaemon;
+
 public final class OptionsParser {
 
   public static SelectedOptions parse(String[] args) {
@@ -67,6 +69,9 @@ public final class OptionsParser {
         case HOOKPATH:
           options.getPaths().setHookPath(new File(argParts[1]));
           break;
+        case TIMINGPATH:
+          options.getPaths().setTimingPath(new File(argParts[1]));
+          break;
         case ENV:
           options.setEnvironment(argParts[1]);
           break;
@@ -94,6 +99,29 @@ public final class OptionsParser {
         case COLOR:
           options.setColor(true);
           break;
+        case DAEMON:
+          if (argParts.length == 1) {
+            options.setDaemonPort(MigrationDaemon.DEFAULT_PORT);
+          } else {
+            try {
+              options.setDaemonPort(Integer.valueOf(argParts[1]));
+            } catch (NumberFormatException e) {
+              options.setUsageError("Invalid daemon port: " + argParts[1]);
+            }
+          }
+          break;
+        case METRICS:
+          options.setMetricsFile(new File(argParts[1]));
+          break;
+        case EVENTS:
+          options.setEventsFile(new File(argParts[1]));
+          break;
+        case PROFILE:
+          options.setProfile(true);
+          if (argParts.length > 1) {
+            options.setProfileFile(new File(argParts[1]));
+          }
+          break;
       }
     }
 
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.migration.options;
 
+import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -31,6 +32,12 @@ public class SelectedOptions {
   private boolean quiet;
   private boolean color;
   private String key;
+  private Integer daemonPort;
+  private File metricsFile;
+  private File eventsFile;
+  private boolean profile;
+  private File profileFile;
+  private String usageError;
 
   public boolean isQuiet() {
     return quiet;
@@ -123,4 +130,71 @@ public class SelectedOptions {
   public String getKey() {
     return key;
   }
+
+  /**
+   * @return The port of the migration daemon the command should be forwarded to, or <code>null</code> to run the
+   *         command in this JVM.
+   */
+  public Integer getDaemonPort() {
+    return daemonPort;
+  }
+
+  public void setDaemonPort(Integer daemonPort) {
+    this.daemonPort = daemonPort;
+  }
+
+  /**
+   * @return The file the metrics of the command are written to, or <code>null</code>.
+   */
+  public File getMetricsFile() {
+    return metricsFile;
+  }
+
+  public void setMetricsFile(File metricsFile) {
+    this.metricsFile = metricsFile;
+  }
+
+  /**
+   * @return The file the events of the command are written to as JSON lines, or <code>null</code>.
+   */
+  public File getEventsFile() {
+    return eventsFile;
+  }
+
+  public void setEventsFile(File eventsFile) {
+    this.eventsFile = eventsFile;
+  }
+
+  /**
+   * @return <code>true</code> if the slowest statements of the command should be reported.
+   */
+  public boolean isProfile() {
+    return profile;
+  }
+
+  public void setProfile(boolean profile) {
+    this.profile = profile;
+  }
+
+  /**
+   * @return The file the report of the slowest statements is also written to, or <code>null</code>.
+   */
+  public File getProfileFile() {
+    return profileFile;
+  }
+
+  public void setProfileFile(File profileFile) {
+    this.profileFile = profileFile;
+  }
+
+  /**
+   * @return The reason the options are invalid, or <code>null</code> if they could be parsed.
+   */
+  public String getUsageError() {
+    return usageError;
+  }
+
+  public void setUsageError(String usageError) {
+    this.usageError = usageError;
+  }
 }
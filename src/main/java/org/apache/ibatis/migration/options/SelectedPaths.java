@@ -25,6 +25,7 @@ public class SelectedPaths {
   private File scriptPath;
   private File driverPath;
   private File hookPath;
+  private File timingPath;
 
   public SelectedPaths() {
   }
@@ -35,6 +36,7 @@ public class SelectedPaths {
     this.scriptPath = other.envPath;
     this.driverPath = other.driverPath;
     this.hookPath = other.hookPath;
+    this.timingPath = other.timingPath;
   }
 
   public SelectedPaths(File basePath) {
@@ -65,6 +67,17 @@ public class SelectedPaths {
     return hookPath == null ? file(basePath, "./hooks") : hookPath;
   }
 
+  public File getTimingPath() {
+    return timingPath == null ? file(basePath, "./timings") : timingPath;
+  }
+
+  /**
+   * @return <code>true</code> if the timings directory was specified rather than defaulted.
+   */
+  public boolean isTimingPathSet() {
+    return timingPath != null;
+  }
+
   public void setBasePath(File aBasePath) {
     basePath = aBasePath;
   }
@@ -85,6 +98,10 @@ public class SelectedPaths {
     hookPath = aHookPath;
   }
 
+  public void setTimingPath(File aTimingPath) {
+    timingPath = aTimingPath;
+  }
+
   @Override
   public String toString() {
     return basePath.getAbsolutePath();
@@ -27,10 +27,11 @@ import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 import org.apache.ibatis.migration.MigrationException;
 import org.apache.ibatis.migration.options.SelectedPaths;
@@ -57,6 +58,9 @@ public class Jsr223Script<T> implements Script<T> {
   protected List<String> args = new ArrayList<String>();
   protected Map<String, String> localVars = new HashMap<String, String>();
 
+  private ScriptEngine engine;
+  private CompiledScript compiledScript;
+
   public Jsr223Script(String language, String charset, List<String> options, SelectedPaths paths,
       Properties variables) {
     this(language, charset, options.toArray(new String[0]), paths, variables, System.out);
@@ -92,22 +96,19 @@ public class Jsr223Script<T> implements Script<T> {
 
   @Override
   @SuppressWarnings("unchecked")
-  public T execute(Map<String, Object> bindingMap) {
+  public synchronized T execute(Map<String, Object> bindingMap) {
     T result = null;
-    ScriptEngineManager manager = new ScriptEngineManager();
-    ScriptEngine engine = manager.getEngineByName(language);
-    if (engine == null)
-      throw new MigrationException("Unsupported language: " + language);
+    ScriptEngine engine = getEngine();
 
-    // bind global/local variables defined in the environment file
-    Bindings bindings = engine.getContext().getBindings(ScriptContext.ENGINE_SCOPE);
+    // bind global/local variables defined in the environment file to fresh bindings
+    Bindings bindings = engine.createBindings();
+    engine.setBindings(bindings, ScriptContext.ENGINE_SCOPE);
     bindVariables(bindingMap, variables.entrySet());
     bindVariables(bindingMap, localVars.entrySet());
     bindings.put(MIGRATION_PATHS, paths);
     bindings.putAll(bindingMap);
     try {
-      Reader scriptReader = getReader();
-      result = (T) engine.eval(scriptReader, bindings);
+      result = (T) eval(engine);
       if (functionName != null || (objectName != null && methodName != null)) {
         Invocable invocable = (Invocable) engine;
         if (functionName != null) {
@@ -137,6 +138,43 @@ public class Jsr223Script<T> implements Script<T> {
     return result;
   }
 
+  /**
+   * The engine is created on first use and kept for the lifetime of this script. Executions are serialized, and each
+   * one gets fresh engine bindings.
+   */
+  private ScriptEngine getEngine() {
+    if (engine == null) {
+      engine = ScriptEngines.getEngine(language);
+      if (engine == null)
+        throw new MigrationException("Unsupported language: " + language);
+    }
+    return engine;
+  }
+
+  /**
+   * Evaluates the script in the current context of the engine. The script is compiled on first use if the engine is
+   * {@link Compilable}, otherwise it is read and evaluated every time.
+   */
+  private Object eval(ScriptEngine engine) throws ScriptException, IOException {
+    if (compiledScript == null && engine instanceof Compilable) {
+      Reader scriptReader = getReader();
+      try {
+        compiledScript = ((Compilable) engine).compile(scriptReader);
+      } finally {
+        scriptReader.close();
+      }
+    }
+    if (compiledScript != null) {
+      return compiledScript.eval(engine.getContext());
+    }
+    Reader scriptReader = getReader();
+    try {
+      return engine.eval(scriptReader, engine.getContext());
+    } finally {
+      scriptReader.close();
+    }
+  }
+
   private <S, T> void bindVariables(Map<String, Object> bindingMap, Set<Entry<S, T>> vars) {
     for (Entry<S, T> entry : vars) {
       bindingMap.put((String) entry.getKey(), entry.getValue());
@@ -0,0 +1,61 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.scripts;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+
+/**
+ * Creates script engines from factories that are looked up once per language, so that the engines are not
+ * discovered through the <code>ServiceLoader</code> every time a script is executed.
+ */
+final class ScriptEngines {
+
+  private static final ConcurrentMap<String, ScriptEngineFactory> factories
+      = new ConcurrentHashMap<String, ScriptEngineFactory>();
+
+  private static ScriptEngineManager manager;
+
+  private ScriptEngines() {
+    super();
+  }
+
+  /**
+   * @return a new engine for the language, or <code>null</code> if the language is not supported.
+   */
+  static ScriptEngine getEngine(String language) {
+    ScriptEngineFactory factory = factories.get(language);
+    if (factory != null) {
+      return factory.getScriptEngine();
+    }
+    ScriptEngine engine = getManager().getEngineByName(language);
+    if (engine != null) {
+      factories.putIfAbsent(language, engine.getFactory());
+    }
+    return engine;
+  }
+
+  private static synchronized ScriptEngineManager getManager() {
+    if (manager == null) {
+      manager = new ScriptEngineManager();
+    }
+    return manager;
+  }
+}
@@ -0,0 +1,272 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.timing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.utils.Util;
+
+/**
+ * Execution times of applied migrations, keyed by change ID.
+ * <p>
+ * The times recorded for the current environment are kept in <code>&lt;timings dir&gt;/&lt;environment&gt;.properties</code>.
+ * Every other <code>.properties</code> file in the same directory is treated as imported history (e.g. copied from
+ * another environment) and is used to estimate migrations that have never been applied here. Migrations without any
+ * history are estimated from the size of their script file. Entries whose value is not a number of milliseconds are
+ * skipped and reported by {@link #getWarnings()}.
+ */
+public class MigrationTimings {
+
+  private static final String FILE_EXTENSION = ".properties";
+
+  private static final double DEFAULT_MILLIS_PER_BYTE = 0.01;
+
+  private final File timingsDir;
+  private final String environment;
+  private final File scriptsDir;
+  private final boolean createTimingsDir;
+
+  private final Properties recorded = new Properties();
+  private final Map<String, Long> imported = new HashMap<String, Long>();
+  private final List<String> warnings = new ArrayList<String>();
+
+  private double millisPerByte = -1;
+
+  private boolean modified;
+
+  /**
+   * Creates an in-memory instance that neither loads nor stores anything.
+   */
+  public MigrationTimings() {
+    this(null, null, null);
+  }
+
+  public MigrationTimings(File timingsDir, String environment, File scriptsDir) {
+    this(timingsDir, environment, scriptsDir, true);
+  }
+
+  /**
+   * @param createTimingsDir
+   *          whether {@link #store()} may create the timings directory. When <code>false</code>, the recorded times
+   *          are only stored if the directory already exists.
+   */
+  public MigrationTimings(File timingsDir, String environment, File scriptsDir, boolean createTimingsDir) {
+    super();
+    this.timingsDir = timingsDir;
+    this.environment = environment;
+    this.scriptsDir = scriptsDir;
+    this.createTimingsDir = createTimingsDir;
+    load();
+  }
+
+  public Long getRecordedTime(Change change) {
+    String value = recorded.getProperty(key(change));
+    return value == null ? null : Long.valueOf(value);
+  }
+
+  /**
+   * @return The entries of the timings files that were skipped because their value is not a number.
+   */
+  public List<String> getWarnings() {
+    return Collections.unmodifiableList(warnings);
+  }
+
+  public void record(Change change, long executionTime) {
+    recorded.setProperty(key(change), String.valueOf(executionTime));
+    modified = true;
+  }
+
+  /**
+   * @return The expected execution time of the specified change in milliseconds.
+   */
+  public long estimate(Change change) {
+    Long time = getRecordedTime(change);
+    if (time == null) {
+      time = imported.get(key(change));
+    }
+    if (time != null) {
+      return time;
+    }
+    File scriptFile = scriptFile(change);
+    return scriptFile == null ? 0L : (long) (scriptFile.length() * getMillisPerByte());
+  }
+
+  public long estimate(List<Change> changes) {
+    long total = 0L;
+    for (Change change : changes) {
+      total += estimate(change);
+    }
+    return total;
+  }
+
+  public void store() {
+    if (timingsDir == null || !modified) {
+      return;
+    }
+    boolean created = false;
+    if (!timingsDir.exists()) {
+      if (!createTimingsDir) {
+        return;
+      }
+      if (!timingsDir.mkdirs()) {
+        throw new MigrationException("Could not create timings directory " + timingsDir.getAbsolutePath());
+      }
+      created = true;
+    }
+    File file = Util.file(timingsDir, environment + FILE_EXTENSION);
+    try {
+      OutputStream out = new FileOutputStream(file);
+      try {
+        recorded.store(out, "Execution time in milliseconds of the migrations applied to '" + environment + "'");
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      if (created) {
+        // Do not leave an empty directory behind.
+        file.delete();
+        timingsDir.delete();
+      }
+      throw new MigrationException("Failed to store timings file " + file.getAbsolutePath(), e);
+    }
+    modified = false;
+  }
+
+  private void load() {
+    if (timingsDir == null || !timingsDir.isDirectory()) {
+      return;
+    }
+    String[] filenames = timingsDir.list();
+    if (filenames == null) {
+      return;
+    }
+    Map<String, Integer> counts = new HashMap<String, Integer>();
+    for (String filename : filenames) {
+      if (!filename.endsWith(FILE_EXTENSION)) {
+        continue;
+      }
+      File file = Util.file(timingsDir, filename);
+      Properties props = loadFile(file);
+      boolean own = filename.equals(environment + FILE_EXTENSION);
+      for (Entry<Object, Object> entry : props.entrySet()) {
+        String key = (String) entry.getKey();
+        Long time = parseTime(file, key, (String) entry.getValue());
+        if (time == null) {
+          continue;
+        }
+        if (own) {
+          recorded.setProperty(key, time.toString());
+        } else {
+          // Average the times imported from other environments.
+          Long sum = imported.get(key);
+          Integer count = counts.get(key);
+          imported.put(key, sum == null ? time : sum + time);
+          counts.put(key, count == null ? 1 : count + 1);
+        }
+      }
+    }
+    for (Entry<String, Integer> count : counts.entrySet()) {
+      imported.put(count.getKey(), imported.get(count.getKey()) / count.getValue());
+    }
+  }
+
+  private Long parseTime(File file, String key, String value) {
+    try {
+      return Long.valueOf(value.trim());
+    } catch (NumberFormatException e) {
+      warnings.add("Skipped invalid time '" + value + "' of " + key + " in " + file.getAbsolutePath());
+      return null;
+    }
+  }
+
+  private Properties loadFile(File file) {
+    Properties props = new Properties();
+    try {
+      InputStream in = new FileInputStream(file);
+      try {
+        props.load(in);
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      throw new MigrationException("Failed to load timings file " + file.getAbsolutePath(), e);
+    }
+    return props;
+  }
+
+  /**
+   * Derives the script throughput from the migrations already applied to this environment, so that the size based
+   * estimate reflects the speed of the target database.
+   */
+  private double getMillisPerByte() {
+    if (millisPerByte < 0) {
+      long totalTime = 0L;
+      long totalBytes = 0L;
+      String[] filenames = scriptsDir == null ? null : scriptsDir.list();
+      if (filenames != null) {
+        for (String filename : filenames) {
+          // The ID is the leading part of the file name (see FileMigrationLoader).
+          int end = filename.indexOf('_');
+          if (end < 0) {
+            end = filename.lastIndexOf('.');
+          }
+          String time = end > 0 ? recorded.getProperty(normalizeId(filename.substring(0, end))) : null;
+          if (time != null) {
+            totalTime += Long.parseLong(time.trim());
+            totalBytes += Util.file(scriptsDir, filename).length();
+          }
+        }
+      }
+      millisPerByte = totalBytes > 0 ? (double) totalTime / totalBytes : DEFAULT_MILLIS_PER_BYTE;
+    }
+    return millisPerByte;
+  }
+
+  private File scriptFile(Change change) {
+    if (scriptsDir == null || change.getFilename() == null) {
+      return null;
+    }
+    File scriptFile = Util.file(scriptsDir, change.getFilename());
+    return scriptFile.isFile() ? scriptFile : null;
+  }
+
+  private String normalizeId(String id) {
+    try {
+      return new BigDecimal(id).toString();
+    } catch (NumberFormatException e) {
+      return id;
+    }
+  }
+
+  private String key(Change change) {
+    return change.getId().toString();
+  }
+}
@@ -16,6 +16,7 @@
 package org.apache.ibatis.migration.utils;
 
 import java.io.File;
+import java.util.Locale;
 
 public enum Util {
   ;
@@ -28,6 +29,14 @@ public enum Util {
     return new File(path.getAbsolutePath() + File.separator + fileName);
   }
 
+  /**
+   * @return The specified duration formatted as <code>HH:mm:ss</code>.
+   */
+  public static String formatDuration(long millis) {
+    long seconds = millis / 1000;
+    return String.format("%02d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+  }
+
   public static String horizontalLine(String caption, int length) {
     StringBuilder builder = new StringBuilder();
     builder.append("==========");
@@ -40,4 +49,39 @@ public enum Util {
     }
     return builder.toString();
   }
+
+  /**
+   * Appends the value as JSON. Strings and <code>null</code> are supported as well as numbers and booleans; floating
+   * point numbers are written with three decimals.
+   */
+  public static StringBuilder appendJson(StringBuilder json, Object value) {
+    if (value == null) {
+      json.append("null");
+    } else if (value instanceof Double || value instanceof Float) {
+      json.append(String.format(Locale.ROOT, "%.3f", ((Number) value).doubleValue()));
+    } else if (value instanceof Number || value instanceof Boolean) {
+      json.append(value);
+    } else {
+      String string = value.toString();
+      json.append('"');
+      for (int i = 0; i < string.length(); i++) {
+        char c = string.charAt(i);
+        if (c == '"' || c == '\\') {
+          json.append('\\').append(c);
+        } else if (c == '\n') {
+          json.append("\\n");
+        } else if (c == '\r') {
+          json.append("\\r");
+        } else if (c == '\t') {
+          json.append("\\t");
+        } else if (c < 0x20) {
+          json.append(String.format("\\u%04x", (int) c));
+        } else {
+          json.append(c);
+        }
+      }
+      json.append('"');
+    }
+    return json;
+  }
 }
@@ -0,0 +1,53 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import org.apache.ibatis.migration.metrics.MigrationMetrics;
+import org.apache.ibatis.migration.metrics.StatementProfiler;
+import org.apache.ibatis.migration.utils.TestUtil;
+import org.junit.Test;
+
+public class CommandLineTest {
+
+  @Test
+  public void shouldReleaseCommandStateWhenEventsFileCannotBeOpened() throws Exception {
+    File dir = File.createTempFile("commandline", "test");
+    assertTrue(dir.delete());
+    assertTrue(dir.mkdirs());
+    File metricsFile = new File(dir, "metrics.json");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      boolean succeeded = new CommandLine(TestUtil.args("--path=" + dir.getAbsolutePath(),
+          "--metrics=" + metricsFile.getAbsolutePath(), "--events=" + new File(dir, "missing/events.jsonl"),
+          "--profile", "info"), new PrintStream(out)).run();
+      assertFalse(succeeded);
+      assertTrue(out.toString().contains("Failed to open events file"));
+      assertTrue(out.toString().contains("FAILURE"));
+      assertFalse(MigrationMetrics.isStatementTimingEnabled());
+      assertNull(StatementProfiler.getActive());
+      assertTrue(metricsFile.exists());
+    } finally {
+      metricsFile.delete();
+      dir.delete();
+    }
+  }
+}
@@ -16,6 +16,7 @@
 package org.apache.ibatis.migration;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -45,6 +46,10 @@ public class Jsr233MigrationLoaderTest {
   }
 
   private Jsr233MigrationLoader mkloader(String propsFile) {
+    return mkloader(propsFile, false);
+  }
+
+  private Jsr233MigrationLoader mkloader(String propsFile, boolean cacheScripts) {
 
     String resourceRoot = this.getClass().getName().replaceAll("\\.", "/");
     URL url = this.getClass().getClassLoader().getResource(resourceRoot);
@@ -56,6 +61,9 @@ public class Jsr233MigrationLoaderTest {
     Environment env = new Environment(props);
     SelectedPaths sp = new SelectedPaths(dir);
     env.getVariables().put("testid", id);
+    if (cacheScripts) {
+      env.getVariables().put("cache_scripts", "true");
+    }
     return new Jsr233MigrationLoader(sp, env);
   }
 
@@ -138,6 +146,45 @@ public class Jsr233MigrationLoaderTest {
     assertEquals(expected, actual);
   }
 
+  @Test
+  public void getMigrationsIsMemoizedUntilInvalidated() throws Exception {
+    Jsr233MigrationLoader loader = mkloader("classpath");
+    List<Change> changes = loader.getMigrations();
+    changes.get(0).setAppliedTimestamp("2018-01-01 00:00:00");
+    loader.getEnvironment().getVariables().put("testid", id + 1);
+
+    List<Change> memoized = loader.getMigrations();
+    assertEquals(Collections.singletonList(change), memoized);
+    assertNull(memoized.get(0).getAppliedTimestamp());
+
+    loader.invalidate();
+    assertEquals(new BigDecimal(id + 1), loader.getMigrations().get(0).getId());
+  }
+
+  @Test
+  public void getScriptReaderFromCache() throws Exception {
+    Jsr233MigrationLoader loader = mkloader("counting", true);
+    String expected = String.format("select '%s' as id, '%s' as change", this.change.getId(),
+        loader.getPaths().getBasePath().getCanonicalPath());
+    for (int i = 0; i < 2; i++) {
+      assertEquals(expected, new BufferedReader(loader.getScriptReader(change)).readLine());
+    }
+    assertEquals("1", loader.getEnvironment().getVariables().getProperty("change_evaluations"));
+
+    loader.invalidate();
+    assertEquals(expected, new BufferedReader(loader.getScriptReader(change)).readLine());
+    assertEquals("2", loader.getEnvironment().getVariables().getProperty("change_evaluations"));
+  }
+
+  @Test
+  public void getScriptReaderWithoutCache() throws Exception {
+    Jsr233MigrationLoader loader = mkloader("counting");
+    for (int i = 0; i < 2; i++) {
+      loader.getScriptReader(change);
+    }
+    assertEquals("2", loader.getEnvironment().getVariables().getProperty("change_evaluations"));
+  }
+
   @Test
   public void getMigrationsNoScript() throws Exception {
     Jsr233MigrationLoader loader = mkloader("default");
@@ -0,0 +1,154 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.Reader;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.migration.MigratingDataSource.FailurePolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MigratingDataSourceTest {
+
+  private UnpooledDataSource dataSource;
+
+  @Before
+  public void setup() {
+    dataSource = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:migratingdatasource", "sa", "");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Connection connection = dataSource.getConnection();
+    try {
+      connection.createStatement().execute("shutdown");
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void shouldReturnConnectionsOnceMigrated() throws Exception {
+    MigratingDataSource migratingDataSource = new MigratingDataSource(dataSource, createMigrationsLoader());
+    Connection connection = migratingDataSource.getConnection();
+    try {
+      assertTrue(migratingDataSource.isMigrated());
+      assertNull(migratingDataSource.getFailure());
+      Statement statement = connection.createStatement();
+      ResultSet rs = statement.executeQuery("select count(*) from changelog");
+      rs.next();
+      assertEquals(3, rs.getInt(1));
+      statement.close();
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void shouldFailWhenMigrationsFail() throws Exception {
+    MigratingDataSource migratingDataSource = new MigratingDataSource(dataSource,
+        new BlockingMigrationLoader(new CountDownLatch(0)));
+    try {
+      migratingDataSource.getConnection();
+      fail("Expected the migration failure to be reported.");
+    } catch (SQLException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void shouldProceedWhenMigrationsFail() throws Exception {
+    MigratingDataSource migratingDataSource = new MigratingDataSource(dataSource,
+        new BlockingMigrationLoader(new CountDownLatch(0)));
+    migratingDataSource.setFailurePolicy(FailurePolicy.PROCEED);
+    migratingDataSource.getConnection().close();
+    assertTrue(migratingDataSource.getFailure() instanceof IllegalStateException);
+  }
+
+  @Test
+  public void shouldTimeOutWhileMigrating() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    MigratingDataSource migratingDataSource = new MigratingDataSource(dataSource, new BlockingMigrationLoader(latch));
+    migratingDataSource.setTimeout(50);
+    try {
+      migratingDataSource.getConnection();
+      fail("Expected a timeout.");
+    } catch (SQLTimeoutException e) {
+      assertFalse(migratingDataSource.isMigrated());
+    } finally {
+      latch.countDown();
+    }
+  }
+
+  private FileMigrationLoader createMigrationsLoader() {
+    URL url = getClass().getClassLoader().getResource("org/apache/ibatis/migration/runtime_migration/scripts");
+    Properties properties = new Properties();
+    properties.setProperty("changelog", "CHANGELOG");
+    return new FileMigrationLoader(new File(url.getFile()), "utf-8", properties);
+  }
+
+  private static class BlockingMigrationLoader implements MigrationLoader {
+    private final CountDownLatch latch;
+
+    BlockingMigrationLoader(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public List<Change> getMigrations() {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new IllegalStateException("Cannot load migrations.");
+    }
+
+    @Override
+    public Reader getScriptReader(Change change) {
+      return null;
+    }
+
+    @Override
+    public Reader getRollbackReader(Change change) {
+      return null;
+    }
+
+    @Override
+    public List<Reader> getBootstrapReaders() {
+      return null;
+    }
+
+    @Override
+    public Reader getOnAbortReader(Change change) {
+      return null;
+    }
+  }
+}
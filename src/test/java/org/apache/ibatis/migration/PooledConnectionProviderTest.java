@@ -0,0 +1,119 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PooledConnectionProviderTest {
+
+  private static final String URL = "jdbc:hsqldb:mem:pooledprovider";
+
+  private PooledConnectionProvider provider;
+
+  @Before
+  public void setup() {
+    provider = new PooledConnectionProvider("org.hsqldb.jdbcDriver", URL, "sa", "");
+  }
+
+  @After
+  public void tearDown() {
+    provider.close();
+  }
+
+  @Test
+  public void shouldReuseConnection() throws Exception {
+    Connection first = provider.getConnection();
+    Connection realConnection = PooledDataSource.unwrapConnection(first);
+    first.close();
+    Connection second = provider.getConnection();
+    try {
+      assertSame(realConnection, PooledDataSource.unwrapConnection(second));
+    } finally {
+      second.close();
+    }
+  }
+
+  @Test
+  public void shouldFailWhenNoConnectionIsReturnedInTime() throws Exception {
+    provider.setMaximumActiveConnections(1);
+    provider.setWaitTimeout(1);
+    Connection first = provider.getConnection();
+    try {
+      provider.getConnection();
+      fail();
+    } catch (SQLException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("No connection was returned to the pool within 1 seconds"));
+    } finally {
+      first.close();
+    }
+    Connection second = provider.getConnection();
+    second.close();
+  }
+
+  @Test
+  public void shouldReplaceConnectionsDroppedByTheDatabase() throws Exception {
+    Connection first = provider.getConnection();
+    assertTrue(isWorking(first));
+    first.close();
+
+    Connection admin = DriverManager.getConnection(URL, "sa", "");
+    Statement statement = admin.createStatement();
+    try {
+      statement.execute("SHUTDOWN");
+    } finally {
+      admin.close();
+    }
+
+    Connection second = provider.getConnection();
+    try {
+      assertTrue(isWorking(second));
+    } finally {
+      second.close();
+    }
+  }
+
+  @Test
+  public void shouldValidateWithQuery() throws Exception {
+    provider.setValidationQuery("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS");
+    Connection connection = provider.getConnection();
+    try {
+      assertTrue(isWorking(connection));
+    } finally {
+      connection.close();
+    }
+  }
+
+  private boolean isWorking(Connection connection) throws Exception {
+    Statement statement = connection.createStatement();
+    try {
+      ResultSet rs = statement.executeQuery("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS");
+      return rs.next();
+    } finally {
+      statement.close();
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+
+public class VariableContextTest {
+
+  @Test
+  public void shouldIncludeFileSystemAndEnvironmentVariables() {
+    Properties props = new Properties();
+    props.setProperty("author", "jim");
+    System.setProperty("migration.context.test", "sysValue");
+    try {
+      Properties variables = new VariableContext(props).toProperties();
+      assertEquals("jim", variables.getProperty("author"));
+      assertEquals("sysValue", variables.getProperty("sys.migration.context.test"));
+      assertFalse(variables.containsKey("sys.migration.context.missing"));
+      for (Map.Entry<String, String> env : System.getenv().entrySet()) {
+        assertEquals(env.getValue(), variables.get("env." + env.getKey()));
+      }
+      // the prefixed entries can be enumerated
+      assertTrue(variables.keySet().contains("sys.migration.context.test"));
+      assertEquals(1 + System.getProperties().size() + System.getenv().size(), variables.size());
+    } finally {
+      System.clearProperty("migration.context.test");
+    }
+  }
+
+  @Test
+  public void shouldReadSystemPropertiesEachTime() {
+    VariableContext context = new VariableContext(new Properties());
+    assertNull(context.toProperties().getProperty("sys.migration.context.test"));
+    System.setProperty("migration.context.test", "late");
+    try {
+      assertEquals("late", context.toProperties().getProperty("sys.migration.context.test"));
+    } finally {
+      System.clearProperty("migration.context.test");
+    }
+  }
+
+  @Test
+  public void shouldPreferSystemPropertiesOverFileEntries() {
+    Properties props = new Properties();
+    props.setProperty("sys.migration.context.test", "file");
+    VariableContext context = new VariableContext(props);
+    assertEquals("file", context.toProperties().getProperty("sys.migration.context.test"));
+    System.setProperty("migration.context.test", "system");
+    try {
+      assertEquals("system", context.toProperties().getProperty("sys.migration.context.test"));
+    } finally {
+      System.clearProperty("migration.context.test");
+    }
+  }
+
+  @Test
+  public void shouldReturnIndependentModifiableCopies() {
+    Properties props = new Properties();
+    props.setProperty("author", "jim");
+    VariableContext context = new VariableContext(props);
+    Properties variables = context.toProperties();
+    variables.setProperty("description", "create blog");
+    variables.remove("author");
+    Properties other = context.toProperties();
+    assertNull(other.getProperty("description"));
+    assertEquals("jim", other.getProperty("author"));
+    assertEquals("jim", props.getProperty("author"));
+  }
+
+  @Test
+  public void shouldCopyOnlyFileEntries() {
+    Properties props = new Properties();
+    props.setProperty("author", "jim");
+    Properties fileProperties = new VariableContext(props).toFileProperties();
+    assertEquals(1, fileProperties.size());
+    fileProperties.remove("author");
+    assertEquals("jim", props.getProperty("author"));
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.commands;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.options.SelectedOptions;
+import org.junit.Test;
+
+public class BatchCommandTest {
+
+  @Test
+  public void shouldSplitCommandsOnSemicolonsAndLineBreaks() {
+    List<List<String>> steps = BatchCommand.parseSteps("bootstrap; up 2;status\n# comment\n\ndown\n");
+    assertEquals(4, steps.size());
+    assertEquals(Arrays.asList("bootstrap"), steps.get(0));
+    assertEquals(Arrays.asList("up", "2"), steps.get(1));
+    assertEquals(Arrays.asList("status"), steps.get(2));
+    assertEquals(Arrays.asList("down"), steps.get(3));
+  }
+
+  @Test
+  public void shouldKeepQuotedWordsTogether() {
+    List<List<String>> steps = BatchCommand.parseSteps("new \"create blog; table\" ; up");
+    assertEquals(2, steps.size());
+    assertEquals(Arrays.asList("new", "create blog; table"), steps.get(0));
+    assertEquals(Arrays.asList("up"), steps.get(1));
+  }
+
+  @Test(expected = MigrationException.class)
+  public void shouldRejectUnbalancedQuotes() {
+    BatchCommand.parseSteps("new \"create blog table");
+  }
+
+  @Test
+  public void shouldRunCommandsAndPrintSummary() throws Exception {
+    File basePath = initRepository("batch_success");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BatchCommand command = new BatchCommand(options(basePath));
+    command.setPrintStream(new PrintStream(out));
+    command.execute("up; status");
+
+    String output = out.toString();
+    assertTrue(output.contains("-- Batch summary"));
+    assertTrue(output.matches("(?s).*up\\s+SUCCESS.*"));
+    assertTrue(output.matches("(?s).*status\\s+SUCCESS.*"));
+    assertFalse(output.contains("...pending..."));
+    assertFalse(new File(basePath, "timings").exists());
+    assertNull(BaseCommand.getResourceCache());
+  }
+
+  @Test
+  public void shouldSkipRemainingCommandsAfterFailure() throws Exception {
+    File basePath = initRepository("batch_failure");
+    File batchFile = new File(basePath, "commands.txt");
+    PrintWriter writer = new PrintWriter(new FileWriter(batchFile));
+    writer.println("script 1 1");
+    writer.println("status");
+    writer.close();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BatchCommand command = new BatchCommand(options(basePath));
+    command.setPrintStream(new PrintStream(out));
+    try {
+      command.execute("commands.txt");
+      fail("Expected the batch to fail.");
+    } catch (MigrationException e) {
+      String output = out.toString();
+      assertTrue(output.matches("(?s).*script 1 1\\s+FAILURE.*"));
+      assertTrue(output.matches("(?s).*status\\s+SKIPPED.*"));
+    }
+    assertNull(BaseCommand.getResourceCache());
+  }
+
+  private SelectedOptions options(File basePath) {
+    SelectedOptions options = new SelectedOptions();
+    options.getPaths().setBasePath(basePath);
+    return options;
+  }
+
+  private File initRepository(String database) throws IOException {
+    File basePath = File.createTempFile("migration", "batch");
+    assertTrue(basePath.delete());
+    assertTrue(basePath.mkdir());
+    basePath.deleteOnExit();
+    InitializeCommand init = new InitializeCommand(options(basePath));
+    init.setPrintStream(new PrintStream(new ByteArrayOutputStream()));
+    init.execute();
+
+    PrintWriter writer = new PrintWriter(new FileWriter(new File(basePath, "environments/development.properties")));
+    writer.println("driver=org.hsqldb.jdbcDriver");
+    writer.println("url=jdbc:hsqldb:mem:" + database);
+    writer.println("username=sa");
+    writer.println("password=");
+    writer.close();
+    return basePath;
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.commands;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class DriverClassLoadersTest {
+
+  @Test
+  public void shouldReplaceClassLoaderWhenDriverIsOverwritten() throws Exception {
+    File dir = File.createTempFile("drivers", "test");
+    assertTrue(dir.delete());
+    assertTrue(dir.mkdirs());
+    File driver = new File(dir, "driver.jar");
+    try {
+      write(driver, 1);
+      ClassLoader first = DriverClassLoaders.get(dir);
+      assertSame(first, DriverClassLoaders.get(dir));
+
+      // same name and modification time, different size
+      long lastModified = driver.lastModified();
+      long dirLastModified = dir.lastModified();
+      write(driver, 2);
+      assertTrue(driver.setLastModified(lastModified));
+      assertTrue(dir.setLastModified(dirLastModified));
+      assertNotSame(first, DriverClassLoaders.get(dir));
+    } finally {
+      driver.delete();
+      dir.delete();
+    }
+  }
+
+  private void write(File file, int length) throws IOException {
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(new byte[length]);
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.commands;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.Environment;
+import org.apache.ibatis.migration.MigrationLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResourceCacheTest {
+
+  private ResourceCache cache;
+
+  private File dir;
+
+  @Before
+  public void setup() throws Exception {
+    cache = new ResourceCache();
+    dir = File.createTempFile("migration", "cache");
+    assertTrue(dir.delete());
+    assertTrue(dir.mkdir());
+  }
+
+  @After
+  public void teardown() {
+    cache.close();
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void shouldReuseMigrationsWhileDirectoryIsUnchanged() throws Exception {
+    writeFile(new File(dir, "001_first.sql"), "");
+    CountingLoader delegate = new CountingLoader(dir);
+    MigrationLoader loader = cache.getMigrationLoader(dir, delegate);
+    assertEquals(1, loader.getMigrations().size());
+    assertEquals(1, loader.getMigrations().size());
+    assertEquals(1, delegate.count);
+  }
+
+  @Test
+  public void shouldHandOutCopiesOfCachedMigrations() throws Exception {
+    writeFile(new File(dir, "001_first.sql"), "");
+    MigrationLoader loader = cache.getMigrationLoader(dir, new CountingLoader(dir));
+    loader.getMigrations().get(0).setDescription("modified");
+    assertEquals("first", loader.getMigrations().get(0).getDescription());
+  }
+
+  @Test
+  public void shouldSeeMigrationCreatedWithinTimestampGranularity() throws Exception {
+    writeFile(new File(dir, "001_first.sql"), "");
+    CountingLoader delegate = new CountingLoader(dir);
+    MigrationLoader loader = cache.getMigrationLoader(dir, delegate);
+    assertEquals(1, loader.getMigrations().size());
+
+    // 'new' followed by 'up' in the same second: the directory timestamp does not change
+    long lastModified = dir.lastModified();
+    writeFile(new File(dir, "002_second.sql"), "");
+    assertTrue(dir.setLastModified(lastModified));
+
+    assertEquals(2, loader.getMigrations().size());
+    assertEquals(2, delegate.count);
+  }
+
+  @Test
+  public void shouldReloadChangedEnvironment() throws Exception {
+    File envFile = new File(dir, "development.properties");
+    writeFile(envFile, "driver=org.hsqldb.jdbcDriver\nurl=jdbc:hsqldb:mem:first\n");
+    Environment environment = cache.getEnvironment(envFile);
+    assertSame(environment, cache.getEnvironment(envFile));
+
+    long lastModified = envFile.lastModified();
+    writeFile(envFile, "driver=org.hsqldb.jdbcDriver\nurl=jdbc:hsqldb:mem:second_database\n");
+    assertTrue(envFile.setLastModified(lastModified));
+
+    Environment reloaded = cache.getEnvironment(envFile);
+    assertNotSame(environment, reloaded);
+    assertEquals("jdbc:hsqldb:mem:second_database", reloaded.getUrl());
+  }
+
+  private void writeFile(File file, String content) throws IOException {
+    FileWriter writer = new FileWriter(file);
+    try {
+      writer.write(content);
+    } finally {
+      writer.close();
+    }
+  }
+
+  private static class CountingLoader implements MigrationLoader {
+    private final File dir;
+    private int count;
+
+    CountingLoader(File dir) {
+      this.dir = dir;
+    }
+
+    @Override
+    public List<Change> getMigrations() {
+      count++;
+      List<Change> changes = new ArrayList<Change>();
+      for (String name : dir.list()) {
+        String id = name.substring(0, name.indexOf('_'));
+        String description = name.substring(name.indexOf('_') + 1, name.indexOf('.'));
+        changes.add(new Change(new BigDecimal(id), null, description, name));
+      }
+      return changes;
+    }
+
+    @Override
+    public Reader getScriptReader(Change change) {
+      return null;
+    }
+
+    @Override
+    public Reader getRollbackReader(Change change) {
+      return null;
+    }
+
+    @Override
+    public List<Reader> getBootstrapReaders() {
+      return null;
+    }
+
+    @Override
+    public Reader getOnAbortReader(Change change) {
+      return null;
+    }
+  }
+}
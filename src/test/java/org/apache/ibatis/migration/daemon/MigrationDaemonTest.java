@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.daemon;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.io.Resources;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MigrationDaemonTest {
+
+  private File tokenDir;
+
+  private MigrationDaemon daemon;
+
+  private Thread daemonThread;
+
+  @Before
+  public void setup() throws Exception {
+    tokenDir = getTempDir();
+    daemon = new MigrationDaemon(0, tokenDir, new PrintStream(new ByteArrayOutputStream()));
+    daemon.start();
+    daemonThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        daemon.run();
+      }
+    });
+    daemonThread.start();
+  }
+
+  @After
+  public void teardown() throws Exception {
+    daemon.stop();
+    daemonThread.join(10000);
+  }
+
+  @Test
+  public void shouldWriteTokenFile() throws Exception {
+    File tokenFile = DaemonToken.file(tokenDir, daemon.getPort());
+    assertTrue(tokenFile.isFile());
+    assertEquals(64, DaemonToken.read(tokenFile).length());
+  }
+
+  @Test
+  public void shouldRunStatusInDaemon() throws Exception {
+    File dir = Resources.getResourceAsFile("org/apache/ibatis/migration/example");
+    ByteArrayOutputStream console = new ByteArrayOutputStream();
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    PrintStream systemOut = System.out;
+    Integer status;
+    System.setOut(new PrintStream(stdout));
+    try {
+      status = new DaemonClient(daemon.getPort(), tokenDir, new PrintStream(console))
+          .forward(new String[] { "--path=" + dir.getAbsolutePath(), "--daemon", "status" });
+    } finally {
+      System.setOut(systemOut);
+    }
+    String output = console.toString();
+    assertEquals(output, Integer.valueOf(0), status);
+    assertTrue(output, output.contains("ID             Applied At          Description"));
+    assertTrue(output, output.contains("MyBatis Migrations SUCCESS"));
+    // the output of the command is not written to the streams of the daemon process
+    assertEquals("", stdout.toString());
+  }
+
+  @Test
+  public void shouldReturnFailureStatus() throws Exception {
+    ByteArrayOutputStream console = new ByteArrayOutputStream();
+    Integer status = new DaemonClient(daemon.getPort(), tokenDir, new PrintStream(console))
+        .forward(new String[] { "--path=" + getTempDir().getAbsolutePath(), "unknown" });
+    assertEquals(Integer.valueOf(1), status);
+    assertTrue(console.toString().contains("Attempt to execute unknown command: UNKNOWN"));
+  }
+
+  @Test
+  public void shouldRejectInvalidToken() throws Exception {
+    File otherDir = getTempDir();
+    FileWriter writer = new FileWriter(DaemonToken.file(otherDir, daemon.getPort()));
+    try {
+      writer.write("0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef");
+    } finally {
+      writer.close();
+    }
+    ByteArrayOutputStream console = new ByteArrayOutputStream();
+    Integer status = new DaemonClient(daemon.getPort(), otherDir, new PrintStream(console))
+        .forward(new String[] { "status" });
+    assertEquals(Integer.valueOf(1), status);
+    assertTrue(console.toString().contains("invalid token"));
+  }
+
+  @Test
+  public void shouldFallBackWhenNoDaemonIsRunning() throws Exception {
+    int port = daemon.getPort();
+    File tokenFile = DaemonToken.file(tokenDir, port);
+    daemon.stop();
+    daemonThread.join(10000);
+    assertFalse(tokenFile.exists());
+    assertNull(new DaemonClient(port, tokenDir, System.out).forward(new String[] { "status" }));
+
+    // a token left behind by a daemon that was killed
+    FileWriter writer = new FileWriter(tokenFile);
+    try {
+      writer.write("stale");
+    } finally {
+      writer.close();
+    }
+    assertNull(new DaemonClient(port, tokenDir, System.out).forward(new String[] { "status" }));
+  }
+
+  @Test
+  public void shouldResolvePathsForDaemon() throws Exception {
+    List<String> args = DaemonClient.toDaemonArgs(new String[] { "--daemon=7000", "--env=test",
+        "--scriptpath=db/scripts", "up", "2" });
+    assertEquals(Arrays.asList("--env=test", "--scriptpath=" + new File("db/scripts").getAbsolutePath(), "up", "2",
+        "--path=" + new File(".").getAbsolutePath()), args);
+
+    args = DaemonClient.toDaemonArgs(new String[] { "--path=project", "status" });
+    assertEquals(Arrays.asList("--path=" + new File("project").getAbsolutePath(), "status"), args);
+  }
+
+  private File getTempDir() throws IOException {
+    File f = File.createTempFile("migration", "daemon");
+    assertTrue(f.delete());
+    assertTrue(f.mkdir());
+    f.deleteOnExit();
+    return f;
+  }
+}
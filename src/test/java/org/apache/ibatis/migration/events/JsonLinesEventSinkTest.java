@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.events;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.migration.Change;
+import org.junit.Test;
+
+public class JsonLinesEventSinkTest {
+
+  @Test
+  public void shouldWriteOneJsonObjectPerLine() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonLinesEventSink sink = new JsonLinesEventSink(out);
+    sink.emit(new MigrationEvent("runStart", 1000L).with("operation", "up").with("pending", 2));
+    sink.emit(new MigrationEvent("statement", 2000L).with("sql", "insert into t values ('a\"b')\n").with("success",
+        true).with("durationMillis", 1.5));
+    sink.close();
+
+    String[] lines = out.toString("UTF-8").split("\n");
+    assertEquals(2, lines.length);
+    assertEquals("{\"event\":\"runStart\",\"timestamp\":1000,\"operation\":\"up\",\"pending\":2}", lines[0]);
+    assertEquals("{\"event\":\"statement\",\"timestamp\":2000,\"sql\":\"insert into t values ('a\\\"b')\\n\","
+        + "\"success\":true,\"durationMillis\":1.500}", lines[1]);
+  }
+
+  @Test
+  public void shouldDropEventsEmittedAfterClose() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonLinesEventSink sink = new JsonLinesEventSink(out);
+    sink.close();
+    sink.emit(new MigrationEvent("runEnd"));
+    sink.close();
+    assertEquals(1L, sink.getDroppedCount());
+    assertEquals("", out.toString("UTF-8"));
+  }
+
+  @Test
+  public void shouldEmitToCurrentSinkOnly() {
+    final List<MigrationEvent> events = new ArrayList<MigrationEvent>();
+    EventSink sink = new EventSink() {
+      @Override
+      public void emit(MigrationEvent event) {
+        events.add(event);
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    Change change = new Change(new BigDecimal("20180101000000"), null, "create table");
+    change.setFilename("20180101000000_create_table.sql");
+
+    MigrationEvents.changeStart("up", change);
+    assertTrue(events.isEmpty());
+
+    MigrationEvents.setSink(sink);
+    try {
+      MigrationEvents.changeEnd("up", change, 2500000L);
+      MigrationEvents.hook("before", null, 1000000L);
+    } finally {
+      MigrationEvents.setSink(null);
+    }
+    assertEquals(2, events.size());
+    MigrationEvent changeEnd = events.get(0);
+    assertEquals("changeEnd", changeEnd.getType());
+    assertEquals("20180101000000", changeEnd.get("changeId"));
+    assertEquals("20180101000000_create_table.sql", changeEnd.get("fileName"));
+    assertEquals(2.5, (Double) changeEnd.get("durationMillis"), 0.0);
+    assertFalse(events.get(1).getFields().containsKey("changeId"));
+  }
+}
@@ -0,0 +1,228 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.hook;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.ConnectionProvider;
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.hook.scripts.AsyncHookScript;
+import org.apache.ibatis.migration.hook.scripts.HookScript;
+import org.apache.ibatis.migration.hook.scripts.NoOpHookScript;
+import org.apache.ibatis.migration.options.DatabaseOperationOption;
+import org.junit.Test;
+
+public class AsyncHookScriptTest {
+
+  private final AtomicInteger openConnections = new AtomicInteger();
+
+  private final ConnectionProvider connectionProvider = new ConnectionProvider() {
+    @Override
+    public Connection getConnection() {
+      openConnections.incrementAndGet();
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+          new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+              if ("close".equals(method.getName())) {
+                openConnections.decrementAndGet();
+              } else if ("getAutoCommit".equals(method.getName())) {
+                return Boolean.TRUE;
+              }
+              return null;
+            }
+          });
+    }
+  };
+
+  @Test
+  public void shouldRunInOrderWithoutBlockingAndJoinAtAfter() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+    HookScript slowScript = new HookScript() {
+      @Override
+      public Void execute(Map<String, Object> bindingMap) {
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        HookContext context = (HookContext) bindingMap.get(MigrationHook.HOOK_CONTEXT);
+        executed.add(context.getChange().getDescription() + ":" + Thread.currentThread().getName());
+        return null;
+      }
+    };
+    AsyncHookScript afterEach = new AsyncHookScript(slowScript, connectionProvider, new DatabaseOperationOption(),
+        null);
+    FileMigrationHook hook = new FileMigrationHook(null, null, afterEach, NoOpHookScript.getInstance());
+
+    Map<String, Object> bindingMap = new HashMap<String, Object>();
+    for (int i = 1; i <= 3; i++) {
+      bindingMap.put(MigrationHook.HOOK_CONTEXT, new HookContext(null, null, new Change(new BigDecimal(i), null,
+          "change" + i)));
+      hook.afterEach(bindingMap);
+    }
+    assertTrue(executed.isEmpty());
+
+    release.countDown();
+    hook.after(bindingMap);
+    assertEquals(3, executed.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals("change" + (i + 1) + ":mybatis-migrations-hook", executed.get(i));
+    }
+    assertEquals(0, openConnections.get());
+  }
+
+  @Test
+  public void shouldReportFailureAtAfter() throws Exception {
+    HookScript failingScript = new HookScript() {
+      @Override
+      public Void execute(Map<String, Object> bindingMap) {
+        throw new MigrationException("hook failed");
+      }
+    };
+    AsyncHookScript afterEach = new AsyncHookScript(failingScript, connectionProvider, new DatabaseOperationOption(),
+        null);
+    FileMigrationHook hook = new FileMigrationHook(null, null, afterEach, null);
+    Map<String, Object> bindingMap = new HashMap<String, Object>();
+    bindingMap.put(MigrationHook.HOOK_CONTEXT, new HookContext(null, null, new Change(BigDecimal.ONE, null, "c")));
+    hook.afterEach(bindingMap);
+    try {
+      hook.after(bindingMap);
+      fail();
+    } catch (MigrationException e) {
+      assertEquals("hook failed", e.getMessage());
+    }
+    // the failure is reported once
+    hook.after(bindingMap);
+    assertEquals(0, openConnections.get());
+  }
+
+  @Test
+  public void shouldReportFailureWhenMigrationFails() throws Exception {
+    HookScript failingScript = new HookScript() {
+      @Override
+      public Void execute(Map<String, Object> bindingMap) {
+        throw new MigrationException("hook failed");
+      }
+    };
+    AsyncHookScript beforeEach = new AsyncHookScript(failingScript, connectionProvider, new DatabaseOperationOption(),
+        null);
+    FileMigrationHook hook = new FileMigrationHook(null, beforeEach, null, null);
+    Map<String, Object> bindingMap = new HashMap<String, Object>();
+    bindingMap.put(MigrationHook.HOOK_CONTEXT, new HookContext(null, null, new Change(BigDecimal.ONE, null, "c")));
+    hook.beforeEach(bindingMap);
+
+    List<Throwable> failures = hook.awaitAfterFailure(10, TimeUnit.SECONDS);
+    assertEquals(1, failures.size());
+    assertEquals("hook failed", failures.get(0).getMessage());
+    assertTrue(hook.awaitAfterFailure(10, TimeUnit.SECONDS).isEmpty());
+    assertEquals(0, openConnections.get());
+  }
+
+  @Test
+  public void shouldCancelExecutionsThatDoNotCompleteInTime() throws Exception {
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    HookScript blockingScript = new HookScript() {
+      @Override
+      public Void execute(Map<String, Object> bindingMap) {
+        try {
+          new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+        }
+        return null;
+      }
+    };
+    AsyncHookScript afterEach = new AsyncHookScript(blockingScript, connectionProvider, new DatabaseOperationOption(),
+        null);
+    FileMigrationHook hook = new FileMigrationHook(null, null, afterEach, null);
+    Map<String, Object> bindingMap = new HashMap<String, Object>();
+    bindingMap.put(MigrationHook.HOOK_CONTEXT, new HookContext(null, null, new Change(BigDecimal.ONE, null, "c")));
+    hook.afterEach(bindingMap);
+    hook.afterEach(bindingMap);
+
+    List<Throwable> failures = hook.awaitAfterFailure(100, TimeUnit.MILLISECONDS);
+    assertEquals(1, failures.size());
+    assertTrue(failures.get(0).getMessage(), failures.get(0).getMessage().startsWith(
+        "Asynchronous hook did not complete within"));
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldWaitForFreeSlotWhenQueueIsFull() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger executions = new AtomicInteger();
+    HookScript slowScript = new HookScript() {
+      @Override
+      public Void execute(Map<String, Object> bindingMap) {
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        executions.incrementAndGet();
+        return null;
+      }
+    };
+    final AsyncHookScript afterEach = new AsyncHookScript(slowScript, connectionProvider,
+        new DatabaseOperationOption(), null, 1);
+    final Map<String, Object> bindingMap = new HashMap<String, Object>();
+    bindingMap.put(MigrationHook.HOOK_CONTEXT, new HookContext(null, null, new Change(BigDecimal.ONE, null, "c")));
+    // one running, one queued
+    afterEach.execute(bindingMap);
+    afterEach.execute(bindingMap);
+    final CountDownLatch submitted = new CountDownLatch(1);
+    Thread third = new Thread() {
+      @Override
+      public void run() {
+        afterEach.execute(bindingMap);
+        submitted.countDown();
+      }
+    };
+    third.start();
+    assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+
+    release.countDown();
+    assertTrue(submitted.await(5, TimeUnit.SECONDS));
+    afterEach.await();
+    assertEquals(3, executions.get());
+    assertEquals(0, openConnections.get());
+  }
+
+  @Test
+  public void shouldRecognizeAsyncSettings() {
+    assertTrue(AsyncHookScript.isAsync("async:JavaScript:notify.js"));
+    assertTrue(AsyncHookScript.isAsync("ASYNC:java:audit"));
+    assertFalse(AsyncHookScript.isAsync("JavaScript:async.js"));
+    assertFalse(AsyncHookScript.isAsync(null));
+  }
+}
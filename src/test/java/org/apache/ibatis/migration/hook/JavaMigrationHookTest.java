@@ -0,0 +1,92 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.hook;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.hook.scripts.JavaHookScript;
+import org.apache.ibatis.migration.hook.scripts.JavaHookScript.Phase;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JavaMigrationHookTest {
+
+  @Before
+  public void clear() {
+    RecordingJavaHook.calls.clear();
+  }
+
+  @Test
+  public void shouldRecognizeJavaHookSettings() {
+    assertTrue(JavaHookScript.isJavaHook("java:recording"));
+    assertTrue(JavaHookScript.isJavaHook("Java:recording:table=audit"));
+    assertFalse(JavaHookScript.isJavaHook("JavaScript:hello.js"));
+    assertFalse(JavaHookScript.isJavaHook(null));
+  }
+
+  @Test
+  public void shouldDispatchToMethodOfPhase() {
+    FileMigrationHook hook = new FileMigrationHook(JavaHookScript.create("java:recording", Phase.BEFORE),
+        JavaHookScript.create("java:recording:table=audit", Phase.BEFORE_EACH),
+        JavaHookScript.create("java:recording", Phase.AFTER_EACH),
+        JavaHookScript.create("java:recording", Phase.AFTER));
+    Change change = new Change(BigDecimal.ONE, null, "first");
+    Map<String, Object> bindingMap = new HashMap<String, Object>();
+
+    bindingMap.put(MigrationHook.HOOK_CONTEXT, new HookContext(null, null, null));
+    hook.before(bindingMap);
+    bindingMap.put(MigrationHook.HOOK_CONTEXT, new HookContext(null, null, change));
+    hook.beforeEach(bindingMap);
+    hook.afterEach(bindingMap);
+    bindingMap.put(MigrationHook.HOOK_CONTEXT, new HookContext(null, null, null));
+    hook.after(bindingMap);
+
+    assertEquals(Arrays.asList("before:null:null", "beforeEach:first:audit", "afterEach:first:null",
+        "after:null:null"), RecordingJavaHook.calls);
+    assertEquals(1, bindingMap.size());
+  }
+
+  @Test
+  public void shouldShareOneInstanceBetweenSettings() {
+    JavaHookScript before = JavaHookScript.create("java:recording", Phase.BEFORE);
+    JavaHookScript after = JavaHookScript.create("java:recording:table=audit", Phase.AFTER);
+    assertSame(before.getHook(), after.getHook());
+  }
+
+  @Test
+  public void shouldExposeHookAndPhase() {
+    JavaHookScript script = JavaHookScript.create("java:recording", Phase.BEFORE);
+    assertEquals("recording", script.getHook().getName());
+    assertEquals(Phase.BEFORE, script.getPhase());
+  }
+
+  @Test
+  public void shouldFailOnUnknownHook() {
+    try {
+      JavaHookScript.create("java:missing", Phase.BEFORE);
+      fail();
+    } catch (MigrationException e) {
+      assertEquals("Java hook not found : missing", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.hook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class RecordingJavaHook implements JavaMigrationHook {
+
+  static final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+
+  @Override
+  public String getName() {
+    return "recording";
+  }
+
+  @Override
+  public void before(HookContext context, Map<String, String> options) {
+    record("before", context, options);
+  }
+
+  @Override
+  public void beforeEach(HookContext context, Map<String, String> options) {
+    record("beforeEach", context, options);
+  }
+
+  @Override
+  public void afterEach(HookContext context, Map<String, String> options) {
+    record("afterEach", context, options);
+  }
+
+  @Override
+  public void after(HookContext context, Map<String, String> options) {
+    record("after", context, options);
+  }
+
+  private void record(String method, HookContext context, Map<String, String> options) {
+    String change = context == null || context.getChange() == null ? null : context.getChange().getDescription();
+    calls.add(method + ":" + change + ":" + options.get("table"));
+  }
+}
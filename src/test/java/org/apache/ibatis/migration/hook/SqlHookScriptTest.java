@@ -0,0 +1,83 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.hook;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.migration.hook.scripts.SqlHookScript;
+import org.junit.Test;
+
+public class SqlHookScriptTest {
+
+  private final List<String> executed = new ArrayList<String>();
+
+  private final ScriptRunner runner = new ScriptRunner(null) {
+    @Override
+    public void runScript(Reader reader) {
+      try {
+        executed.add(new BufferedReader(reader).readLine());
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  };
+
+  @Test
+  public void shouldReadScriptOnceUntilFileChanges() throws Exception {
+    File file = File.createTempFile("hook", ".sql");
+    file.deleteOnExit();
+    write(file, "update worklog set ${col} = 1;");
+    Properties variables = new Properties();
+    SqlHookScript script = new SqlHookScript(file, "utf-8", new String[] { "col=before" }, variables,
+        new PrintStream(new ByteArrayOutputStream()));
+    Map<String, Object> bindingMap = new HashMap<String, Object>();
+    bindingMap.put(MigrationHook.HOOK_CONTEXT, new HookContext(null, runner, null));
+
+    script.execute(bindingMap);
+    variables.setProperty("col", "after");
+    script.execute(bindingMap);
+
+    write(file, "update worklog set ${col} = 22;");
+    script.execute(bindingMap);
+
+    assertEquals("update worklog set before = 1;", executed.get(0));
+    assertEquals("update worklog set before = 1;", executed.get(1));
+    assertEquals("update worklog set after = 22;", executed.get(2));
+  }
+
+  private void write(File file, String content) throws IOException {
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(content.getBytes("UTF-8"));
+    } finally {
+      out.close();
+    }
+  }
+}
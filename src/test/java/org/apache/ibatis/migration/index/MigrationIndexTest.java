@@ -0,0 +1,108 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.index;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.JavaMigrationLoader;
+import org.apache.ibatis.migration.index.MigrationIndex.Entry;
+import org.apache.ibatis.migration.index.MigrationIndex.Kind;
+import org.apache.ibatis.migration.index.scripts.V001_CreateIndexedTable;
+import org.apache.ibatis.migration.index.scripts.V002_AlterIndexedTable;
+import org.junit.Test;
+
+public class MigrationIndexTest {
+
+  @Test
+  public void shouldWriteAndReadEntries() throws Exception {
+    StringWriter writer = new StringWriter();
+    MigrationIndex.write(writer, Arrays.asList(new Entry(Kind.MIGRATION, "a.b.V001", new BigDecimal("20180101"),
+        "Tab\there\\ and\nnewline"), new Entry(Kind.BOOTSTRAP, "a.b.Bootstrap", null, null)),
+        Arrays.asList("a.b"));
+    MigrationIndex index = MigrationIndex.read(new StringReader(writer.toString()));
+    assertTrue(index.isComplete("a.b"));
+    assertFalse(index.isComplete("a"));
+    List<Entry> entries = new ArrayList<Entry>(index.getEntries());
+    assertEquals(2, entries.size());
+    assertEquals(Kind.MIGRATION, entries.get(0).getKind());
+    assertEquals("a.b.V001", entries.get(0).getClassName());
+    assertEquals(new BigDecimal("20180101"), entries.get(0).getId());
+    assertEquals("Tab\there\\ and\nnewline", entries.get(0).getDescription());
+    assertEquals(Kind.BOOTSTRAP, entries.get(1).getKind());
+    assertNull(entries.get(1).getId());
+    assertNull(entries.get(1).getDescription());
+  }
+
+  @Test
+  public void shouldNotTrustPartialIndex() throws Exception {
+    StringWriter writer = new StringWriter();
+    MigrationIndex.write(writer, Arrays.asList(new Entry(Kind.MIGRATION, "a.b.V001", BigDecimal.ONE, "First")),
+        Collections.<String> emptyList());
+    MigrationIndex index = MigrationIndex.read(new StringReader(writer.toString()));
+    assertNotNull(index.getEntry("a.b.V001"));
+    assertFalse(index.isComplete("a.b"));
+    assertFalse(index.isComplete("a"));
+  }
+
+  @Test
+  public void shouldIndexTestScriptsAtCompileTime() throws Exception {
+    MigrationIndex index = MigrationIndex.load(getClass().getClassLoader());
+    assertTrue(index.isComplete("org.apache.ibatis.migration.index.scripts"));
+    assertFalse(index.isComplete("org.apache.ibatis.migration.index"));
+    assertFalse(index.isComplete("org.apache.ibatis.migration.index.scri"));
+    Entry annotated = index.getEntry(V001_CreateIndexedTable.class.getName());
+    assertEquals(BigDecimal.ONE, annotated.getId());
+    assertEquals("Create indexed table", annotated.getDescription());
+    assertNull(index.getEntry(V002_AlterIndexedTable.class.getName()).getId());
+  }
+
+  @Test
+  public void shouldInstantiateAnnotatedScriptOnlyWhenReadingIt() throws Exception {
+    JavaMigrationLoader loader = new JavaMigrationLoader(V001_CreateIndexedTable.class.getPackage().getName());
+    int instances = V001_CreateIndexedTable.instances;
+    List<Change> migrations = loader.getMigrations();
+    Collections.sort(migrations);
+    assertEquals(2, migrations.size());
+    assertEquals(BigDecimal.ONE, migrations.get(0).getId());
+    assertEquals("Create indexed table", migrations.get(0).getDescription());
+    assertEquals(new BigDecimal(2), migrations.get(1).getId());
+    assertEquals("Alter indexed table", migrations.get(1).getDescription());
+    assertEquals(instances, V001_CreateIndexedTable.instances);
+
+    StringWriter writer = new StringWriter();
+    char[] buffer = new char[100];
+    Reader reader = loader.getScriptReader(migrations.get(0));
+    for (int read = reader.read(buffer); read > -1; read = reader.read(buffer)) {
+      writer.write(buffer, 0, read);
+    }
+    assertEquals("CREATE TABLE indexed_table (ID INTEGER NOT NULL);", writer.toString());
+    assertEquals(instances + 1, V001_CreateIndexedTable.instances);
+
+    loader.getRollbackReader(migrations.get(0));
+    loader.getScriptReader(migrations.get(0));
+    assertEquals(instances + 1, V001_CreateIndexedTable.instances);
+  }
+}
@@ -0,0 +1,52 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.index.scripts;
+
+import java.math.BigDecimal;
+
+import org.apache.ibatis.migration.MigrationInfo;
+import org.apache.ibatis.migration.MigrationScript;
+
+@MigrationInfo(id = "1", description = "Create indexed table")
+public class V001_CreateIndexedTable implements MigrationScript {
+
+  public static volatile int instances;
+
+  public V001_CreateIndexedTable() {
+    instances++;
+  }
+
+  @Override
+  public BigDecimal getId() {
+    return BigDecimal.ONE;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Create indexed table";
+  }
+
+  @Override
+  public String getUpScript() {
+    return "CREATE TABLE indexed_table (ID INTEGER NOT NULL);";
+  }
+
+  @Override
+  public String getDownScript() {
+    return "DROP TABLE indexed_table;";
+  }
+
+}
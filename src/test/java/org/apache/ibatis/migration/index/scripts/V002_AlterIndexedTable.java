@@ -0,0 +1,44 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.index.scripts;
+
+import java.math.BigDecimal;
+
+import org.apache.ibatis.migration.MigrationScript;
+
+public class V002_AlterIndexedTable implements MigrationScript {
+
+  @Override
+  public BigDecimal getId() {
+    return new BigDecimal(2);
+  }
+
+  @Override
+  public String getDescription() {
+    return "Alter indexed table";
+  }
+
+  @Override
+  public String getUpScript() {
+    return "ALTER TABLE indexed_table ADD COLUMN NAME VARCHAR(16);";
+  }
+
+  @Override
+  public String getDownScript() {
+    return "ALTER TABLE indexed_table DROP COLUMN NAME;";
+  }
+
+}
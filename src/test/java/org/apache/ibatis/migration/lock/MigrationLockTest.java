@@ -0,0 +1,253 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.lock;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.migration.ConnectionProvider;
+import org.apache.ibatis.migration.FileMigrationLoader;
+import org.apache.ibatis.migration.JdbcConnectionProvider;
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.hook.MigrationHook;
+import org.apache.ibatis.migration.operations.UpOperation;
+import org.apache.ibatis.migration.options.DatabaseOperationOption;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MigrationLockTest {
+
+  private static final int THREADS = 8;
+
+  private ConnectionProvider connectionProvider;
+
+  private DatabaseOperationOption option;
+
+  @Before
+  public void setup() throws Exception {
+    connectionProvider = new JdbcConnectionProvider("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:migrationlock", "sa",
+        "");
+    option = new DatabaseOperationOption();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    runSql("shutdown");
+  }
+
+  @Test
+  public void shouldGrantLockToOneThreadAtATime() throws Exception {
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger maxActive = new AtomicInteger();
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    runConcurrently(new Runnable() {
+      @Override
+      public void run() {
+        MigrationLock lock = newLock();
+        lock.acquire();
+        try {
+          int current = active.incrementAndGet();
+          if (current > maxActive.get()) {
+            maxActive.set(current);
+          }
+          Thread.sleep(20);
+          active.decrementAndGet();
+        } catch (InterruptedException e) {
+          errors.add(e);
+        } finally {
+          lock.release();
+        }
+      }
+    }, errors);
+    assertEquals(1, maxActive.get());
+    assertEquals("0", runQuery("select count(*) from CHANGELOG_LOCK"));
+  }
+
+  @Test
+  public void shouldTakeOverStaleLock() throws Exception {
+    MigrationLock crashed = newLock();
+    crashed.setLockTimeout(100);
+    crashed.setHeartbeatInterval(60 * 1000);
+    assertTrue(crashed.tryAcquire());
+
+    MigrationLock lock = newLock();
+    assertFalse(lock.tryAcquire());
+    Thread.sleep(200);
+    assertTrue(lock.tryAcquire());
+    lock.release();
+    crashed.release();
+  }
+
+  @Test
+  public void shouldRenewHeldLock() throws Exception {
+    MigrationLock holder = newLock();
+    holder.setLockTimeout(300);
+    holder.setHeartbeatInterval(50);
+    holder.acquire();
+    try {
+      Thread.sleep(600);
+      assertTrue(holder.isHeld());
+      MigrationLock lock = newLock();
+      lock.setWaitTimeout(100);
+      try {
+        lock.acquire();
+        fail("The lock should still be held.");
+      } catch (MigrationException e) {
+        assertTrue(e.getMessage().contains(holder.getOwner()));
+      }
+    } finally {
+      holder.release();
+    }
+    assertFalse(holder.isHeld());
+  }
+
+  @Test
+  public void shouldApplyMigrationsOnceWhenNodesStartConcurrently() throws Exception {
+    final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+    runConcurrently(new Runnable() {
+      @Override
+      public void run() {
+        new UpOperation().operate(connectionProvider, createMigrationsLoader(), option, null, null, newLock());
+      }
+    }, errors);
+    assertEquals("3", runQuery("select count(*) from CHANGELOG"));
+    assertEquals("0", runQuery("select count(*) from first_table"));
+  }
+
+  @Test
+  public void shouldApplyMigrationsWithoutLock() throws Exception {
+    new UpOperation().operate(connectionProvider, createMigrationsLoader(), option, null, null, null);
+    assertEquals("3", runQuery("select count(*) from CHANGELOG"));
+  }
+
+  @Test
+  public void shouldAbortMigrationsWhenLockIsLost() throws Exception {
+    MigrationLock lock = newLock();
+    lock.setLockTimeout(100);
+    lock.setHeartbeatInterval(60 * 1000);
+    final MigrationLock other = newLock();
+    MigrationHook hook = new MigrationHook() {
+      @Override
+      public void before(Map<String, Object> bindingMap) {
+        // the lock expires without being renewed and another node takes it over
+        try {
+          Thread.sleep(200);
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+        assertTrue(other.tryAcquire());
+      }
+
+      @Override
+      public void beforeEach(Map<String, Object> bindingMap) {
+      }
+
+      @Override
+      public void afterEach(Map<String, Object> bindingMap) {
+      }
+
+      @Override
+      public void after(Map<String, Object> bindingMap) {
+      }
+    };
+    try {
+      new UpOperation().operate(connectionProvider, createMigrationsLoader(), option, null, hook, lock);
+      fail("The migrations should have been aborted.");
+    } catch (MigrationException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("Lost the migration lock"));
+    } finally {
+      other.release();
+      lock.release();
+    }
+    assertEquals("0", runQuery("select count(*) from CHANGELOG"));
+  }
+
+  private MigrationLock newLock() {
+    MigrationLock lock = new MigrationLock(connectionProvider, option);
+    lock.setPollInterval(10);
+    return lock;
+  }
+
+  private void runConcurrently(final Runnable task, final List<Throwable> errors) throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < THREADS; i++) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            task.run();
+          } catch (Throwable t) {
+            errors.add(t);
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(Collections.emptyList(), errors);
+  }
+
+  private FileMigrationLoader createMigrationsLoader() {
+    URL url = getClass().getClassLoader().getResource("org/apache/ibatis/migration/runtime_migration/scripts");
+    Properties properties = new Properties();
+    properties.setProperty("changelog", "CHANGELOG");
+    return new FileMigrationLoader(new File(url.getFile()), "utf-8", properties);
+  }
+
+  private void runSql(String sql) throws Exception {
+    Connection connection = connectionProvider.getConnection();
+    try {
+      Statement statement = connection.createStatement();
+      statement.execute(sql);
+      statement.close();
+    } finally {
+      connection.close();
+    }
+  }
+
+  private String runQuery(String query) throws Exception {
+    Connection connection = connectionProvider.getConnection();
+    try {
+      Statement statement = connection.createStatement();
+      ResultSet rs = statement.executeQuery(query);
+      rs.next();
+      String result = rs.getString(1);
+      statement.close();
+      return result;
+    } finally {
+      connection.close();
+    }
+  }
+}
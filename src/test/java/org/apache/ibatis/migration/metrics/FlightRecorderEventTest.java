@@ -0,0 +1,104 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.metrics.FlightRecorderEvent.Type;
+import org.junit.Test;
+
+public class FlightRecorderEventTest {
+
+  @Test
+  public void shouldDoNothingWithoutRecording() {
+    if (FlightRecorderEvent.isRecording()) {
+      return;
+    }
+    FlightRecorderEvent event = FlightRecorderEvent.begin(Type.MIGRATION_UP);
+    assertSame(event, FlightRecorderEvent.begin(Type.STATEMENT));
+    Reader reader = new StringReader("create table t (id int)");
+    assertSame(reader, event.change(new Change(BigDecimal.ONE)).count(reader));
+    event.commit();
+  }
+
+  @Test
+  public void shouldWriteEventsToRunningRecording() throws Exception {
+    Class<?> recordingClass;
+    try {
+      recordingClass = Class.forName("jdk.jfr.Recording");
+    } catch (ClassNotFoundException e) {
+      // JFR is not available on this JVM
+      return;
+    }
+    File file = File.createTempFile("migrations", ".jfr");
+    Object recording = recordingClass.getConstructor().newInstance();
+    recordingClass.getMethod("start").invoke(recording);
+    try {
+      assertTrue(FlightRecorderEvent.isRecording());
+      Change change = new Change(new BigDecimal(20180101), null, "first");
+      change.setFilename("20180101_first.sql");
+      FlightRecorderEvent migration = FlightRecorderEvent.begin(Type.MIGRATION_UP).change(change);
+      Reader reader = migration.count(new StringReader("create table t (id int);"));
+      char[] buffer = new char[100];
+      while (reader.read(buffer) >= 0) {
+        // read the script
+      }
+      FlightRecorderEvent.begin(Type.STATEMENT).detail("create table t (id int)").commit();
+      migration.commit();
+      recordingClass.getMethod("stop").invoke(recording);
+      recordingClass.getMethod("dump", Class.forName("java.nio.file.Path")).invoke(recording,
+          File.class.getMethod("toPath").invoke(file));
+    } finally {
+      recordingClass.getMethod("close").invoke(recording);
+    }
+    assertFalse(FlightRecorderEvent.isRecording());
+
+    List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+        .getMethod("readAllEvents", Class.forName("java.nio.file.Path"))
+        .invoke(null, File.class.getMethod("toPath").invoke(file));
+    file.delete();
+    boolean migrationFound = false;
+    boolean statementFound = false;
+    for (Object event : events) {
+      Object eventType = event.getClass().getMethod("getEventType").invoke(event);
+      String name = (String) eventType.getClass().getMethod("getName").invoke(eventType);
+      if (name.startsWith("org.apache.ibatis.migration.")) {
+        assertEquals("20180101", getValue(event, "changeId"));
+        assertEquals("20180101_first.sql", getValue(event, "fileName"));
+      }
+      if (name.equals(Type.MIGRATION_UP.getEventName())) {
+        migrationFound = true;
+        assertEquals(24L, getValue(event, "scriptLength"));
+      } else if (name.equals(Type.STATEMENT.getEventName())) {
+        statementFound = true;
+        assertEquals("create table t (id int)", getValue(event, "detail"));
+      }
+    }
+    assertTrue(migrationFound);
+    assertTrue(statementFound);
+  }
+
+  private static Object getValue(Object event, String field) throws Exception {
+    return event.getClass().getMethod("getValue", String.class).invoke(event, field);
+  }
+}
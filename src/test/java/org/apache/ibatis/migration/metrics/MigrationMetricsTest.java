@@ -0,0 +1,185 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.metrics;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+public class MigrationMetricsTest {
+
+  @Test
+  public void shouldRecordCountExtremesAndHistogram() {
+    LatencyTimer timer = new LatencyTimer();
+    timer.record(2, TimeUnit.MILLISECONDS);
+    timer.record(4, TimeUnit.MILLISECONDS);
+    timer.record(90, TimeUnit.SECONDS);
+
+    TimerSnapshot snapshot = timer.snapshot();
+    assertEquals(3L, snapshot.getCount());
+    assertEquals(2.0, snapshot.getMinMillis(), 0.001);
+    assertEquals(90000.0, snapshot.getMaxMillis(), 0.001);
+    assertEquals(90006.0, snapshot.getTotalMillis(), 0.001);
+    assertEquals(30002.0, snapshot.getMeanMillis(), 0.001);
+    long[] counts = snapshot.getBucketCounts();
+    assertEquals(snapshot.getBucketBoundsMillis().length + 1, counts.length);
+    assertEquals(2L, counts[1]);
+    assertEquals(1L, counts[counts.length - 1]);
+  }
+
+  @Test
+  public void shouldReportZeroForEmptyTimer() {
+    TimerSnapshot snapshot = new LatencyTimer().snapshot();
+    assertEquals(0L, snapshot.getCount());
+    assertEquals(0.0, snapshot.getMinMillis(), 0.0);
+    assertEquals(0.0, snapshot.getMeanMillis(), 0.0);
+  }
+
+  @Test
+  public void shouldWriteSummaryAsJson() {
+    MigrationMetrics metrics = new MigrationMetrics();
+    metrics.timer("migration.up").record(3, TimeUnit.MILLISECONDS);
+    metrics.timer("changelog.\"query\"").record(20, TimeUnit.MILLISECONDS);
+
+    String summary = metrics.getSummary();
+    assertTrue(summary, summary.startsWith("{\"timers\":{\"changelog.\\\"query\\\"\":{\"count\":1,"));
+    assertTrue(summary, summary.contains("\"migration.up\":{\"count\":1,\"totalMillis\":3.000,\"minMillis\":3.000,"
+        + "\"maxMillis\":3.000,\"meanMillis\":3.000,\"buckets\":{\"1\":0,\"5\":1,"));
+    assertTrue(summary, summary.contains("\"+Inf\":0}}"));
+
+    metrics.reset();
+    assertEquals("{\"timers\":{}}", metrics.getSummary());
+    assertNull(metrics.getTimer("migration.up"));
+  }
+
+  @Test
+  public void shouldClassifyStatementsByFirstKeyword() {
+    assertEquals("statement.ddl", MeteredConnection.timerName("create table t (id int)"));
+    assertEquals("statement.ddl", MeteredConnection.timerName("-- comment\n  /* block */ ALTER TABLE t add c int"));
+    assertEquals("statement.dml", MeteredConnection.timerName("\n\tinsert into t values (1)"));
+    assertEquals("statement.query", MeteredConnection.timerName("(select 1 from dual)"));
+    assertEquals("statement.other", MeteredConnection.timerName("set schema s"));
+    assertEquals("statement.other", MeteredConnection.timerName(null));
+  }
+
+  @Test
+  public void shouldTimeStatementsOfWrappedConnection() throws Exception {
+    final List<String> executed = new ArrayList<String>();
+    final Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { Statement.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("execute")) {
+              executed.add((String) args[0]);
+              return Boolean.FALSE;
+            }
+            return null;
+          }
+        });
+    Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { Connection.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            return method.getName().equals("createStatement") ? statement : null;
+          }
+        });
+    MigrationMetrics metrics = new MigrationMetrics();
+    Connection metered = MeteredConnection.wrap(connection, metrics);
+    assertSame(metered, MeteredConnection.wrap(metered, metrics));
+
+    Statement wrapped = metered.createStatement();
+    wrapped.execute("create table t (id int)");
+    wrapped.execute("insert into t values (1)");
+    wrapped.execute("insert into t values (2)");
+    wrapped.close();
+
+    assertEquals(3, executed.size());
+    assertEquals(1L, metrics.getTimer("statement.ddl").getCount());
+    assertEquals(2L, metrics.getTimer("statement.dml").getCount());
+    assertNull(metrics.getTimer("statement.other"));
+  }
+
+  @Test
+  public void shouldRecordIntoCommandMetricsOfThread() throws Exception {
+    final MigrationMetrics shared = MigrationMetrics.getInstance();
+    MigrationMetrics command = new MigrationMetrics();
+    assertFalse(MeteredConnection.isEnabled());
+    MigrationMetrics.setCommandMetrics(command);
+    try {
+      assertTrue(MeteredConnection.isEnabled());
+      shared.recordSince("test.command", System.nanoTime());
+      Thread other = new Thread() {
+        @Override
+        public void run() {
+          shared.recordSince("test.other", System.nanoTime());
+        }
+      };
+      other.start();
+      other.join();
+    } finally {
+      MigrationMetrics.setCommandMetrics(null);
+    }
+    shared.recordSince("test.command", System.nanoTime());
+
+    assertEquals(1L, command.getTimer("test.command").getCount());
+    assertNull(command.getTimer("test.other"));
+    assertEquals(2L, shared.getTimer("test.command").getCount());
+    assertFalse(MeteredConnection.isEnabled());
+    shared.reset();
+  }
+
+  @Test
+  public void shouldExposeTimersOverJmx() throws Exception {
+    MigrationMetrics metrics = MigrationMetrics.getInstance();
+    metrics.reset();
+    metrics.timer("migration.up").record(7, TimeUnit.MILLISECONDS);
+    MigrationMetrics.registerMBean();
+    MigrationMetrics.registerMBean();
+    assertTrue(MigrationMetrics.isStatementTimingEnabled());
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(MigrationMetrics.OBJECT_NAME);
+      TabularData timers = (TabularData) server.getAttribute(name, "Timers");
+      CompositeData row = timers.get(new Object[] { "migration.up" });
+      CompositeData timer = (CompositeData) row.get("value");
+      assertEquals(1L, timer.get("count"));
+      assertEquals(7.0, (Double) timer.get("maxMillis"), 0.001);
+
+      server.invoke(name, "reset", null, null);
+      assertTrue(metrics.getTimers().isEmpty());
+    } finally {
+      MigrationMetrics.unregisterMBean();
+      metrics.reset();
+    }
+    assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(MigrationMetrics.OBJECT_NAME)));
+    assertFalse(MigrationMetrics.isStatementTimingEnabled());
+  }
+}
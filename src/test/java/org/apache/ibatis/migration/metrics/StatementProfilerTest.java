@@ -0,0 +1,108 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.metrics;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.apache.ibatis.migration.Change;
+import org.junit.Test;
+
+public class StatementProfilerTest {
+
+  @Test
+  public void shouldKeepSlowestStatements() {
+    StatementProfiler profiler = new StatementProfiler(3);
+    for (int i = 1; i <= 10; i++) {
+      profiler.record("update t set c = " + i, (i % 5) * 1000000L + i);
+    }
+    List<SlowStatement> slowest = profiler.getSlowest();
+    assertEquals(3, slowest.size());
+    assertEquals("update t set c = 9", slowest.get(0).getSql());
+    assertEquals("update t set c = 4", slowest.get(1).getSql());
+    assertEquals("update t set c = 8", slowest.get(2).getSql());
+    assertEquals(10L, profiler.getCount());
+    assertNull(slowest.get(0).getChangeId());
+    assertEquals(0, slowest.get(0).getLine());
+  }
+
+  @Test
+  public void shouldTruncateSql() {
+    StringBuilder sql = new StringBuilder("insert into t\n  values (");
+    for (int i = 0; i < 100; i++) {
+      sql.append(i).append(", ");
+    }
+    String truncated = StatementProfiler.truncate(sql.toString());
+    assertEquals(StatementProfiler.MAX_SQL_LENGTH, truncated.length());
+    assertTrue(truncated.startsWith("insert into t values (0, 1, 2"));
+    assertTrue(truncated.endsWith("..."));
+  }
+
+  @Test
+  public void shouldRecordChangeAndLineOfStatement() throws Exception {
+    StatementProfiler profiler = new StatementProfiler();
+    Change change = new Change(new BigDecimal("20180101000000"), null, "seed");
+    change.setFilename("20180101000000_seed.sql");
+    StatementProfiler.setActive(profiler);
+    try {
+      StatementProfiler.enterScript(change);
+      try {
+        // reads the script like ScriptRunner does
+        BufferedReader reader = new BufferedReader(StatementProfiler.trackLines(new StringReader(
+            "-- seed\ninsert into t values (1);\n\ninsert into t\nvalues (2);\n")));
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.endsWith(";")) {
+            profiler.record(line, line.contains("2") ? 2000000L : 1000000L);
+          }
+        }
+      } finally {
+        StatementProfiler.exitScript();
+      }
+    } finally {
+      StatementProfiler.setActive(null);
+    }
+    List<SlowStatement> slowest = profiler.getSlowest();
+    assertEquals(2, slowest.size());
+    assertEquals(5, slowest.get(0).getLine());
+    assertEquals(2, slowest.get(1).getLine());
+    assertEquals("20180101000000", slowest.get(0).getChangeId());
+    assertEquals("20180101000000_seed.sql", slowest.get(0).getFileName());
+
+    StringWriter report = new StringWriter();
+    profiler.printReport(new PrintWriter(report));
+    String[] lines = report.toString().split("\n");
+    assertEquals("-- Slowest statements: 2 of 2, 0.003s in total", lines[0].trim());
+    assertTrue(lines[2], lines[2].matches("--\\s+1\\s+2\\.000\\s+20180101000000_seed\\.sql\\s+5\\s+values \\(2\\);\\s*"));
+  }
+
+  @Test
+  public void shouldNotTrackLinesWithoutActiveProfiler() {
+    StringReader reader = new StringReader("select 1;");
+    StatementProfiler.enterScript(new Change(BigDecimal.ONE));
+    try {
+      assertSame(reader, StatementProfiler.trackLines(reader));
+    } finally {
+      StatementProfiler.exitScript();
+    }
+  }
+}
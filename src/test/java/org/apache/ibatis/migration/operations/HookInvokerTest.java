@@ -0,0 +1,190 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.operations;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.ConnectionProvider;
+import org.apache.ibatis.migration.MigrationException;
+import org.apache.ibatis.migration.hook.FileMigrationHook;
+import org.apache.ibatis.migration.hook.HookContext;
+import org.apache.ibatis.migration.hook.MigrationHook;
+import org.apache.ibatis.migration.hook.scripts.AsyncHookScript;
+import org.apache.ibatis.migration.hook.scripts.HookScript;
+import org.apache.ibatis.migration.options.DatabaseOperationOption;
+import org.junit.Test;
+
+public class HookInvokerTest {
+
+  private final List<Object> contexts = new ArrayList<Object>();
+
+  private final HookScript recordingScript = new HookScript() {
+    @Override
+    public Void execute(Map<String, Object> bindingMap) {
+      contexts.add(bindingMap.get(MigrationHook.HOOK_CONTEXT));
+      return null;
+    }
+  };
+
+  @Test
+  public void shouldNotTouchBindingsWhenEveryScriptIsNoOp() {
+    Map<String, Object> bindings = new HashMap<String, Object>();
+    HookInvoker hooks = new HookInvoker(new FileMigrationHook(null, null, null, null), bindings, null, null);
+    Change change = new Change(BigDecimal.ONE, null, "first");
+    hooks.before();
+    hooks.beforeEach(change);
+    hooks.afterEach(change, 10L);
+    hooks.after();
+    assertTrue(bindings.isEmpty());
+  }
+
+  @Test
+  public void shouldReportAsyncFailuresWhenOperationFails() throws Exception {
+    ConnectionProvider connectionProvider = new ConnectionProvider() {
+      @Override
+      public Connection getConnection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+            new InvocationHandler() {
+              @Override
+              public Object invoke(Object proxy, Method method, Object[] args) {
+                return "getAutoCommit".equals(method.getName()) ? Boolean.TRUE : null;
+              }
+            });
+      }
+    };
+    HookScript failingScript = new HookScript() {
+      @Override
+      public Void execute(Map<String, Object> bindingMap) {
+        throw new MigrationException("hook failed");
+      }
+    };
+    HookInvoker hooks = new HookInvoker(new FileMigrationHook(null, null, new AsyncHookScript(failingScript,
+        connectionProvider, new DatabaseOperationOption(), null), null), null, null, null);
+    Change change = new Change(BigDecimal.ONE, null, "first");
+    hooks.before();
+    hooks.beforeEach(change);
+    hooks.afterEach(change, 10L);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    hooks.end(new PrintStream(out, true));
+    assertTrue(out.toString(), out.toString().contains("Asynchronous hook failed: "));
+    assertTrue(out.toString(), out.toString().contains("hook failed"));
+  }
+
+  @Test
+  public void shouldSkipNullHook() {
+    HookInvoker hooks = new HookInvoker(null, null, null, null);
+    hooks.before();
+    hooks.beforeEach(new Change(BigDecimal.ONE, null, "first"));
+    hooks.after();
+  }
+
+  @Test
+  public void shouldCallActiveScriptsOnlyWithContextPerPhase() {
+    Map<String, Object> bindings = new HashMap<String, Object>();
+    HookInvoker hooks = new HookInvoker(new FileMigrationHook(recordingScript, recordingScript, recordingScript,
+        null), bindings, null, null);
+    Change first = new Change(BigDecimal.ONE, null, "first");
+    Change second = new Change(new BigDecimal(2), null, "second");
+
+    hooks.before();
+    hooks.beforeEach(first);
+    hooks.afterEach(first, 10L);
+    assertEquals(10L, bindings.get("executionTime"));
+    hooks.beforeEach(second);
+    hooks.afterEach(second, 20L);
+    hooks.after();
+
+    assertEquals(5, contexts.size());
+    assertNull(((HookContext) contexts.get(0)).getChange());
+    assertNotSame(contexts.get(1), contexts.get(2));
+    assertEquals(first, ((HookContext) contexts.get(1)).getChange());
+    assertEquals(first, ((HookContext) contexts.get(2)).getChange());
+    assertNotSame(first, ((HookContext) contexts.get(1)).getChange());
+    assertEquals(second, ((HookContext) contexts.get(3)).getChange());
+    assertNotSame(contexts.get(2), contexts.get(3));
+  }
+
+  @Test
+  public void shouldSeeAppliedTimestampInAfterEach() {
+    HookScript beforeEachScript = new HookScript() {
+      @Override
+      public Void execute(Map<String, Object> bindingMap) {
+        HookContext context = (HookContext) bindingMap.get(MigrationHook.HOOK_CONTEXT);
+        assertNull(context.getChange().getAppliedTimestamp());
+        context.getChange().setDescription("changed by beforeEach");
+        return null;
+      }
+    };
+    HookInvoker hooks = new HookInvoker(new FileMigrationHook(null, beforeEachScript, recordingScript, null), null,
+        null, null);
+    Change change = new Change(BigDecimal.ONE, null, "first");
+    hooks.beforeEach(change);
+    // set by the changelog insert
+    change.setAppliedTimestamp("2018-01-01 00:00:00");
+    hooks.afterEach(change, 10L);
+
+    Change afterEachChange = ((HookContext) contexts.get(0)).getChange();
+    assertEquals("2018-01-01 00:00:00", afterEachChange.getAppliedTimestamp());
+    assertEquals("first", afterEachChange.getDescription());
+  }
+
+  @Test
+  public void shouldCallEveryPhaseOfCustomHook() {
+    final List<String> calls = new ArrayList<String>();
+    MigrationHook hook = new MigrationHook() {
+      @Override
+      public void before(Map<String, Object> bindingMap) {
+        calls.add("before");
+      }
+
+      @Override
+      public void after(Map<String, Object> bindingMap) {
+        calls.add("after");
+      }
+
+      @Override
+      public void beforeEach(Map<String, Object> bindingMap) {
+        calls.add("beforeEach");
+      }
+
+      @Override
+      public void afterEach(Map<String, Object> bindingMap) {
+        calls.add("afterEach");
+      }
+    };
+    HookInvoker hooks = new HookInvoker(hook, null, null, null);
+    Change change = new Change(BigDecimal.ONE, null, "first");
+    hooks.before();
+    hooks.beforeEach(change);
+    hooks.afterEach(change, null);
+    hooks.after();
+    assertEquals(4, calls.size());
+  }
+}
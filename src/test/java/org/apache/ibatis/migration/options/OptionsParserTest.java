@@ -17,6 +17,8 @@ package org.apache.ibatis.migration.options;
 
 import java.util.Arrays;
 import java.util.List;
+
+import org.apache.ibatis.migration.daemon.MigrationDaemon;
 import org.junit.Test;
 
 import java.io.File;
@@ -74,6 +76,44 @@ public class OptionsParserTest {
     checkFileOptionSet(pathOptions.getPaths().getHookPath(), testFileName);
   }
 
+  @Test
+  public void testDaemonOption() {
+    assertThat(parse(new String[] { "status" }).getDaemonPort(), equalTo(null));
+    assertThat(parse(new String[] { option(DAEMON), "status" }).getDaemonPort(),
+        equalTo(MigrationDaemon.DEFAULT_PORT));
+    assertThat(parse(new String[] { valuedOption(DAEMON, "7000"), "status" }).getDaemonPort(), equalTo(7000));
+    assertThat(parse(new String[] { "status" }).getUsageError(), equalTo(null));
+  }
+
+  @Test
+  public void testInvalidDaemonPortIsUsageError() {
+    SelectedOptions options = parse(new String[] { valuedOption(DAEMON, "abc"), "status" });
+    assertThat(options.getDaemonPort(), equalTo(null));
+    assertThat(options.getUsageError(), equalTo("Invalid daemon port: abc"));
+  }
+
+  @Test
+  public void testMetricsOption() {
+    assertThat(parse(new String[] { "up" }).getMetricsFile(), equalTo(null));
+    checkFileOptionSet(parse(new String[] { valuedOption(METRICS, "target/metrics.json"), "up" }).getMetricsFile(),
+        "metrics.json");
+  }
+
+  @Test
+  public void testEventsOption() {
+    checkFileOptionSet(parse(new String[] { valuedOption(EVENTS, "target/events.jsonl"), "up" }).getEventsFile(),
+        "events.jsonl");
+  }
+
+  @Test
+  public void testProfileOption() {
+    final SelectedOptions options = parse(new String[] { option(PROFILE), "up" });
+    assertTrue(options.isProfile());
+    assertThat(options.getProfileFile(), equalTo(null));
+    checkFileOptionSet(parse(new String[] { valuedOption(PROFILE, "target/profile.txt"), "up" }).getProfileFile(),
+        "profile.txt");
+  }
+
   private void checkFileOptionSet(File aFile, String expectedFileName) {
     assertThat(aFile.getName(), equalTo(expectedFileName));
   }
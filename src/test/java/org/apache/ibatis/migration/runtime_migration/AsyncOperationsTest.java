@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.runtime_migration;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Connection;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.migration.ConnectionProvider;
+import org.apache.ibatis.migration.FileMigrationLoader;
+import org.apache.ibatis.migration.JdbcConnectionProvider;
+import org.apache.ibatis.migration.operations.AsyncOperations;
+import org.apache.ibatis.migration.operations.OperationResult;
+import org.apache.ibatis.migration.options.DatabaseOperationOption;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncOperationsTest {
+
+  private ExecutorService executor;
+
+  private ConnectionProvider first;
+
+  private ConnectionProvider second;
+
+  @Before
+  public void setup() throws Exception {
+    executor = Executors.newFixedThreadPool(2);
+    first = new JdbcConnectionProvider("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:asyncfirst", "sa", "");
+    second = new JdbcConnectionProvider("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:asyncsecond", "sa", "");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdown();
+    shutdown(first);
+    shutdown(second);
+  }
+
+  @Test
+  public void shouldMigrateSeveralEnvironmentsConcurrently() throws Exception {
+    Future<OperationResult> firstUp = operations(first).up(null);
+    Future<OperationResult> secondUp = operations(second).up(2);
+
+    OperationResult firstResult = firstUp.get();
+    assertEquals("up", firstResult.getOperation());
+    assertEquals(3, firstResult.getApplied().size());
+    assertEquals(3, firstResult.getExecutionTimes().size());
+    assertEquals(new BigDecimal("20130707120737"), firstResult.getApplied().get(0).getId());
+    assertTrue(firstResult.getOutput().contains("Applying: 20130707120737_create_changelog.sql"));
+
+    OperationResult secondResult = secondUp.get();
+    assertEquals(2, secondResult.getApplied().size());
+    assertEquals(3, secondResult.getStatus().size());
+    assertNull(secondResult.getStatus().get(2).getAppliedTimestamp());
+  }
+
+  @Test
+  public void shouldReportRevertedChangesAndWarnings() throws Exception {
+    AsyncOperations operations = operations(first);
+    operations.up(null).get();
+
+    OperationResult down = operations.down(null).get();
+    assertEquals(0, down.getApplied().size());
+    assertEquals(1, down.getReverted().size());
+    assertEquals(new BigDecimal("20130707120739"), down.getReverted().get(0).getId());
+
+    OperationResult pending = operations.pending().get();
+    assertEquals(1, pending.getApplied().size());
+    assertEquals(1, pending.getWarnings().size());
+    assertEquals("Running pending migrations out of order can create unexpected results.",
+        pending.getWarnings().get(0));
+
+    OperationResult status = operations.status().get();
+    assertEquals(3, status.getStatus().size());
+    assertTrue(status.getApplied().isEmpty());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void shouldReturnImmutableResults() throws Exception {
+    operations(first).status().get().getStatus().clear();
+  }
+
+  private AsyncOperations operations(ConnectionProvider connectionProvider) {
+    URL url = getClass().getClassLoader().getResource("org/apache/ibatis/migration/runtime_migration/scripts");
+    Properties properties = new Properties();
+    properties.setProperty("changelog", "CHANGELOG");
+    FileMigrationLoader migrationsLoader = new FileMigrationLoader(new File(url.getFile()), "utf-8", properties);
+    return new AsyncOperations(connectionProvider, migrationsLoader, new DatabaseOperationOption(), executor);
+  }
+
+  private void shutdown(ConnectionProvider connectionProvider) throws Exception {
+    Connection connection = connectionProvider.getConnection();
+    try {
+      connection.createStatement().execute("shutdown");
+    } finally {
+      connection.close();
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.runtime_migration;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.migration.Change;
+import org.apache.ibatis.migration.JavaMigrationLoader;
+import org.apache.ibatis.migration.JdbcConnectionProvider;
+import org.apache.ibatis.migration.MigrationLoader;
+import org.apache.ibatis.migration.metrics.MigrationMetrics;
+import org.apache.ibatis.migration.metrics.TimerSnapshot;
+import org.apache.ibatis.migration.operations.DownOperation;
+import org.apache.ibatis.migration.operations.UpOperation;
+import org.apache.ibatis.migration.options.DatabaseOperationOption;
+import org.apache.ibatis.migration.runtime_migration.scripts_java_jdbc.V002_StreamRows;
+import org.apache.ibatis.migration.runtime_migration.scripts_java_jdbc.V003_BatchRows;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JavaMigrationStreamingTest {
+
+  private Connection connection;
+
+  private DatabaseOperationOption dbOption;
+
+  private ByteArrayOutputStream out;
+
+  private MigrationLoader migrationsLoader;
+
+  @Before
+  public void setup() throws Exception {
+    connection = new JdbcConnectionProvider("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:javastreamingtest", "sa", "")
+        .getConnection();
+    dbOption = new DatabaseOperationOption();
+    out = new ByteArrayOutputStream();
+    migrationsLoader = new JavaMigrationLoader(V002_StreamRows.class.getPackage().getName());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Statement statement = connection.createStatement();
+    statement.execute("shutdown");
+    connection.close();
+  }
+
+  @Test
+  public void shouldApplyAndUndoStreamingAndJdbcMigrations() throws Exception {
+    new UpOperation().operate(connection, migrationsLoader, dbOption, new PrintStream(out));
+    assertEquals(V002_StreamRows.ROWS, count("streamed_table"));
+    assertEquals(V003_BatchRows.ROWS, count("batched_table"));
+    assertEquals(3, count("changelog"));
+
+    new DownOperation().operate(connection, migrationsLoader, dbOption, new PrintStream(out));
+    assertFalse(tableExists("BATCHED_TABLE"));
+    assertEquals(2, count("changelog"));
+
+    new DownOperation().operate(connection, migrationsLoader, dbOption, new PrintStream(out));
+    assertFalse(tableExists("STREAMED_TABLE"));
+    assertEquals(1, count("changelog"));
+  }
+
+  @Test
+  public void shouldTimeStatementsOfJdbcMigration() throws Exception {
+    MigrationMetrics metrics = new MigrationMetrics();
+    MigrationMetrics.setCommandMetrics(metrics);
+    try {
+      new UpOperation().operate(connection, migrationsLoader, dbOption, new PrintStream(out));
+    } finally {
+      MigrationMetrics.setCommandMetrics(null);
+    }
+    TimerSnapshot batches = metrics.getTimer("statement.batch");
+    assertNotNull(batches);
+    assertTrue(batches.getCount() >= V003_BatchRows.ROWS / 100);
+  }
+
+  @Test
+  public void shouldPrintTextOfJdbcMigration() throws Exception {
+    List<Change> migrations = migrationsLoader.getMigrations();
+    Collections.sort(migrations);
+    Reader reader = migrationsLoader.getScriptReader(migrations.get(2));
+    char[] buffer = new char[200];
+    int read = reader.read(buffer);
+    assertTrue(new String(buffer, 0, read).contains("JDBC batch"));
+  }
+
+  private int count(String table) throws SQLException {
+    Statement statement = connection.createStatement();
+    try {
+      ResultSet rs = statement.executeQuery("select count(*) from " + table);
+      rs.next();
+      return rs.getInt(1);
+    } finally {
+      statement.close();
+    }
+  }
+
+  private boolean tableExists(String table) throws SQLException {
+    ResultSet rs = connection.getMetaData().getTables(null, null, table, null);
+    try {
+      return rs.next();
+    } finally {
+      rs.close();
+    }
+  }
+}
@@ -17,10 +17,12 @@ package org.apache.ibatis.migration.runtime_migration;
 
 import org.apache.ibatis.migration.FileMigrationLoader;
 import org.apache.ibatis.migration.JdbcConnectionProvider;
+import org.apache.ibatis.migration.MigrationFingerprint;
 import org.apache.ibatis.migration.MigrationLoader;
 import org.apache.ibatis.migration.hook.MigrationHook;
 import org.apache.ibatis.migration.operations.BootstrapOperation;
 import org.apache.ibatis.migration.operations.DownOperation;
+import org.apache.ibatis.migration.operations.FingerprintOperation;
 import org.apache.ibatis.migration.operations.PendingOperation;
 import org.apache.ibatis.migration.operations.StatusOperation;
 import org.apache.ibatis.migration.operations.UpOperation;
@@ -29,6 +31,8 @@ import org.apache.ibatis.migration.options.DatabaseOperationOption;
 import org.apache.ibatis.migration.utils.TestUtil;
 import org.junit.After;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Before;
@@ -211,6 +215,86 @@ public class RuntimeMigrationTest {
     assertTableDoesNotExist(connection, "second_table");
   }
 
+  @Test
+  public void testVersionWithHook() throws Exception {
+    final PrintStream printStream = new PrintStream(out);
+    MigrationHook hook = new MigrationHook() {
+      @Override
+      public void beforeEach(Map<String, Object> bindingMap) {
+        printStream.println("<BEFORE_EACH>");
+      }
+
+      @Override
+      public void before(Map<String, Object> bindingMap) {
+        printStream.println("<BEFORE>");
+      }
+
+      @Override
+      public void afterEach(Map<String, Object> bindingMap) {
+        printStream.println("<AFTER_EACH>");
+      }
+
+      @Override
+      public void after(Map<String, Object> bindingMap) {
+        printStream.println("<AFTER>");
+      }
+    };
+    // Need changelog.
+    new UpOperation(1).operate(connection, migrationsLoader, dbOption, printStream);
+    out.reset();
+    new VersionOperation(new BigDecimal("20130707120739")).operate(connection, migrationsLoader, dbOption,
+        printStream, hook, hook);
+    String output = out.toString("utf-8");
+    assertEquals("3", runQuery(connection, "select count(*) from changelog"));
+    assertEquals(1, TestUtil.countStr(output, "<BEFORE>"));
+    assertEquals(2, TestUtil.countStr(output, "<BEFORE_EACH>"));
+    assertEquals(2, TestUtil.countStr(output, "<AFTER_EACH>"));
+    assertEquals(1, TestUtil.countStr(output, "<AFTER>"));
+    out.reset();
+    new VersionOperation(new BigDecimal("20130707120737")).operate(connection, migrationsLoader, dbOption,
+        printStream, hook, hook);
+    output = out.toString("utf-8");
+    assertEquals("1", runQuery(connection, "select count(*) from changelog"));
+    assertTableDoesNotExist(connection, "first_table");
+    assertEquals(1, TestUtil.countStr(output, "<BEFORE>"));
+    assertEquals(2, TestUtil.countStr(output, "<BEFORE_EACH>"));
+    assertEquals(2, TestUtil.countStr(output, "<AFTER_EACH>"));
+    assertEquals(1, TestUtil.countStr(output, "<AFTER>"));
+  }
+
+  @Test
+  public void testFingerprint() throws Exception {
+    MigrationFingerprint fingerprint = MigrationFingerprint.compute(migrationsLoader);
+    assertEquals(3, fingerprint.getCount());
+    assertEquals(new BigDecimal("20130707120739"), fingerprint.getMaxId());
+    assertEquals(fingerprint, MigrationFingerprint.valueOf(fingerprint.toString()));
+
+    PrintStream printStream = new PrintStream(out);
+    assertFalse(new FingerprintOperation(fingerprint).operate(connection, dbOption, printStream).isCurrent());
+    new UpOperation().operate(connection, migrationsLoader, dbOption, printStream);
+    new FingerprintOperation(fingerprint).store(connection, dbOption);
+    assertTrue(new FingerprintOperation(fingerprint).operate(connection, dbOption, printStream).isCurrent());
+
+    MigrationFingerprint other = new MigrationFingerprint(3, fingerprint.getMaxId(), "0000");
+    FingerprintOperation operation = new FingerprintOperation(other).operate(connection, dbOption, printStream);
+    assertFalse(operation.isCurrent());
+    assertEquals(fingerprint, operation.getStoredFingerprint());
+  }
+
+  @Test
+  public void testFingerprintClearedByDown() throws Exception {
+    MigrationFingerprint fingerprint = MigrationFingerprint.compute(migrationsLoader);
+    PrintStream printStream = new PrintStream(out);
+    new UpOperation().operate(connection, migrationsLoader, dbOption, printStream);
+    new FingerprintOperation(fingerprint).store(connection, dbOption);
+    assertTrue(new FingerprintOperation(fingerprint).operate(connection, dbOption, printStream).isCurrent());
+
+    new DownOperation().operate(connection, migrationsLoader, dbOption, printStream);
+    FingerprintOperation operation = new FingerprintOperation(fingerprint).operate(connection, dbOption, printStream);
+    assertFalse(operation.isCurrent());
+    assertNull(operation.getStoredFingerprint());
+  }
+
   protected void assertTableDoesNotExist(Connection connectionProvider, String table) throws Exception {
     try {
       runQuery(connectionProvider, "select count(*) from " + table);
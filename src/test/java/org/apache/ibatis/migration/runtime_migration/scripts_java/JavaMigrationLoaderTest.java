@@ -17,13 +17,19 @@ package org.apache.ibatis.migration.runtime_migration.scripts_java;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
 
 import org.apache.ibatis.migration.Change;
 import org.apache.ibatis.migration.JavaMigrationLoader;
+import org.apache.ibatis.migration.index.MigrationIndex;
 import org.junit.Test;
 
 public class JavaMigrationLoaderTest {
@@ -35,6 +41,24 @@ public class JavaMigrationLoaderTest {
     assertEquals(3, migrations.size());
   }
 
+  @Test
+  public void testGetMigrationsByScanning() throws Exception {
+    // Hides the index generated during test-compile so that the package is scanned.
+    ClassLoader withoutIndex = new ClassLoader(getClass().getClassLoader()) {
+      @Override
+      public Enumeration<URL> getResources(String name) throws IOException {
+        return MigrationIndex.RESOURCE.equals(name) ? Collections.enumeration(Collections.<URL> emptyList())
+            : super.getResources(name);
+      }
+    };
+    JavaMigrationLoader loader = new JavaMigrationLoader(withoutIndex, this.getClass().getPackage().getName());
+    List<Change> migrations = loader.getMigrations();
+    assertEquals(3, migrations.size());
+    for (Change change : migrations) {
+      assertNotNull(loader.getScriptReader(change));
+    }
+  }
+
   @Test
   public void testGetScriptReader() throws Exception {
     JavaMigrationLoader loader = new JavaMigrationLoader(this.getClass().getPackage().getName());
@@ -49,6 +73,44 @@ public class JavaMigrationLoaderTest {
     assertTrue(writer.toString().contains("CREATE TABLE first_table (ID INTEGER NOT NULL, NAME VARCHAR(16));"));
   }
 
+  @Test
+  public void testGetScriptReaderConcurrently() throws Exception {
+    final JavaMigrationLoader loader = new JavaMigrationLoader(this.getClass().getPackage().getName());
+    final List<Change> migrations = loader.getMigrations();
+    final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < 50; j++) {
+              for (Change change : migrations) {
+                assertNotNull(loader.getScriptReader(change));
+                assertNotNull(loader.getRollbackReader(change));
+              }
+            }
+          } catch (Throwable t) {
+            failures.add(t);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(failures.toString(), failures.isEmpty());
+  }
+
+  @Test
+  public void testGetScriptReaderOfUnknownClass() throws Exception {
+    JavaMigrationLoader loader = new JavaMigrationLoader(this.getClass().getPackage().getName());
+    Change change = new Change();
+    change.setFilename("org.apache.ibatis.migration.runtime_migration.scripts_java.V999_Missing");
+    assertNull(loader.getScriptReader(change));
+  }
+
   @Test
   public void testGetBootstrapReader() throws Exception {
     JavaMigrationLoader loader = new JavaMigrationLoader(this.getClass().getPackage().getName());
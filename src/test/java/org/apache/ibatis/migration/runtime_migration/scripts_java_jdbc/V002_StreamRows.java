@@ -0,0 +1,88 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.runtime_migration.scripts_java_jdbc;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.ibatis.migration.StreamingMigrationScript;
+import org.apache.ibatis.migration.io.StatementReader;
+
+public class V002_StreamRows implements StreamingMigrationScript {
+
+  public static final int ROWS = 1000;
+
+  @Override
+  public BigDecimal getId() {
+    return new BigDecimal(this.getClass().getSimpleName().substring(1, 4));
+  }
+
+  @Override
+  public String getDescription() {
+    return "Stream rows";
+  }
+
+  @Override
+  public Reader getUpScriptReader() {
+    return new StatementReader(new Iterable<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        return new Iterator<String>() {
+          private int row = -1;
+
+          @Override
+          public boolean hasNext() {
+            return row < ROWS;
+          }
+
+          @Override
+          public String next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            row++;
+            return row == 0 ? "CREATE TABLE streamed_table (ID INTEGER NOT NULL)"
+                : "INSERT INTO streamed_table (ID) VALUES (" + row + ")";
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    });
+  }
+
+  @Override
+  public Reader getDownScriptReader() {
+    return new StringReader("DROP TABLE streamed_table;");
+  }
+
+  @Override
+  public String getUpScript() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String getDownScript() {
+    throw new UnsupportedOperationException();
+  }
+
+}
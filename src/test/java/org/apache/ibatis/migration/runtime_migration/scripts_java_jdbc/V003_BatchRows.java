@@ -0,0 +1,83 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.runtime_migration.scripts_java_jdbc;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.ibatis.migration.JdbcMigrationScript;
+
+public class V003_BatchRows implements JdbcMigrationScript {
+
+  public static final int ROWS = 1000;
+
+  @Override
+  public BigDecimal getId() {
+    return new BigDecimal(this.getClass().getSimpleName().substring(1, 4));
+  }
+
+  @Override
+  public String getDescription() {
+    return "Batch rows";
+  }
+
+  @Override
+  public void up(Connection connection) throws SQLException {
+    Statement statement = connection.createStatement();
+    try {
+      statement.execute("CREATE TABLE batched_table (ID INTEGER NOT NULL)");
+    } finally {
+      statement.close();
+    }
+    PreparedStatement insert = connection.prepareStatement("INSERT INTO batched_table (ID) VALUES (?)");
+    try {
+      for (int i = 1; i <= ROWS; i++) {
+        insert.setInt(1, i);
+        insert.addBatch();
+        if (i % 100 == 0) {
+          insert.executeBatch();
+        }
+      }
+      insert.executeBatch();
+    } finally {
+      insert.close();
+    }
+  }
+
+  @Override
+  public void down(Connection connection) throws SQLException {
+    Statement statement = connection.createStatement();
+    try {
+      statement.execute("DROP TABLE batched_table");
+    } finally {
+      statement.close();
+    }
+  }
+
+  @Override
+  public String getUpScript() {
+    return "-- Creates batched_table and inserts " + ROWS + " rows with a JDBC batch.";
+  }
+
+  @Override
+  public String getDownScript() {
+    return "DROP TABLE batched_table;";
+  }
+
+}
@@ -0,0 +1,71 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.scripts;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ibatis.migration.options.SelectedPaths;
+import org.junit.Test;
+
+public class Jsr223ScriptTest {
+
+  private static class CountingScript extends Jsr223Script<Object> {
+    private int reads;
+
+    CountingScript(String[] options) {
+      super("javascript", "utf-8", options, new SelectedPaths(new File(".")), new Properties(),
+          new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @Override
+    protected Reader getReader() {
+      reads++;
+      return new StringReader("var counter = (typeof counter === 'undefined' ? 0 : counter) + 1;"
+          + " function twice(x) { return x * 2; }; counter");
+    }
+  }
+
+  @Test
+  public void shouldCompileOnceAndUseFreshBindings() throws Exception {
+    CountingScript script = new CountingScript(new String[0]);
+    for (int i = 0; i < 3; i++) {
+      Map<String, Object> bindingMap = new HashMap<String, Object>();
+      Object result = script.execute(bindingMap);
+      assertEquals(1, ((Number) result).intValue());
+      assertEquals(1, ((Number) bindingMap.get("counter")).intValue());
+    }
+    assertEquals(1, script.reads);
+  }
+
+  @Test
+  public void shouldInvokeFunctionOfCompiledScript() throws Exception {
+    CountingScript script = new CountingScript(new String[] { "_function=twice", "_arg=21" });
+    for (int i = 0; i < 2; i++) {
+      Object result = script.execute(new HashMap<String, Object>());
+      assertEquals(42, ((Number) result).intValue());
+    }
+    assertEquals(1, script.reads);
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.migration.timing;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.apache.ibatis.migration.Change;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MigrationTimingsTest {
+
+  private File timingsDir;
+
+  private File scriptsDir;
+
+  @Before
+  public void setup() throws Exception {
+    timingsDir = getTempDir();
+    scriptsDir = getTempDir();
+  }
+
+  @Test
+  public void shouldStoreAndReloadRecordedTimes() throws Exception {
+    MigrationTimings timings = new MigrationTimings(timingsDir, "development", scriptsDir);
+    timings.record(change("1", "001_first.sql"), 1500L);
+    timings.store();
+    assertTrue(new File(timingsDir, "development.properties").exists());
+
+    MigrationTimings reloaded = new MigrationTimings(timingsDir, "development", scriptsDir);
+    assertEquals(Long.valueOf(1500L), reloaded.getRecordedTime(change("1", "001_first.sql")));
+    assertEquals(1500L, reloaded.estimate(change("1", "001_first.sql")));
+  }
+
+  @Test
+  public void shouldAverageTimesImportedFromOtherEnvironments() throws Exception {
+    writeFile(new File(timingsDir, "staging.properties"), "2=1000");
+    writeFile(new File(timingsDir, "production.properties"), "2=3000");
+    MigrationTimings timings = new MigrationTimings(timingsDir, "development", scriptsDir);
+    assertNull(timings.getRecordedTime(change("2", "002_second.sql")));
+    assertEquals(2000L, timings.estimate(change("2", "002_second.sql")));
+  }
+
+  @Test
+  public void shouldSkipValuesThatAreNotNumbers() throws Exception {
+    writeFile(new File(timingsDir, "development.properties"), "1=fast");
+    writeFile(new File(timingsDir, "staging.properties"), "2=1000");
+    writeFile(new File(timingsDir, "production.properties"), "2=slow");
+    MigrationTimings timings = new MigrationTimings(timingsDir, "development", scriptsDir);
+    assertNull(timings.getRecordedTime(change("1", "001_first.sql")));
+    assertEquals(1000L, timings.estimate(change("2", "002_second.sql")));
+    assertEquals(2, timings.getWarnings().size());
+  }
+
+  @Test
+  public void shouldEstimateFromScriptSizeWithoutHistory() throws Exception {
+    writeFile(new File(scriptsDir, "001_first.sql"), "0123456789");
+    writeFile(new File(scriptsDir, "002_second.sql"), "01234567890123456789");
+    writeFile(new File(timingsDir, "development.properties"), "1=100");
+    MigrationTimings timings = new MigrationTimings(timingsDir, "development", scriptsDir);
+    // 100ms for 10 bytes (+ line separator) recorded for the first script
+    long expected = 100L * new File(scriptsDir, "002_second.sql").length()
+        / new File(scriptsDir, "001_first.sql").length();
+    assertEquals(expected, timings.estimate(change("2", "002_second.sql")));
+    assertEquals(100L + expected,
+        timings.estimate(Arrays.asList(change("1", "001_first.sql"), change("2", "002_second.sql"))));
+  }
+
+  @Test
+  public void shouldNotWriteAnythingWhenNothingWasRecorded() throws Exception {
+    new MigrationTimings(timingsDir, "development", scriptsDir).store();
+    assertEquals(0, timingsDir.list().length);
+  }
+
+  @Test
+  public void shouldNotCreateTimingsDirectoryUnlessAllowed() throws Exception {
+    File missingDir = new File(timingsDir, "timings");
+    MigrationTimings timings = new MigrationTimings(missingDir, "development", scriptsDir, false);
+    timings.record(change("1", "001_first.sql"), 1500L);
+    timings.store();
+    assertFalse(missingDir.exists());
+
+    timings = new MigrationTimings(missingDir, "development", scriptsDir, true);
+    timings.record(change("1", "001_first.sql"), 1500L);
+    timings.store();
+    assertTrue(new File(missingDir, "development.properties").exists());
+  }
+
+  private Change change(String id, String filename) {
+    return new Change(new BigDecimal(id), null, null, filename);
+  }
+
+  private void writeFile(File file, String content) throws IOException {
+    PrintWriter writer = new PrintWriter(new FileWriter(file));
+    try {
+      writer.println(content);
+    } finally {
+      writer.close();
+    }
+  }
+
+  private File getTempDir() throws IOException {
+    File f = File.createTempFile("migration", "test");
+    assertTrue(f.delete());
+    assertTrue(f.mkdir());
+    f.deleteOnExit();
+    return f;
+  }
+}
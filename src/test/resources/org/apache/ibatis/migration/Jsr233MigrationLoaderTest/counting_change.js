@@ -0,0 +1,18 @@
+/*
+ *    Copyright 2010-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+var props = env.getVariables()
+props.setProperty("change_evaluations", String(Number(props.getProperty("change_evaluations", "0")) + 1))
+new java.io.StringReader("select '" + change.id + "' as id, '" + paths.getBasePath() + "' as" + " change")